@@ -0,0 +1,52 @@
+package com.openclassrooms.datashare.mapper;
+
+import com.openclassrooms.datashare.dto.FileMetadataDto;
+import com.openclassrooms.datashare.entities.File;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping entité vers DTO de l'historique des fichiers (appelé pour chaque ligne de la liste).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class FileMapperBenchmark {
+
+    private FileMapper fileMapper;
+    private File file;
+
+    @Setup
+    public void setUp() {
+        fileMapper = new FileMapperImpl();
+
+        file = new File();
+        file.setId(UUID.randomUUID());
+        file.setFilename("rapport.pdf");
+        file.setOriginalFilename("rapport.pdf");
+        file.setFilepath("1/2025/01/01/uuid_rapport.pdf");
+        file.setFileSize(1_048_576L);
+        file.setMimeType("application/pdf");
+        file.setDownloadToken(UUID.randomUUID().toString());
+        file.setPasswordHash("$2a$10$hash");
+        file.setExpirationDate(LocalDateTime.now().plusDays(7));
+        file.setCreatedAt(LocalDateTime.now());
+        file.setUpdatedAt(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public FileMetadataDto toMetadataDto() {
+        return fileMapper.toMetadataDto(file);
+    }
+}
@@ -0,0 +1,34 @@
+package com.openclassrooms.datashare.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalisation du nom de fichier à l'upload (FileService.generateSafeFilename).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class FileServiceBenchmark {
+
+    @Param({
+        "rapport.pdf",
+        "Rapport annuel 2024 (version finale) - copie.pdf",
+        "données_été___très   spéciales!!@#.csv"
+    })
+    public String filename;
+
+    @Benchmark
+    public String generateSafeFilename() {
+        return FileService.generateSafeFilename(filename);
+    }
+}
@@ -0,0 +1,98 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.service.FileStorageService.StoredFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stratégies de copie à l'upload (FileStorageService.storeFile).
+ * <p>
+ * Chaque opération stocke puis supprime le fichier, pour que le disque ne se remplisse pas
+ * pendant la mesure ; la suppression est comptée de la même façon pour toutes les stratégies.
+ * - filesCopy : copie brute Files.copy, référence sans détection ni compression
+ * - storeFile_raw : stockage actuel d'un contenu binaire (détection du type, pas de compression)
+ * - storeFile_gzip : stockage d'un CSV avec la compression activée
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class FileStorageServiceBenchmark {
+
+    @Param({"65536", "4194304"})
+    public int size;
+
+    private Path storageDir;
+    private FileStorageService storageService;
+    private FileStorageService compressingStorageService;
+    private MockMultipartFile binaryFile;
+    private MockMultipartFile csvFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storageDir = Files.createTempDirectory("datashare-jmh");
+        storageService = new FileStorageService(storageDir.toString(), Long.MAX_VALUE);
+        compressingStorageService = new FileStorageService(storageDir.toString(), Long.MAX_VALUE);
+        ReflectionTestUtils.setField(compressingStorageService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(compressingStorageService, "compressionMinSize", 1024L);
+        ReflectionTestUtils.setField(compressingStorageService, "compressionLevel", 6);
+
+        byte[] binary = new byte[size];
+        new Random(42).nextBytes(binary);
+        binaryFile = new MockMultipartFile("file", "archive.bin", "application/octet-stream", binary);
+
+        byte[] csv = "id;name;email;created_at\n1;alice;alice@example.com;2025-01-01T10:00:00\n"
+                .repeat(size / 60 + 1).substring(0, size).getBytes(StandardCharsets.UTF_8);
+        csvFile = new MockMultipartFile("file", "export.csv", "text/csv", csv);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(storageDir);
+    }
+
+    @Benchmark
+    public long filesCopy() throws IOException {
+        Path target = storageDir.resolve("baseline.bin");
+        try (InputStream in = binaryFile.getInputStream()) {
+            long copied = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(target);
+            return copied;
+        }
+    }
+
+    @Benchmark
+    public long storeFile_raw() throws IOException {
+        StoredFile stored = storageService.storeFile(binaryFile, 1L, "application/octet-stream");
+        storageService.deleteFile(stored.filepath());
+        return stored.storedSize();
+    }
+
+    @Benchmark
+    public long storeFile_gzip() throws IOException {
+        StoredFile stored = compressingStorageService.storeFile(csvFile, 1L, "text/csv");
+        compressingStorageService.deleteFile(stored.filepath());
+        return stored.storedSize();
+    }
+}
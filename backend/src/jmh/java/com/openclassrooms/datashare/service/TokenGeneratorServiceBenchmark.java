@@ -0,0 +1,53 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.repository.FileRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération des tokens de téléchargement, hors accès base de données :
+ * le repository est remplacé par un stub qui ne signale jamais de collision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class TokenGeneratorServiceBenchmark {
+
+    private TokenGeneratorService tokenGeneratorService;
+
+    @Setup
+    public void setUp() {
+        FileRepository repository = (FileRepository) Proxy.newProxyInstance(
+                FileRepository.class.getClassLoader(),
+                new Class<?>[]{FileRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByDownloadToken" -> Optional.empty();
+                    case "findExistingDownloadTokens" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        tokenGeneratorService = new TokenGeneratorService(repository);
+    }
+
+    @Benchmark
+    public String generateUniqueToken() {
+        return tokenGeneratorService.generateUniqueToken();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> generateUniqueTokens_batchOf100() {
+        return tokenGeneratorService.generateUniqueTokens(100);
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.datashare.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation du type des fichiers uploadés : liste noire (extension, Content-Type client)
+ * et détection par magic numbers sur l'en-tête du contenu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class MimeTypeValidatorBenchmark {
+
+    private MimeTypeValidator validator;
+    private MockMultipartFile allowedFile;
+    private MockMultipartFile blockedFile;
+    private byte[] pngHead;
+    private byte[] unknownHead;
+
+    @Setup
+    public void setUp() {
+        validator = new MimeTypeValidator();
+        allowedFile = new MockMultipartFile("file", "rapport-annuel.pdf", "application/pdf", new byte[]{1});
+        blockedFile = new MockMultipartFile("file", "setup.exe", "application/octet-stream", new byte[]{1});
+
+        pngHead = new byte[MagicNumberSniffer.SNIFF_LENGTH];
+        new Random(42).nextBytes(pngHead);
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, 0, pngHead, 0, 8);
+
+        // Texte brut : aucune signature, toutes les tables sont parcourues
+        unknownHead = "id;name;value\n".repeat(300).substring(0, MagicNumberSniffer.SNIFF_LENGTH).getBytes();
+    }
+
+    @Benchmark
+    public boolean isValid_allowed() {
+        return validator.isValid(allowedFile);
+    }
+
+    @Benchmark
+    public boolean isValid_blockedExtension() {
+        return validator.isValid(blockedFile);
+    }
+
+    @Benchmark
+    public String sniff_png() {
+        return MagicNumberSniffer.sniff(pngHead, pngHead.length);
+    }
+
+    @Benchmark
+    public String sniff_noMatch() {
+        return MagicNumberSniffer.sniff(unknownHead, unknownHead.length);
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.datashare.cache;
+
+/**
+ * Estimation compacte de la fréquence d'accès récente des clés (Count-Min Sketch à compteurs 4 bits).
+ * <p>
+ * Chaque clé incrémente un compteur par ligne ; sa fréquence estimée est le minimum de ses compteurs,
+ * plafonnés à 15. Quand le nombre d'incréments atteint dix fois la largeur, tous les compteurs
+ * sont divisés par deux : les accès anciens pèsent de moins en moins.
+ * <p>
+ * Non synchronisé : l'appelant protège les accès.
+ */
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0x2f1d7a53};
+
+    private final byte[] counters;
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries Le nombre de clés attendu dans le cache (arrondi à la puissance de deux supérieure)
+     */
+    FrequencySketch(int expectedEntries) {
+        int target = Math.max(64, Math.min(expectedEntries, 1 << 22));
+        this.width = Integer.highestOneBit(target - 1) << 1;
+        this.counters = new byte[DEPTH * width];
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Enregistre un accès à la clé.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return La fréquence estimée de la clé, entre 0 et 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = (byte) (counters[i] >>> 1);
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,296 @@
+package com.openclassrooms.datashare.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache de contenus binaires hors tas, borné en octets, à admission W-TinyLFU.
+ * <p>
+ * Les contenus sont copiés dans des ByteBuffer directs : ils ne sont ni parcourus ni déplacés par le GC,
+ * et sont servis par des vues en lecture seule, sans copie sur le tas. La mémoire d'une entrée évincée
+ * est rendue quand plus aucune vue n'est en cours de lecture.
+ * <p>
+ * Trois zones, en octets :
+ * <ul>
+ *   <li>fenêtre (1 %) : toute nouvelle entrée y entre, en LRU ;</li>
+ *   <li>probation (20 % du reste) : une entrée sortie de la fenêtre n'y est admise que si sa fréquence
+ *   récente dépasse celle de l'entrée qu'elle évincerait ;</li>
+ *   <li>protégée (80 % du reste) : une entrée relue en probation y est promue.</li>
+ * </ul>
+ * Les fréquences sont estimées par un {@link FrequencySketch} mis à jour à chaque lecture, y compris
+ * pour les clés absentes : un contenu lu une seule fois ne chasse pas un contenu lu régulièrement.
+ * <p>
+ * La classe ne dépend pas de Spring ; un verrou unique protège les zones et le sketch.
+ *
+ * @param <K> Le type des clés
+ */
+public class OffHeapLfuCache<K> {
+
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final long maxEntryBytes;
+    private final long windowMaxBytes;
+    private final long mainMaxBytes;
+    private final long protectedMaxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<K, Node<K>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K>> protectedZone = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes La taille totale maximale des contenus
+     * @param maxEntryBytes La taille maximale d'un contenu (la fenêtre fait au moins cette taille)
+     */
+    public OffHeapLfuCache(long maxBytes, long maxEntryBytes) {
+        if (maxBytes < 1 || maxEntryBytes < 1 || maxEntryBytes > maxBytes) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid cache size: %d bytes, entries up to %d bytes", maxBytes, maxEntryBytes));
+        }
+        this.maxEntryBytes = maxEntryBytes;
+        this.windowMaxBytes = Math.max(maxBytes / 100, maxEntryBytes);
+        this.mainMaxBytes = Math.max(0, maxBytes - windowMaxBytes);
+        this.protectedMaxBytes = (long) (mainMaxBytes * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, maxEntryBytes / 4)));
+    }
+
+    /**
+     * Retourne le contenu associé à la clé, et enregistre l'accès.
+     *
+     * @param key La clé
+     * @return Une vue en lecture seule positionnée au début du contenu, null si absent ou expiré
+     */
+    public ByteBuffer get(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node<K> node = window.get(key);
+            if (node == null) {
+                node = protectedZone.get(key);
+            }
+            if (node == null) {
+                node = probation.remove(key);
+                if (node != null) {
+                    probationBytes -= node.weight();
+                    protectedZone.put(key, node);
+                    protectedBytes += node.weight();
+                    demoteProtected();
+                }
+            }
+
+            if (node == null) {
+                misses.increment();
+                return null;
+            }
+            if (node.isExpired(Instant.now())) {
+                remove(key);
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return node.buffer().duplicate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return La fréquence d'accès récente estimée de la clé, entre 0 et 15
+     */
+    public int frequency(K key) {
+        lock.lock();
+        try {
+            return sketch.frequency(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute un contenu dans la fenêtre ; les entrées qui en sortent passent l'admission TinyLFU.
+     *
+     * @param key La clé
+     * @param content Le contenu, copié hors tas
+     * @param expiresAt L'instant après lequel le contenu n'est plus servi (null : jamais)
+     * @return false si le contenu dépasse la taille maximale d'une entrée
+     */
+    public boolean put(K key, byte[] content, Instant expiresAt) {
+        if (content.length > maxEntryBytes) {
+            return false;
+        }
+        // Allocation et copie hors verrou
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length).put(content).flip().asReadOnlyBuffer();
+        Node<K> node = new Node<>(key, buffer, expiresAt);
+
+        lock.lock();
+        try {
+            remove(key);
+            window.put(key, node);
+            windowBytes += node.weight();
+            while (windowBytes > windowMaxBytes) {
+                Node<K> candidate = pollEldest(window);
+                windowBytes -= candidate.weight();
+                admit(candidate);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire le contenu associé à la clé.
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire les contenus expirés.
+     *
+     * @return Le nombre de contenus retirés
+     */
+    public int removeExpired() {
+        Instant now = Instant.now();
+        lock.lock();
+        try {
+            List<K> expired = new ArrayList<>();
+            for (Map<K, Node<K>> zone : List.of(window, probation, protectedZone)) {
+                // Parcourir values() ne modifie pas l'ordre d'accès
+                zone.values().stream().filter(node -> node.isExpired(now)).forEach(node -> expired.add(node.key()));
+            }
+            expired.forEach(this::remove);
+            return expired.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return La taille totale des contenus en cache, en octets
+     */
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return windowBytes + probationBytes + protectedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Le nombre de contenus en cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + probation.size() + protectedZone.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Fait entrer dans la zone principale une entrée sortie de la fenêtre, si elle est plus fréquente
+     * que les entrées qu'elle évincerait ; sinon c'est elle qui est évincée.
+     */
+    private void admit(Node<K> candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key());
+        while (probationBytes + protectedBytes + candidate.weight() > mainMaxBytes) {
+            LinkedHashMap<K, Node<K>> zone = !probation.isEmpty() ? probation : protectedZone;
+            Node<K> victim = zone.isEmpty() ? null : zone.values().iterator().next();
+            if (victim == null || candidateFrequency <= sketch.frequency(victim.key())) {
+                evictions.increment();
+                return;
+            }
+            zone.remove(victim.key());
+            if (zone == probation) {
+                probationBytes -= victim.weight();
+            } else {
+                protectedBytes -= victim.weight();
+            }
+            evictions.increment();
+        }
+        probation.put(candidate.key(), candidate);
+        probationBytes += candidate.weight();
+    }
+
+    /**
+     * Repasse en probation les entrées protégées les moins récentes au-delà de la part protégée.
+     */
+    private void demoteProtected() {
+        while (protectedBytes > protectedMaxBytes) {
+            Node<K> demoted = pollEldest(protectedZone);
+            protectedBytes -= demoted.weight();
+            probation.put(demoted.key(), demoted);
+            probationBytes += demoted.weight();
+        }
+    }
+
+    private void remove(K key) {
+        Node<K> node = window.remove(key);
+        if (node != null) {
+            windowBytes -= node.weight();
+            return;
+        }
+        node = probation.remove(key);
+        if (node != null) {
+            probationBytes -= node.weight();
+            return;
+        }
+        node = protectedZone.remove(key);
+        if (node != null) {
+            protectedBytes -= node.weight();
+        }
+    }
+
+    private static <K> Node<K> pollEldest(LinkedHashMap<K, Node<K>> zone) {
+        Iterator<Map.Entry<K, Node<K>>> iterator = zone.entrySet().iterator();
+        Node<K> eldest = iterator.next().getValue();
+        iterator.remove();
+        return eldest;
+    }
+
+    private record Node<K>(K key, ByteBuffer buffer, Instant expiresAt) {
+
+        long weight() {
+            return buffer.capacity();
+        }
+
+        boolean isExpired(Instant now) {
+            return expiresAt != null && !now.isBefore(expiresAt);
+        }
+    }
+}
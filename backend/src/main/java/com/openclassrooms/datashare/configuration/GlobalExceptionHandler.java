@@ -3,6 +3,7 @@ package com.openclassrooms.datashare.configuration;
 import com.openclassrooms.datashare.exception.AccessDeniedException;
 import com.openclassrooms.datashare.exception.FileExpiredException;
 import com.openclassrooms.datashare.exception.FileNotFoundException;
+import com.openclassrooms.datashare.exception.InvalidArchiveRequestException;
 import com.openclassrooms.datashare.exception.InvalidPasswordException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -160,4 +161,23 @@ public class GlobalExceptionHandler {
         log.warn("Access denied: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
     }
+
+    /**
+     * Gère les demandes d'archive invalides (lot vide ou trop volumineux).
+     * <p>
+     * Retourne HTTP 400 Bad Request.
+     * 
+     * @param ex Exception InvalidArchiveRequestException
+     * @return Message d'erreur
+     */
+    @ExceptionHandler(InvalidArchiveRequestException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidArchiveRequestException(InvalidArchiveRequestException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Bad Request");
+        error.put("message", ex.getMessage());
+        error.put("timestamp", LocalDateTime.now().toString());
+        
+        log.warn("Invalid archive request: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
 }
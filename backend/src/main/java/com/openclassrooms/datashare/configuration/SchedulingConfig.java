@@ -0,0 +1,13 @@
+package com.openclassrooms.datashare.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (@Scheduled), comme le nettoyage des variantes
+ * compressées des fichiers expirés.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,57 @@
+package com.openclassrooms.datashare.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration de l'exécuteur dédié aux écritures sur le stockage.
+ * <p>
+ * Utilisé par l'upload par lot pour copier plusieurs fichiers en parallèle
+ * sans consommer les threads Tomcat.
+ * <p>
+ * Avec spring.threads.virtual.enabled=true, chaque copie s'exécute dans un thread virtuel :
+ * le nombre de copies simultanées reste borné pour ne pas saturer le disque. Au-delà de la
+ * limite, {@code execute} bloque l'appelant jusqu'à la fin d'une copie et ne lève jamais
+ * {@code RejectedExecutionException} : un appelant qui ne doit pas attendre borne lui-même
+ * ses tâches (voir CompressedVariantService).
+ */
+@Configuration
+public class StorageExecutorConfig {
+
+    @Value("${app.storage.executor.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.storage.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.storage.executor.virtual-concurrency-limit:16}")
+    private int virtualConcurrencyLimit;
+
+    @Bean(name = "storageExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor storageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("storage-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "storageExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualStorageExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("storage-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(virtualConcurrencyLimit);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
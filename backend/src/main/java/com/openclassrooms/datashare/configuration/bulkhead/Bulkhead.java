@@ -0,0 +1,105 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cloison d'une classe de requêtes : nombre de threads Tomcat occupés borné, file d'attente bornée.
+ * <p>
+ * Une requête sans place libre attend au plus maxWait, dans l'ordre d'arrivée ;
+ * si la file est pleine ou l'attente expirée, elle est refusée.
+ * <p>
+ * Métriques (tag workload) : datashare.bulkhead.active, datashare.bulkhead.queued,
+ * datashare.bulkhead.wait et datashare.bulkhead.rejected.
+ */
+class Bulkhead {
+
+    private final Workload workload;
+    private final int maxConcurrent;
+    private final int queueSize;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    Bulkhead(Workload workload, int maxConcurrent, int queueSize, Duration maxWait, MeterRegistry registry) {
+        this.workload = workload;
+        this.maxConcurrent = maxConcurrent;
+        this.queueSize = queueSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("datashare.bulkhead.active", this, Bulkhead::active)
+                .description("Requêtes en cours de traitement")
+                .tag("workload", workload.key())
+                .register(registry);
+        Gauge.builder("datashare.bulkhead.queued", queued, AtomicInteger::get)
+                .description("Requêtes en attente d'une place")
+                .tag("workload", workload.key())
+                .register(registry);
+        this.waitTimer = Timer.builder("datashare.bulkhead.wait")
+                .description("Attente d'une place avant traitement")
+                .tag("workload", workload.key())
+                .register(registry);
+        this.rejected = Counter.builder("datashare.bulkhead.rejected")
+                .description("Requêtes refusées, file pleine ou attente expirée")
+                .tag("workload", workload.key())
+                .register(registry);
+    }
+
+    /**
+     * Prend une place, en attendant au plus maxWait.
+     *
+     * @return true si la place est prise, à rendre par {@link #release()}
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente
+     */
+    boolean acquire() throws InterruptedException {
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return true;
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                rejected.increment();
+            }
+            return acquired;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Rend une place prise par {@link #acquire()}.
+     */
+    void release() {
+        permits.release();
+    }
+
+    Workload workload() {
+        return workload;
+    }
+
+    int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+}
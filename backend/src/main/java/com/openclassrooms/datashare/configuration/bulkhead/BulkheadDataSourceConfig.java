@@ -0,0 +1,61 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Un pool de connexions JDBC (HikariCP) par classe de requêtes.
+ * <p>
+ * Une rafale d'uploads ne peut occuper que les connexions du pool "upload" : le listing des fichiers
+ * et le login gardent les leurs. Chaque pool expose ses métriques hikaricp.connections.*
+ * (tag pool=datashare-upload, datashare-download, datashare-api), dont
+ * hikaricp.connections.pending : la file d'attente de connexions de la classe.
+ * <p>
+ * La connexion et l'URL restent celles de spring.datasource.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.bulkhead.datasource.enabled", havingValue = "true", matchIfMissing = true)
+public class BulkheadDataSourceConfig {
+
+    @Value("${app.bulkhead.upload.pool-size:4}")
+    private int uploadPoolSize;
+
+    @Value("${app.bulkhead.download.pool-size:6}")
+    private int downloadPoolSize;
+
+    @Value("${app.bulkhead.api.pool-size:6}")
+    private int apiPoolSize;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        Map<Workload, Integer> poolSizes = Map.of(
+                Workload.UPLOAD, uploadPoolSize,
+                Workload.DOWNLOAD, downloadPoolSize,
+                Workload.API, apiPoolSize);
+
+        Map<Object, Object> pools = new HashMap<>();
+        for (Workload workload : Workload.values()) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            pool.setPoolName("datashare-" + workload.key());
+            pool.setMaximumPoolSize(poolSizes.get(workload));
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.put(workload, pool);
+        }
+
+        WorkloadRoutingDataSource dataSource = new WorkloadRoutingDataSource();
+        dataSource.setTargetDataSources(pools);
+        dataSource.setDefaultTargetDataSource(pools.get(Workload.API));
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+}
@@ -0,0 +1,115 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Cloisonnement des requêtes par classe : uploads, téléchargements et API authentifiée.
+ * <p>
+ * Les trois classes partagent le pool de threads Tomcat : chacune n'en occupe qu'une part bornée
+ * ({@link Bulkhead}), avec sa propre file d'attente. Une rafale d'uploads remplit la file des uploads
+ * sans retarder GET /api/files ni /api/auth/login.
+ * <p>
+ * La classe est aussi positionnée dans {@link WorkloadContext} pour toute la durée de la requête :
+ * les accès base passent par le pool de connexions de la classe ({@link WorkloadRoutingDataSource}).
+ * <p>
+ * Placé en tête de chaîne, avant l'authentification JWT qui accède déjà à la base.
+ */
+@Slf4j
+@Component
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final byte[] OVERLOADED_BODY =
+            "{\"error\":\"Service Unavailable\",\"message\":\"Server busy, retry later\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final RateLimitedLogger REJECTED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+
+    public BulkheadFilter(MeterRegistry registry,
+                          @Value("${app.bulkhead.enabled:true}") boolean enabled,
+                          @Value("${app.bulkhead.max-wait:2s}") Duration maxWait,
+                          @Value("${app.bulkhead.retry-after:2s}") Duration retryAfter,
+                          @Value("${app.bulkhead.upload.max-concurrent:40}") int uploadConcurrent,
+                          @Value("${app.bulkhead.upload.queue-size:20}") int uploadQueue,
+                          @Value("${app.bulkhead.download.max-concurrent:100}") int downloadConcurrent,
+                          @Value("${app.bulkhead.download.queue-size:100}") int downloadQueue,
+                          @Value("${app.bulkhead.api.max-concurrent:60}") int apiConcurrent,
+                          @Value("${app.bulkhead.api.queue-size:100}") int apiQueue) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        bulkheads.put(Workload.UPLOAD, new Bulkhead(Workload.UPLOAD, uploadConcurrent, uploadQueue, maxWait, registry));
+        bulkheads.put(Workload.DOWNLOAD,
+                new Bulkhead(Workload.DOWNLOAD, downloadConcurrent, downloadQueue, maxWait, registry));
+        bulkheads.put(Workload.API, new Bulkhead(Workload.API, apiConcurrent, apiQueue, maxWait, registry));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Bulkhead bulkhead = bulkheads.get(Workload.of(request));
+        boolean acquired;
+        try {
+            acquired = bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            reject(response, bulkhead);
+            return;
+        }
+
+        WorkloadContext.set(bulkhead.workload());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            WorkloadContext.clear();
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * @return Le nombre de requêtes en cours de traitement pour la classe
+     */
+    public int active(Workload workload) {
+        return bulkheads.get(workload).active();
+    }
+
+    private void reject(HttpServletResponse response, Bulkhead bulkhead) throws IOException {
+        REJECTED_LOG.log("Request rejected by {} bulkhead: {} active, {} queued",
+                bulkhead.workload().key(), bulkhead.active(), bulkhead.queued());
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(OVERLOADED_BODY.length);
+        response.getOutputStream().write(OVERLOADED_BODY);
+    }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Classes de requêtes isolées les unes des autres (threads Tomcat et connexions JDBC).
+ */
+public enum Workload {
+
+    /**
+     * Uploads : POST /api/files et /api/files/batch.
+     */
+    UPLOAD("upload"),
+
+    /**
+     * Téléchargements : /api/download/**.
+     */
+    DOWNLOAD("download"),
+
+    /**
+     * API authentifiée et authentification : listes, suppressions, login, inscription.
+     */
+    API("api");
+
+    private final String key;
+
+    Workload(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return Le nom de la classe, utilisé dans les tags des métriques et le nom des pools
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Détermine la classe d'une requête d'après sa méthode et son chemin.
+     */
+    public static Workload of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/download/")) {
+            return DOWNLOAD;
+        }
+        if ("POST".equals(request.getMethod()) && ("/api/files".equals(path) || "/api/files/batch".equals(path))) {
+            return UPLOAD;
+        }
+        return API;
+    }
+}
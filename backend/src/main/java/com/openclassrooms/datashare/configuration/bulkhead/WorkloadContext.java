@@ -0,0 +1,31 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+/**
+ * Classe de la requête traitée par le thread courant, positionnée par {@link BulkheadFilter}.
+ * <p>
+ * Lue par {@link WorkloadRoutingDataSource} pour choisir le pool de connexions.
+ * Hors requête (démarrage, tâches planifiées), la classe est {@link Workload#API}.
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * @return La classe de la requête en cours, API par défaut
+     */
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : Workload.API;
+    }
+
+    static void set(Workload workload) {
+        CURRENT.set(workload);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
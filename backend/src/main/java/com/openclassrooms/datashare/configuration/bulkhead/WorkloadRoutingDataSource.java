@@ -0,0 +1,32 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source de données qui choisit le pool de connexions d'après la classe de la requête en cours.
+ * <p>
+ * La connexion est choisie à l'ouverture de la transaction, dans le thread de la requête :
+ * une transaction reste sur le même pool jusqu'à sa fin.
+ * <p>
+ * Les pools ne sont pas des beans : ils sont fermés avec cette source, à l'arrêt du contexte.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WorkloadContext.current();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource pool : getResolvedDataSources().values()) {
+            if (pool instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
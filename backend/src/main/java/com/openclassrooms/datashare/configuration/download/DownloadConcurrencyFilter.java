@@ -0,0 +1,87 @@
+package com.openclassrooms.datashare.configuration.download;
+
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Délestage des téléchargements au-delà de la limite adaptative ({@link DownloadConcurrencyLimiter}).
+ * <p>
+ * Placé avant l'authentification JWT : une requête refusée ne coûte ni accès base ni lecture disque,
+ * seulement un 503 avec Retry-After au corps constant.
+ * <p>
+ * La place est rendue au retour de la chaîne de filtres : pour un envoi asynchrone (AsyncDownloadWriter,
+ * archive ZIP), elle ne couvre que la recherche et l'ouverture du fichier, pas l'envoi des octets.
+ */
+@Slf4j
+@Component
+public class DownloadConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final String DOWNLOAD_PATH = "/api/download/";
+
+    private static final byte[] OVERLOADED_BODY =
+            "{\"error\":\"Service Unavailable\",\"message\":\"Trop de téléchargements en cours, réessayez plus tard\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final RateLimitedLogger SHED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
+    private final DownloadConcurrencyLimiter limiter;
+    private final TransferMetrics transferMetrics;
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+
+    public DownloadConcurrencyFilter(DownloadConcurrencyLimiter limiter,
+                                     TransferMetrics transferMetrics,
+                                     @Value("${app.download.concurrency.enabled:true}") boolean enabled,
+                                     @Value("${app.download.concurrency.retry-after:1s}") Duration retryAfter) {
+        this.limiter = limiter;
+        this.transferMetrics = transferMetrics;
+        this.enabled = enabled;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        return !request.getRequestURI().startsWith(request.getContextPath() + DOWNLOAD_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        if (!limiter.tryAcquire()) {
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_OVERLOADED);
+            SHED_LOG.log("Téléchargement refusé, limite atteinte: {} requêtes en cours (limite {})",
+                    limiter.inFlight(), limiter.limit());
+
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(OVERLOADED_BODY.length);
+            response.getOutputStream().write(OVERLOADED_BODY);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release();
+        }
+    }
+}
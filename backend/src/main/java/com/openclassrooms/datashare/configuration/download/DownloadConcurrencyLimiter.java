@@ -0,0 +1,75 @@
+package com.openclassrooms.datashare.configuration.download;
+
+import com.openclassrooms.datashare.limiter.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limite adaptative des requêtes simultanées sur /api/download/**.
+ * <p>
+ * La limite suit la durée des recherches en base et des ouvertures de fichiers
+ * (DownloadService.getFileInfo, openDownload) : quand elle augmente, moins de requêtes
+ * sont admises et le surplus reçoit un 503 immédiat ({@link DownloadConcurrencyFilter}).
+ * L'envoi des octets n'est pas mesuré : sa durée dépend du client et de la bande passante.
+ * <p>
+ * Métriques : datashare.download.concurrency.limit et datashare.download.concurrency.inflight.
+ */
+@Component
+public class DownloadConcurrencyLimiter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public DownloadConcurrencyLimiter(MeterRegistry registry,
+                                      @Value("${app.download.concurrency.min:8}") int minConcurrent,
+                                      @Value("${app.download.concurrency.initial:50}") int initialConcurrent,
+                                      @Value("${app.download.concurrency.max:400}") int maxConcurrent) {
+        this.limiter = new AdaptiveConcurrencyLimiter(Math.min(minConcurrent, maxConcurrent),
+                initialConcurrent, maxConcurrent);
+
+        Gauge.builder("datashare.download.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Requêtes de téléchargement simultanées admises, d'après la latence mesurée")
+                .register(registry);
+        Gauge.builder("datashare.download.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requêtes de téléchargement admises et en cours")
+                .register(registry);
+    }
+
+    /**
+     * @return true si la requête est admise, la place étant à rendre par {@link #release()}
+     */
+    public boolean tryAcquire() {
+        return limiter.tryAcquire();
+    }
+
+    /**
+     * Rend une place prise par {@link #tryAcquire()}.
+     */
+    public void release() {
+        limiter.release();
+    }
+
+    /**
+     * Prend en compte la durée d'une recherche de fichier (base et disque).
+     *
+     * @param startNanos Le début de la recherche (System.nanoTime())
+     */
+    public void recordLatency(long startNanos) {
+        limiter.onSample(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return La limite actuelle
+     */
+    public int limit() {
+        return limiter.limit();
+    }
+
+    /**
+     * @return Le nombre de requêtes admises et en cours
+     */
+    public int inFlight() {
+        return limiter.inFlight();
+    }
+}
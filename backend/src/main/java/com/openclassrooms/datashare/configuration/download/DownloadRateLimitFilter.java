@@ -0,0 +1,289 @@
+package com.openclassrooms.datashare.configuration.download;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.limiter.StripedRateLimiter;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitation du débit de requêtes sur les téléchargements publics, par adresse IP et par token.
+ * <p>
+ * GET et POST /api/download/{token} sont ouverts à tous : sans limite, un client peut énumérer
+ * les tokens ou tester des mots de passe (chacun coûtant une vérification BCrypt).
+ * <ul>
+ *   <li>par adresse IP : toutes les requêtes publiques /api/download/** ; une archive coûte
+ *   un jeton par mot de passe fourni (une vérification BCrypt chacun)</li>
+ *   <li>par token, quelle que soit l'adresse : seulement les essais de mot de passe, débités avant
+ *   la requête, et les requêtes en échec (4xx), débitées après coup. Les téléchargements réussis
+ *   sans mot de passe ne sont pas comptés : un lien populaire n'est pas plafonné. Une archive débite
+ *   chacun de ses tokens.</li>
+ * </ul>
+ * Au-delà, la requête reçoit un 429 avec Retry-After, avant tout accès base ou calcul BCrypt.
+ * Les téléchargements propriétaire (/api/download/owner/**) sont authentifiés et ne sont pas limités.
+ * <p>
+ * L'adresse IP est celle du client TCP, ou celle transmise par le reverse proxy
+ * (server.forward-headers-strategy).
+ */
+@Slf4j
+@Component
+public class DownloadRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String DOWNLOAD_PATH = "/api/download/";
+    private static final String OWNER_PATH = DOWNLOAD_PATH + "owner/";
+    private static final String ARCHIVE_PATH = DOWNLOAD_PATH + "archive";
+
+    private static final int STRIPES = 64;
+    // Seul le début du token est journalisé
+    private static final int TOKEN_PREFIX_LENGTH = 8;
+    // Corps lu pour repérer les mots de passe ; au-delà, la requête est débitée comme un seau plein
+    private static final int MAX_INSPECTED_BODY = 64 * 1024;
+
+    private static final byte[] RATE_LIMITED_BODY =
+            "{\"error\":\"Too Many Requests\",\"message\":\"Trop de requêtes, réessayez plus tard\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final RateLimitedLogger RATE_LIMITED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
+    private final TransferMetrics transferMetrics;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final StripedRateLimiter byAddress;
+    private final StripedRateLimiter byToken;
+
+    public DownloadRateLimitFilter(TransferMetrics transferMetrics,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app.download.rate-limit.enabled:true}") boolean enabled,
+                                   @Value("${app.download.rate-limit.per-ip.per-minute:120}") int ipPerMinute,
+                                   @Value("${app.download.rate-limit.per-ip.burst:60}") int ipBurst,
+                                   @Value("${app.download.rate-limit.per-token.per-minute:30}") int tokenPerMinute,
+                                   @Value("${app.download.rate-limit.per-token.burst:20}") int tokenBurst,
+                                   @Value("${app.download.rate-limit.max-entries:100000}") int maxEntries) {
+        this.transferMetrics = transferMetrics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.byAddress = new StripedRateLimiter(ipPerMinute, ipBurst, maxEntries, STRIPES);
+        this.byToken = new StripedRateLimiter(tokenPerMinute, tokenBurst, maxEntries, STRIPES);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(DOWNLOAD_PATH) || path.startsWith(OWNER_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Attempt attempt;
+        if ("POST".equals(request.getMethod())) {
+            byte[] body = request.getInputStream().readNBytes(MAX_INSPECTED_BODY + 1);
+            attempt = attempt(path, body);
+            request = new ReplayedBodyRequest(request, body);
+        } else {
+            attempt = attempt(path, null);
+        }
+
+        String address = request.getRemoteAddr();
+        long waitNanos = byAddress.tryAcquire(address, attempt.passwordChecks());
+        String limitedToken = null;
+        for (String token : attempt.passwordTokens()) {
+            if (waitNanos > 0) {
+                break;
+            }
+            waitNanos = byToken.tryAcquire(token);
+            limitedToken = token;
+        }
+
+        if (waitNanos > 0) {
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_RATE_LIMITED);
+            RATE_LIMITED_LOG.log("Requête de téléchargement limitée: ip={}, token={}",
+                    address, limitedToken != null ? tokenPrefix(limitedToken) : "-");
+
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(RATE_LIMITED_BODY.length);
+            response.getOutputStream().write(RATE_LIMITED_BODY);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+
+        // Échec (token inconnu, expiré, mot de passe manquant ou faux) : débité sur les tokens visés
+        if (isFailure(response.getStatus())) {
+            for (String token : attempt.tokens()) {
+                if (!attempt.passwordTokens().contains(token)) {
+                    byToken.tryAcquire(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Repère les tokens visés par la requête et ceux accompagnés d'un mot de passe.
+     *
+     * @param body Le début du corps des requêtes POST, null pour les autres
+     */
+    private Attempt attempt(String path, byte[] body) {
+        if (path.equals(ARCHIVE_PATH)) {
+            return archiveAttempt(body);
+        }
+        String token = path.substring(DOWNLOAD_PATH.length());
+        if (token.isEmpty() || token.indexOf('/') >= 0) {
+            return Attempt.NONE;
+        }
+        // Corps illisible ou trop gros : considéré comme un essai de mot de passe
+        JsonNode json = parse(body);
+        boolean withPassword = json != null ? hasText(json.path("password")) : body != null && body.length > 0;
+        return new Attempt(Set.of(token), withPassword ? Set.of(token) : Set.of(), 1);
+    }
+
+    private Attempt archiveAttempt(byte[] body) {
+        if (body != null && body.length > MAX_INSPECTED_BODY) {
+            return new Attempt(Set.of(), Set.of(), Integer.MAX_VALUE);
+        }
+        JsonNode json = parse(body);
+        if (json == null) {
+            return Attempt.NONE;
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        json.path("tokens").forEach(token -> {
+            if (token.isTextual()) {
+                tokens.add(token.asText());
+            }
+        });
+        JsonNode passwords = json.path("passwords");
+        Set<String> passwordTokens = new LinkedHashSet<>();
+        for (String token : tokens) {
+            if (hasText(passwords.path(token))) {
+                passwordTokens.add(token);
+            }
+        }
+        return new Attempt(tokens, passwordTokens, Math.max(1, passwordTokens.size()));
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body == null || body.length == 0 || body.length > MAX_INSPECTED_BODY) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // Corps invalide : rejeté ensuite par le contrôleur, compté comme un échec
+            return null;
+        }
+    }
+
+    private static boolean hasText(JsonNode node) {
+        return node.isTextual() && !node.asText().isBlank();
+    }
+
+    private static boolean isFailure(int status) {
+        return status >= 400 && status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private static String tokenPrefix(String token) {
+        return token.length() > TOKEN_PREFIX_LENGTH ? token.substring(0, TOKEN_PREFIX_LENGTH) : token;
+    }
+
+    /**
+     * Tokens visés par une requête publique.
+     *
+     * @param tokens Les tokens visés
+     * @param passwordTokens Ceux accompagnés d'un mot de passe, débités avant la requête
+     * @param passwordChecks Les jetons débités sur l'adresse IP
+     */
+    private record Attempt(Set<String> tokens, Set<String> passwordTokens, int passwordChecks) {
+
+        static final Attempt NONE = new Attempt(Set.of(), Set.of(), 1);
+    }
+
+    /**
+     * Requête dont le début du corps, déjà lu pour repérer les mots de passe, est relu avant le reste.
+     */
+    private static final class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream inputStream;
+
+        private ReplayedBodyRequest(HttpServletRequest request, byte[] head) throws IOException {
+            super(request);
+            ServletInputStream original = request.getInputStream();
+            InputStream replayed = new SequenceInputStream(new ByteArrayInputStream(head), original);
+            this.inputStream = new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return replayed.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    return replayed.read(bytes, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    try {
+                        return replayed.available() == 0 && original.isFinished();
+                    } catch (IOException e) {
+                        return true;
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException("Lecture non bloquante non supportée");
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(inputStream,
+                    getCharacterEncoding() != null ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import org.slf4j.Logger;
+
+/**
+ * Ligne du journal d'accès. Ne contient jamais le corps ni les en-têtes de la requête.
+ *
+ * @param method La méthode HTTP
+ * @param path Le chemin, sans la query string, tokens de téléchargement tronqués
+ * @param status Le code de statut de la réponse
+ * @param bytes Les octets envoyés dans le corps de la réponse
+ * @param durationMs La durée de traitement en millisecondes
+ * @param userId L'identifiant de l'utilisateur authentifié, null pour une requête anonyme
+ */
+record AccessLogEntry(String method, String path, int status, long bytes, long durationMs, Long userId) {
+
+    /**
+     * Journalise l'entrée en paires clé-valeur : champs distincts en logs JSON,
+     * ligne clé=valeur en texte (%kvp, voir logback-spring.xml).
+     */
+    void log(Logger logger) {
+        logger.atInfo()
+                .addKeyValue("method", method)
+                .addKeyValue("path", path)
+                .addKeyValue("status", status)
+                .addKeyValue("bytes", bytes)
+                .addKeyValue("duration_ms", durationMs)
+                .addKeyValue("user", userId != null ? userId : "-")
+                .log("{} {} {}", method, path, status);
+    }
+}
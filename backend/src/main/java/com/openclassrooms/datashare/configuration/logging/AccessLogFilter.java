@@ -0,0 +1,229 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import com.openclassrooms.datashare.entities.User;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Journal d'accès structuré : méthode, chemin, statut, octets envoyés, durée et utilisateur.
+ * <p>
+ * Ni le corps ni les en-têtes de la requête ne sont lus : les mots de passe envoyés
+ * à POST /api/download/{token} n'apparaissent jamais dans les logs, et les tokens de téléchargement
+ * du chemin sont tronqués à leurs 8 premiers caractères.
+ * Les réponses 2xx sont échantillonnées (app.logging.access.sample-rate-2xx), les autres toujours journalisées.
+ * <p>
+ * Placé dans la chaîne Spring Security après SecurityContextHolderFilter, pour connaître l'utilisateur authentifié.
+ */
+@Component
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final String DOWNLOAD_PATH = "/api/download/";
+    private static final String OWNER_DOWNLOAD_PATH = DOWNLOAD_PATH + "owner/";
+    private static final String ARCHIVE = "archive";
+    private static final int TOKEN_PREFIX_LENGTH = 8;
+
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
+    @Value("${app.logging.access.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.logging.access.sample-rate-2xx:1.0}")
+    private double successSampleRate;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        CountingResponse countingResponse = new CountingResponse(response);
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, countingResponse);
+            failed = false;
+        } finally {
+            Long userId = currentUserId();
+            if (!failed && request.isAsyncStarted()) {
+                // Réponse streamée (archive ZIP) : journalisée à la fin du traitement asynchrone
+                request.getAsyncContext().addListener(new AsyncCompletionListener(request, countingResponse, start, userId));
+            } else {
+                record(request, countingResponse, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(),
+                        start, userId);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, CountingResponse response, int status, long start, Long userId) {
+        if (status >= 200 && status < 300 && !sampled()) {
+            return;
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        accessLogWriter.write(new AccessLogEntry(request.getMethod(), maskToken(request.getRequestURI()), status,
+                response.bytesWritten(), durationMs, userId));
+    }
+
+    /**
+     * Tronque le token de /api/download/{token} et /api/download/owner/{token} : le token complet
+     * donne accès au fichier et ne doit pas se retrouver dans les logs.
+     */
+    static String maskToken(String path) {
+        String prefix = path.startsWith(OWNER_DOWNLOAD_PATH) ? OWNER_DOWNLOAD_PATH
+                : path.startsWith(DOWNLOAD_PATH) ? DOWNLOAD_PATH
+                : null;
+        if (prefix == null) {
+            return path;
+        }
+        String token = path.substring(prefix.length());
+        if (token.equals(ARCHIVE) || token.length() <= TOKEN_PREFIX_LENGTH) {
+            return path;
+        }
+        return prefix + token.substring(0, TOKEN_PREFIX_LENGTH) + "...";
+    }
+
+    private boolean sampled() {
+        return successSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private final class AsyncCompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final CountingResponse response;
+        private final long start;
+        private final Long userId;
+
+        private AsyncCompletionListener(HttpServletRequest request, CountingResponse response, long start, Long userId) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+            this.userId = userId;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, response.getStatus(), start, userId);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // onComplete est appelé ensuite
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // onComplete est appelé ensuite
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Compte les octets écrits dans le corps de la réponse via getOutputStream().
+     * Pour les réponses écrites via getWriter(), l'en-tête Content-Length est utilisé s'il est présent.
+     */
+    static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private CountingOutputStream outputStream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        long bytesWritten() {
+            if (outputStream != null && outputStream.count > 0) {
+                return outputStream.count;
+            }
+            String contentLength = getHeader(HttpHeaders.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private volatile long count;
+
+        private CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
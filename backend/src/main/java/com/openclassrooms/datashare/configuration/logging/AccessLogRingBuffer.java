@@ -0,0 +1,73 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * File circulaire bornée, sans verrou, à producteurs multiples et consommateur unique.
+ * <p>
+ * Les threads de requête réservent une case par CAS sur la position d'écriture ;
+ * si la file est pleine, l'élément est refusé au lieu de bloquer la requête.
+ * Seul le thread d'écriture des logs appelle {@link #poll()}.
+ *
+ * @param <E> Le type des éléments
+ */
+final class AccessLogRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param requestedCapacity La capacité minimale, arrondie à la puissance de 2 supérieure
+     */
+    AccessLogRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("La capacité doit être positive: " + requestedCapacity);
+        }
+        this.capacity = requestedCapacity <= 2 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Ajoute un élément sans jamais bloquer.
+     *
+     * @return false si la file est pleine (l'élément est perdu)
+     */
+    boolean offer(E element) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        slots.lazySet((int) (position & mask), element);
+        return true;
+    }
+
+    /**
+     * Retire l'élément le plus ancien. Réservé au consommateur unique.
+     *
+     * @return L'élément, ou null si la file est vide (ou si l'élément suivant n'est pas encore publié)
+     */
+    E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = position + 1;
+        return element;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
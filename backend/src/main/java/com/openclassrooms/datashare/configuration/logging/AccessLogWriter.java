@@ -0,0 +1,97 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Écriture asynchrone du journal d'accès.
+ * <p>
+ * Les threads de requête déposent les entrées dans une {@link AccessLogRingBuffer} ;
+ * un thread dédié les vide vers le logger ACCESS_LOG (appender asynchrone, voir logback-spring.xml).
+ * Si la file est pleine, les entrées sont abandonnées et comptées plutôt que de ralentir les requêtes.
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+
+    public static final String LOGGER_NAME = "ACCESS_LOG";
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger(LOGGER_NAME);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AccessLogRingBuffer<AccessLogEntry> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public AccessLogWriter(@Value("${app.logging.access.buffer-size:8192}") int bufferSize) {
+        this.buffer = new AccessLogRingBuffer<>(bufferSize);
+        this.drainer = new Thread(this::drainLoop, "access-log-writer");
+        this.drainer.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        drainer.start();
+        log.info("Access log writer started (buffer={} entries)", buffer.capacity());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Dépose une entrée sans bloquer.
+     *
+     * @param entry L'entrée à journaliser
+     */
+    void write(AccessLogEntry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Le nombre d'entrées abandonnées depuis le démarrage (file pleine)
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                log.warn("Access log buffer full: {} entries dropped since startup", drops);
+                reportedDrops = drops;
+            }
+        }
+        drain();
+    }
+
+    int drain() {
+        int count = 0;
+        AccessLogEntry entry;
+        while ((entry = buffer.poll()) != null) {
+            entry.log(ACCESS_LOG);
+            count++;
+        }
+        return count;
+    }
+}
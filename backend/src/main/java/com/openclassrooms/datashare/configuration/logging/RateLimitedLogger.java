@@ -0,0 +1,85 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logger qui limite un événement répétitif à un message par fenêtre de temps.
+ * <p>
+ * Le premier événement d'une fenêtre est journalisé normalement ; les suivants sont seulement comptés.
+ * Le nombre d'événements supprimés est journalisé avec le premier événement de la fenêtre suivante
+ * ("42 événement(s) similaire(s) supprimé(s) (limite : 1 message / 10s)").
+ * Sans verrou : un compteur et un CAS par événement.
+ * <p>
+ * Une instance correspond à un type d'événement (ex. token invalide), à déclarer en constante.
+ */
+public final class RateLimitedLogger {
+
+    private final Logger logger;
+    private final Level level;
+    private final long windowNanos;
+    private final String windowLabel;
+    private final AtomicLong windowStart;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private RateLimitedLogger(Logger logger, Level level, Duration window) {
+        this.logger = logger;
+        this.level = level;
+        this.windowNanos = window.toNanos();
+        this.windowLabel = window.toMillis() % 1000 == 0 ? window.toSeconds() + "s" : window.toMillis() + "ms";
+        this.windowStart = new AtomicLong(System.nanoTime() - windowNanos);
+    }
+
+    /**
+     * @param logger Le logger de la classe
+     * @param window La durée de la fenêtre (au plus un message par fenêtre)
+     * @return Un logger limité au niveau WARN
+     */
+    public static RateLimitedLogger warn(Logger logger, Duration window) {
+        return new RateLimitedLogger(logger, Level.WARN, window);
+    }
+
+    /**
+     * @param logger Le logger de la classe
+     * @param window La durée de la fenêtre (au plus un message par fenêtre)
+     * @return Un logger limité au niveau INFO
+     */
+    public static RateLimitedLogger info(Logger logger, Duration window) {
+        return new RateLimitedLogger(logger, Level.INFO, window);
+    }
+
+    /**
+     * Journalise l'événement s'il est le premier de la fenêtre, le compte sinon.
+     *
+     * @param format Le message, au format SLF4J
+     * @param arguments Les arguments du message
+     */
+    public void log(String format, Object... arguments) {
+        if (!logger.isEnabledForLevel(level)) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            suppressed.incrementAndGet();
+            return;
+        }
+
+        logger.atLevel(level).log(format, arguments);
+        long count = suppressed.getAndSet(0);
+        if (count > 0) {
+            logger.atLevel(level).log("{} événement(s) similaire(s) supprimé(s) (limite : 1 message / {})", count, windowLabel);
+        }
+    }
+
+    /**
+     * @return Le nombre d'événements comptés mais pas encore signalés
+     */
+    long getSuppressedCount() {
+        return suppressed.get();
+    }
+}
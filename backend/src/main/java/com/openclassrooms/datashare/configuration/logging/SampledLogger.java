@@ -0,0 +1,57 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logger INFO échantillonné pour les événements de succès fréquents (téléchargement, upload réussi).
+ * <p>
+ * Seul un événement sur {@code rate} est journalisé (le premier, puis tous les {@code rate}),
+ * avec la clé sample_rate (visible en logs JSON). Si DEBUG est activé, tous les événements le sont.
+ */
+public final class SampledLogger {
+
+    private final Logger logger;
+    private final long rate;
+    private final AtomicLong counter = new AtomicLong();
+
+    private SampledLogger(Logger logger, long rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Le taux d'échantillonnage doit être positif: " + rate);
+        }
+        this.logger = logger;
+        this.rate = rate;
+    }
+
+    /**
+     * @param logger Le logger de la classe
+     * @param rate 1 événement journalisé sur rate
+     */
+    public static SampledLogger oneIn(Logger logger, long rate) {
+        return new SampledLogger(logger, rate);
+    }
+
+    /**
+     * Journalise l'événement s'il fait partie de l'échantillon.
+     *
+     * @param format Le message, au format SLF4J
+     * @param arguments Les arguments du message
+     */
+    public void info(String format, Object... arguments) {
+        if (logger.isDebugEnabled()) {
+            logger.info(format, arguments);
+            return;
+        }
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        if (counter.getAndIncrement() % rate == 0) {
+            if (rate > 1) {
+                logger.atInfo().addKeyValue("sample_rate", rate).log(format, arguments);
+            } else {
+                logger.info(format, arguments);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.datashare.configuration.security;
 
 import com.openclassrooms.datashare.entities.User;
+import com.openclassrooms.datashare.monitoring.jfr.JwtAuthenticationEvent;
 import com.openclassrooms.datashare.repository.UserRepository;
 import com.openclassrooms.datashare.service.JwtService;
 import jakarta.servlet.FilterChain;
@@ -36,9 +37,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
         
+        JwtAuthenticationEvent event = JwtAuthenticationEvent.start();
         try {
             final String jwt = authorizationHeader.substring(7);
             final String username = jwtService.extractUsername(jwt);
+            event.setUsername(username);
             
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 if (jwtService.isTokenValid(jwt, username)) {
@@ -54,13 +57,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         );
                         authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authToken);
+                        event.setOutcome(JwtAuthenticationEvent.AUTHENTICATED);
+                    } else {
+                        event.setOutcome(JwtAuthenticationEvent.UNKNOWN_USER);
                     }
+                } else {
+                    event.setOutcome(JwtAuthenticationEvent.INVALID_TOKEN);
                 }
             }
         } catch (Exception e) {
             // En cas d'erreur JWT (token invalide, expiré, malformé), 
             // on laisse la requête continuer sans authentification
             // Spring Security retournera 401 si l'endpoint nécessite une authentification
+            event.setOutcome(JwtAuthenticationEvent.ERROR);
+        } finally {
+            event.commit();
         }
         
         filterChain.doFilter(request, response);
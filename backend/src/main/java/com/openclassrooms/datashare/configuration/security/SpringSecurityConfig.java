@@ -1,5 +1,11 @@
 package com.openclassrooms.datashare.configuration.security;
 
+import com.openclassrooms.datashare.configuration.bulkhead.BulkheadFilter;
+import com.openclassrooms.datashare.configuration.download.DownloadConcurrencyFilter;
+import com.openclassrooms.datashare.configuration.download.DownloadRateLimitFilter;
+import com.openclassrooms.datashare.configuration.logging.AccessLogFilter;
+import com.openclassrooms.datashare.configuration.upload.UploadAdmissionFilter;
+import com.openclassrooms.datashare.monitoring.jfr.InstrumentedPasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -15,6 +21,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -31,6 +39,21 @@ public class SpringSecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private AccessLogFilter accessLogFilter;
+
+    @Autowired
+    private UploadAdmissionFilter uploadAdmissionFilter;
+
+    @Autowired
+    private DownloadConcurrencyFilter downloadConcurrencyFilter;
+
+    @Autowired
+    private BulkheadFilter bulkheadFilter;
+
+    @Autowired
+    private DownloadRateLimitFilter downloadRateLimitFilter;
+
     @Value("${cors.allowed-origins}")
     private String allowedOrigins;
 
@@ -49,7 +72,7 @@ public class SpringSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new InstrumentedPasswordEncoder(new BCryptPasswordEncoder());
     }
 
     @Bean
@@ -83,7 +106,16 @@ public class SpringSecurityConfig {
                         .requestMatchers("/api/files/**").authenticated()
                         .anyRequest().authenticated()
                 )
+                .addFilterAfter(accessLogFilter, SecurityContextHolderFilter.class)
+                // Limite par IP et par token des téléchargements publics : 429 avant toute file d'attente
+                .addFilterAfter(downloadRateLimitFilter, SecurityContextHolderFilter.class)
+                // Cloisons par classe de requêtes (threads et pool JDBC), avant tout accès base
+                .addFilterAfter(bulkheadFilter, SecurityContextHolderFilter.class)
+                // Délestage des téléchargements avant l'authentification JWT : un refus ne coûte aucun accès base
+                .addFilterBefore(downloadConcurrencyFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Après l'authentification JWT (quota par utilisateur), avant toute lecture du corps
+                .addFilterBefore(uploadAdmissionFilter, AuthorizationFilter.class)
                 .exceptionHandling(exceptionHandling -> exceptionHandling
                         .authenticationEntryPoint((request, response, authException) -> {
                             response.setStatus(401);
@@ -0,0 +1,27 @@
+package com.openclassrooms.datashare.configuration.upload;
+
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration de Tomcat pour le contrôle d'admission des uploads.
+ * <p>
+ * Par défaut, Tomcat répond 100 Continue dès réception des en-têtes, avant que l'application
+ * ait pu refuser la requête. Avec continueResponseTiming=onRead, la réponse 100 n'est envoyée
+ * qu'à la première lecture du corps, après {@link UploadAdmissionFilter}.
+ */
+@Configuration
+public class UploadAdmissionConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> continueResponseTimingCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractHttp11Protocol<?> protocol) {
+                protocol.setContinueResponseTiming("onRead");
+            }
+        });
+    }
+}
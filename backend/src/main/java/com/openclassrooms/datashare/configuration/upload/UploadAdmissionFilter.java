@@ -0,0 +1,258 @@
+package com.openclassrooms.datashare.configuration.upload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.entities.User;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import com.openclassrooms.datashare.repository.FileRepository;
+import com.openclassrooms.datashare.validation.MimeTypeValidator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Contrôle d'admission des uploads, avant la lecture du corps de la requête.
+ * <p>
+ * Sans ce filtre, un fichier trop gros ou bloqué n'est refusé qu'après que Spring
+ * a reçu et stocké tout le corps multipart. Ici, seuls les en-têtes sont inspectés :
+ * <ul>
+ *   <li>Content-Length au-delà de la taille maximale : 413</li>
+ *   <li>Corps non multipart, nom (X-File-Name) ou type (X-File-Type) annoncé bloqué : 415</li>
+ *   <li>Trop d'uploads simultanés, au total ou pour l'utilisateur ({@link UploadConcurrencyLimiter}) :
+ *       503 avec Retry-After</li>
+ *   <li>Quota de l'utilisateur dépassé par Content-Length : 413</li>
+ * </ul>
+ * Tomcat n'envoie la réponse 100 Continue qu'à la première lecture du corps
+ * (voir {@link UploadAdmissionConfig}) : un client qui envoie Expect: 100-continue reçoit le refus
+ * sans avoir transmis le fichier.
+ * <p>
+ * Les vérifications complètes (taille réelle, type détecté d'après le contenu) restent faites par FileService.
+ * Les requêtes non authentifiées passent : elles sont refusées en 401 par Spring Security.
+ */
+@Slf4j
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    /**
+     * Noms des fichiers envoyés, encodés en URL (encodeURIComponent) et séparés par des virgules.
+     */
+    public static final String FILE_NAME_HEADER = "X-File-Name";
+
+    /**
+     * Types MIME des fichiers envoyés, séparés par des virgules.
+     */
+    public static final String FILE_TYPE_HEADER = "X-File-Type";
+
+    private static final Set<String> UPLOAD_PATHS = Set.of("/api/files", "/api/files/batch");
+
+    // Marge pour les délimiteurs multipart et les champs du formulaire (expirationDays, password)
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+    private static final RateLimitedLogger REJECTED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
+    private final ObjectMapper objectMapper;
+    private final FileRepository fileRepository;
+    private final TransferMetrics transferMetrics;
+    private final UploadConcurrencyLimiter concurrencyLimiter;
+    private final boolean enabled;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+    private final long userQuota;
+    private final long retryAfterSeconds;
+
+    public UploadAdmissionFilter(ObjectMapper objectMapper,
+                                 FileRepository fileRepository,
+                                 TransferMetrics transferMetrics,
+                                 UploadConcurrencyLimiter concurrencyLimiter,
+                                 @Value("${app.upload.admission.enabled:true}") boolean enabled,
+                                 @Value("${app.file.max-size}") long maxFileSize,
+                                 @Value("${spring.servlet.multipart.max-request-size:1GB}") DataSize maxRequestSize,
+                                 @Value("${app.upload.admission.user-quota:0}") DataSize userQuota,
+                                 @Value("${app.upload.admission.retry-after:5s}") Duration retryAfter) {
+        this.objectMapper = objectMapper;
+        this.fileRepository = fileRepository;
+        this.transferMetrics = transferMetrics;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.enabled = enabled;
+        this.maxFileSize = maxFileSize;
+        this.maxRequestSize = maxRequestSize.toBytes();
+        this.userQuota = userQuota.toBytes();
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !UPLOAD_PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        User user = currentUser();
+        if (user == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long contentLength = request.getContentLengthLong();
+        Rejection rejection = checkHeaders(request, contentLength);
+        if (rejection != null) {
+            reject(response, rejection, user, contentLength);
+            return;
+        }
+
+        try (UploadConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(user.getId())) {
+            if (permit == null) {
+                reject(response, new Rejection(HttpStatus.SERVICE_UNAVAILABLE, TransferMetrics.REJECTED_OVERLOADED,
+                        "Too many uploads in progress, retry later"), user, contentLength);
+                return;
+            }
+            rejection = checkQuota(user, contentLength);
+            if (rejection != null) {
+                reject(response, rejection, user, contentLength);
+                return;
+            }
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Vérifie la taille annoncée, le type du corps et les fichiers annoncés.
+     *
+     * @return Le refus, null si la requête est admise
+     */
+    Rejection checkHeaders(HttpServletRequest request, long contentLength) {
+        boolean batch = request.getRequestURI().endsWith("/batch");
+        long limit = batch ? maxRequestSize : Math.min(maxFileSize + MULTIPART_OVERHEAD, maxRequestSize);
+        if (contentLength > limit) {
+            return new Rejection(HttpStatus.PAYLOAD_TOO_LARGE, TransferMetrics.REJECTED_TOO_LARGE,
+                    String.format("Request size %d exceeds maximum allowed size %d", contentLength, limit));
+        }
+
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            return new Rejection(HttpStatus.UNSUPPORTED_MEDIA_TYPE, TransferMetrics.REJECTED_UNSUPPORTED_TYPE,
+                    "Upload must be sent as multipart/form-data");
+        }
+
+        for (String filename : headerValues(request, FILE_NAME_HEADER)) {
+            String decoded = decode(filename);
+            if (MimeTypeValidator.hasBlockedExtension(decoded)) {
+                return new Rejection(HttpStatus.UNSUPPORTED_MEDIA_TYPE, TransferMetrics.REJECTED_UNSUPPORTED_TYPE,
+                        "File type not allowed: " + decoded);
+            }
+        }
+        for (String mimeType : headerValues(request, FILE_TYPE_HEADER)) {
+            if (MimeTypeValidator.isBlockedMimeType(mimeType)) {
+                return new Rejection(HttpStatus.UNSUPPORTED_MEDIA_TYPE, TransferMetrics.REJECTED_UNSUPPORTED_TYPE,
+                        "File type not allowed: " + mimeType.trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Vérifie que l'espace déjà occupé plus la taille annoncée ne dépasse pas le quota.
+     * Content-Length inclut l'enveloppe multipart : le contrôle est une estimation par excès.
+     *
+     * @return Le refus, null si le quota est respecté ou désactivé
+     */
+    private Rejection checkQuota(User user, long contentLength) {
+        if (userQuota <= 0 || contentLength < 0) {
+            return null;
+        }
+        long used = fileRepository.sumNonExpiredFileSizeByUserId(user.getId(), LocalDateTime.now());
+        if (used + contentLength > userQuota) {
+            return new Rejection(HttpStatus.PAYLOAD_TOO_LARGE, TransferMetrics.REJECTED_QUOTA,
+                    String.format("Storage quota exceeded: %d bytes used of %d", used, userQuota));
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Rejection rejection, User user, long contentLength)
+            throws IOException {
+        transferMetrics.uploadRejected(rejection.reason());
+        REJECTED_LOG.log("Upload rejected before body read: {} (userId={}, contentLength={})",
+                rejection.message(), user.getId(), contentLength);
+
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("error", rejection.status().getReasonPhrase());
+        body.put("message", rejection.message());
+        body.put("timestamp", LocalDateTime.now().toString());
+
+        response.setStatus(rejection.status().value());
+        // Le corps n'est pas lu : fermer la connexion plutôt que d'attendre sa fin
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        if (rejection.status() == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+
+    private static List<String> headerValues(HttpServletRequest request, String name) {
+        Enumeration<String> headers = request.getHeaders(name);
+        if (headers == null) {
+            return List.of();
+        }
+        return Collections.list(headers).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .filter(value -> !value.isBlank())
+                .toList();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.trim(), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return value.trim();
+        }
+    }
+
+    /**
+     * Refus d'admission.
+     *
+     * @param status Le statut HTTP renvoyé
+     * @param reason La raison, pour la métrique datashare.upload.rejected
+     * @param message Le message renvoyé au client
+     */
+    record Rejection(HttpStatus status, String reason, String message) {
+    }
+}
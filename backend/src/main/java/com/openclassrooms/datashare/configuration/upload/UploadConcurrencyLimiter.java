@@ -0,0 +1,122 @@
+package com.openclassrooms.datashare.configuration.upload;
+
+import com.openclassrooms.datashare.limiter.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite le nombre d'uploads simultanés, avec une part équitable par utilisateur.
+ * <p>
+ * La limite globale s'adapte à la latence de FileStorageService.storeFile : quand le disque
+ * ralentit, moins d'uploads sont admis. La latence est ramenée au Mio pour qu'un gros fichier
+ * ne soit pas pris pour un disque saturé.
+ * <p>
+ * Chaque utilisateur ayant un upload en cours a droit à limite / utilisateurs actifs places
+ * (au moins une) : un client qui ouvre des dizaines d'uploads ne bloque pas les autres.
+ * <p>
+ * Métriques : datashare.upload.concurrency.limit et datashare.upload.concurrency.inflight.
+ */
+@Component
+public class UploadConcurrencyLimiter {
+
+    private static final long MIB = 1024 * 1024;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Map<Long, AtomicInteger> inFlightByUser = new ConcurrentHashMap<>();
+
+    public UploadConcurrencyLimiter(MeterRegistry registry,
+                                    @Value("${app.upload.admission.min-concurrent:4}") int minConcurrent,
+                                    @Value("${app.upload.admission.initial-concurrent:16}") int initialConcurrent,
+                                    @Value("${app.upload.admission.max-concurrent:64}") int maxConcurrent) {
+        this.limiter = new AdaptiveConcurrencyLimiter(Math.min(minConcurrent, maxConcurrent),
+                initialConcurrent, maxConcurrent);
+
+        Gauge.builder("datashare.upload.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Uploads simultanés admis, d'après la latence du stockage")
+                .register(registry);
+        Gauge.builder("datashare.upload.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Uploads admis et en cours")
+                .register(registry);
+    }
+
+    /**
+     * Admet un upload de l'utilisateur si sa part et la limite globale le permettent.
+     *
+     * @param userId L'identifiant de l'utilisateur
+     * @return La place à fermer en fin d'upload, null si l'upload est refusé
+     */
+    public Permit tryAcquire(Long userId) {
+        AtomicInteger userInFlight = inFlightByUser.compute(userId, (id, count) -> {
+            AtomicInteger counter = count != null ? count : new AtomicInteger();
+            counter.incrementAndGet();
+            return counter;
+        });
+
+        int fairShare = Math.max(1, limiter.limit() / inFlightByUser.size());
+        if (userInFlight.get() > fairShare || !limiter.tryAcquire()) {
+            releaseUser(userId);
+            return null;
+        }
+        return new Permit(userId);
+    }
+
+    /**
+     * Prend en compte la durée d'écriture d'un fichier sur le stockage.
+     * <p>
+     * La durée est ramenée au Mio, sans arrondi, pour ne pas dépendre de la taille des fichiers.
+     * En dessous d'un Mio, les coûts fixes (création, renommage, fsync) dominent : la durée brute est
+     * retenue, sans quoi un petit fichier paraîtrait des centaines de fois plus lent par Mio.
+     *
+     * @param durationNanos La durée de storeFile
+     * @param bytes La taille du fichier
+     */
+    public void recordStoreLatency(long durationNanos, long bytes) {
+        limiter.onSample((long) (durationNanos * (double) MIB / Math.max(bytes, MIB)));
+    }
+
+    /**
+     * @return La limite actuelle
+     */
+    public int limit() {
+        return limiter.limit();
+    }
+
+    /**
+     * @return Le nombre d'uploads admis et en cours
+     */
+    public int inFlight() {
+        return limiter.inFlight();
+    }
+
+    private void releaseUser(Long userId) {
+        inFlightByUser.computeIfPresent(userId, (id, count) -> count.decrementAndGet() == 0 ? null : count);
+    }
+
+    /**
+     * Place d'un upload admis.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final Long userId;
+        private boolean released;
+
+        private Permit(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                limiter.release();
+                releaseUser(userId);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.openclassrooms.datashare.controller;
 
+import com.openclassrooms.datashare.configuration.download.DownloadConcurrencyLimiter;
+import com.openclassrooms.datashare.dto.ArchiveDownloadRequestDto;
 import com.openclassrooms.datashare.dto.FileDownloadRequestDto;
 import com.openclassrooms.datashare.dto.FileInfoResponseDto;
 import com.openclassrooms.datashare.entities.File;
@@ -7,7 +9,14 @@ import com.openclassrooms.datashare.entities.User;
 import com.openclassrooms.datashare.exception.AccessDeniedException;
 import com.openclassrooms.datashare.exception.FileExpiredException;
 import com.openclassrooms.datashare.repository.UserRepository;
+import com.openclassrooms.datashare.service.AcceptEncoding;
+import com.openclassrooms.datashare.service.ArchiveService;
+import com.openclassrooms.datashare.service.DownloadContent;
 import com.openclassrooms.datashare.service.DownloadService;
+import com.openclassrooms.datashare.streaming.AsyncDownloadWriter;
+import com.openclassrooms.datashare.streaming.BandwidthScheduler;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -15,8 +24,13 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Contrôleur pour les téléchargements publics de fichiers (endpoints non authentifiés)
@@ -29,9 +43,21 @@ public class DownloadController {
     @Autowired
     private DownloadService downloadService;
 
+    @Autowired
+    private ArchiveService archiveService;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AsyncDownloadWriter downloadWriter;
+
+    @Autowired
+    private BandwidthScheduler bandwidthScheduler;
+
+    @Autowired
+    private DownloadConcurrencyLimiter concurrencyLimiter;
+
     /**
      * GET /api/download/{token}
      * Récupère les informations publiques d'un fichier sans le télécharger
@@ -41,8 +67,51 @@ public class DownloadController {
      */
     @GetMapping("/{token}")
     public ResponseEntity<FileInfoResponseDto> getFileInfo(@PathVariable String token) {
-        FileInfoResponseDto fileInfo = downloadService.getFileInfo(token);
-        return ResponseEntity.ok(fileInfo);
+        long start = System.nanoTime();
+        try {
+            FileInfoResponseDto fileInfo = downloadService.getFileInfo(token);
+            return ResponseEntity.ok(fileInfo);
+        } finally {
+            concurrencyLimiter.recordLatency(start);
+        }
+    }
+
+    /**
+     * POST /api/download/archive
+     * Télécharge plusieurs fichiers partagés dans une archive ZIP générée à la volée
+     * 
+     * @param requestDto DTO contenant les tokens et les mots de passe des fichiers protégés
+     * @return Stream de l'archive ZIP (sans Content-Length, la taille n'étant pas connue à l'avance)
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(@RequestBody ArchiveDownloadRequestDto requestDto) {
+        // 1. Vérifier tous les fichiers avant d'envoyer le moindre octet
+        List<File> files = archiveService.resolvePublicEntries(requestDto);
+
+        // 2. Streamer l'archive
+        return buildArchiveResponse(files);
+    }
+
+    /**
+     * POST /api/download/owner/archive
+     * Télécharge plusieurs fichiers en tant que propriétaire dans une archive ZIP
+     * Pas besoin de mot de passe : seuls les fichiers de l'utilisateur sont acceptés
+     * 
+     * @param fileIds Identifiants des fichiers à inclure
+     * @param authentication Informations d'authentification JWT
+     * @return Stream de l'archive ZIP
+     * @throws AccessDeniedException Si l'utilisateur n'est pas authentifié
+     */
+    @PostMapping("/owner/archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchiveAsOwner(
+            @RequestBody List<UUID> fileIds,
+            Authentication authentication) {
+        
+        User user = userRepository.findByLogin(authentication.getName())
+                .orElseThrow(() -> new AccessDeniedException("Utilisateur non trouvé"));
+        
+        List<File> files = archiveService.resolveOwnerEntries(fileIds, user.getId());
+        return buildArchiveResponse(files);
     }
 
     /**
@@ -51,18 +120,30 @@ public class DownloadController {
      * 
      * @param token Token unique de téléchargement
      * @param requestDto DTO optionnel contenant le mot de passe
-     * @return Stream du fichier avec headers appropriés (Content-Type, Content-Disposition)
+     * @param acceptEncoding En-tête Accept-Encoding du client (fichier compressé envoyé tel quel si gzip est accepté)
+     * @return Stream du fichier avec headers appropriés (Content-Type, Content-Disposition),
+     *         null si le fichier est envoyé en E/S non bloquantes
      */
     @PostMapping("/{token}")
     public ResponseEntity<Resource> downloadFile(
             @PathVariable String token,
-            @RequestBody(required = false) FileDownloadRequestDto requestDto) {
+            @RequestBody(required = false) FileDownloadRequestDto requestDto,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
         // 1. Télécharger le fichier (avec vérification mot de passe si nécessaire)
-        Resource resource = downloadService.downloadFile(token, requestDto);
+        long start = System.nanoTime();
+        DownloadContent content;
+        try {
+            content = downloadService.openDownload(
+                    token, requestDto, AcceptEncoding.accepts(acceptEncoding, "gzip"));
+        } finally {
+            concurrencyLimiter.recordLatency(start);
+        }
         
-        // 2. Récupérer les métadonnées pour les headers
-        File file = downloadService.getFileByToken(token);
+        // 2. Les métadonnées pour les headers sont déjà chargées
+        File file = content.file();
         
         // 3. Construire les headers HTTP
         HttpHeaders headers = new HttpHeaders();
@@ -73,14 +154,11 @@ public class DownloadController {
                         .filename(file.getOriginalFilename())
                         .build()
         );
-        headers.setContentLength(file.getFileSize());
+        applyContentEncoding(headers, content);
         headers.setCacheControl("no-cache, no-store, must-revalidate");
         headers.add("X-File-Id", file.getId().toString());
         
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .headers(headers)
-                .body(resource);
+        return sendContent(content, headers, request, response);
     }
 
     /**
@@ -93,14 +171,18 @@ public class DownloadController {
      * 
      * @param token Token unique de téléchargement
      * @param authentication Informations d'authentification JWT (userId extrait automatiquement)
-     * @return Stream du fichier avec headers appropriés
+     * @param acceptEncoding En-tête Accept-Encoding du client
+     * @return Stream du fichier avec headers appropriés, null si le fichier est envoyé en E/S non bloquantes
      * @throws AccessDeniedException Si l'utilisateur n'est pas le propriétaire
      * @throws FileExpiredException Si le fichier a expiré
      */
     @GetMapping("/owner/{token}")
     public ResponseEntity<Resource> downloadFileAsOwner(
             @PathVariable String token,
-            Authentication authentication) {
+            Authentication authentication,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
         // 1. Extraire le login depuis le JWT (Authentication.getName() retourne le login)
         String login = authentication.getName();
@@ -111,21 +193,28 @@ public class DownloadController {
         Long userId = user.getId();
         
         // 3. Récupérer le fichier par token
-        File file = downloadService.getFileByToken(token);
-        
-        // 4. Vérifier que l'utilisateur est le propriétaire
-        if (!file.getUser().getId().equals(userId)) {
-            throw new AccessDeniedException("Vous n'êtes pas autorisé à télécharger ce fichier");
-        }
-        
-        // 5. Vérifier que le fichier n'est pas expiré
-        if (file.getExpirationDate().isBefore(LocalDateTime.now())) {
-            throw new FileExpiredException("Le fichier a expiré", file.getExpirationDate());
+        long start = System.nanoTime();
+        File file;
+        DownloadContent content;
+        try {
+            file = downloadService.getFileByToken(token);
+
+            // 4. Vérifier que l'utilisateur est le propriétaire
+            if (!file.getUser().getId().equals(userId)) {
+                throw new AccessDeniedException("Vous n'êtes pas autorisé à télécharger ce fichier");
+            }
+
+            // 5. Vérifier que le fichier n'est pas expiré
+            if (file.getExpirationDate().isBefore(LocalDateTime.now())) {
+                throw new FileExpiredException("Le fichier a expiré", file.getExpirationDate());
+            }
+
+            // 6. Télécharger le fichier sans vérifier le mot de passe (méthode spéciale propriétaire)
+            content = downloadService.openDownloadAsOwner(token, AcceptEncoding.accepts(acceptEncoding, "gzip"));
+        } finally {
+            concurrencyLimiter.recordLatency(start);
         }
         
-        // 6. Télécharger le fichier sans vérifier le mot de passe (méthode spéciale propriétaire)
-        Resource resource = downloadService.downloadFileAsOwner(token);
-        
         // 7. Construire les headers HTTP
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
@@ -135,13 +224,69 @@ public class DownloadController {
                         .filename(file.getOriginalFilename())
                         .build()
         );
-        headers.setContentLength(file.getFileSize());
+        applyContentEncoding(headers, content);
         headers.setCacheControl("no-cache, no-store, must-revalidate");
         headers.add("X-File-Id", file.getId().toString());
         headers.add("X-Owner-Download", "true"); // Indicateur que c'est un download propriétaire
         
+        return sendContent(content, headers, request, response);
+    }
+
+    /**
+     * Envoie le contenu d'un téléchargement.
+     * Par défaut le fichier est écrit en E/S non bloquantes (AsyncDownloadWriter) : un client lent
+     * n'immobilise pas de thread Tomcat. Les requêtes Range restent servies par Spring MVC.
+     * Dans les deux cas, le débit est limité par le BandwidthScheduler (global, propriétaire, lien).
+     *
+     * @return La réponse à écrire par Spring MVC, null si l'envoi est déjà démarré
+     */
+    private ResponseEntity<Resource> sendContent(DownloadContent content, HttpHeaders headers,
+                                                 HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!downloadWriter.supports(request)) {
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(bandwidthScheduler.throttle(content.resource(), content.file()));
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        downloadWriter.write(request, response, content);
+        return null;
+    }
+
+    /**
+     * Positionne Content-Length et, pour un contenu négocié selon Accept-Encoding, Content-Encoding et Vary.
+     * Content-Length est la taille effectivement envoyée (compressée si le contenu est transmis compressé).
+     */
+    private void applyContentEncoding(HttpHeaders headers, DownloadContent content) {
+        headers.setContentLength(content.contentLength());
+        if (content.contentEncoding() != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, content.contentEncoding());
+        }
+        if (content.varyByEncoding()) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+    }
+
+    /**
+     * Construit la réponse streamée d'une archive ZIP.
+     * L'archive est écrite directement dans le flux de réponse, hors du thread Tomcat.
+     */
+    private ResponseEntity<StreamingResponseBody> buildArchiveResponse(List<File> files) {
+        String archiveName = "datashare-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".zip";
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(
+                org.springframework.http.ContentDisposition
+                        .attachment()
+                        .filename(archiveName)
+                        .build()
+        );
+        headers.setCacheControl("no-cache, no-store, must-revalidate");
+        
+        StreamingResponseBody body = outputStream -> archiveService.writeArchive(files, outputStream);
         return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
                 .headers(headers)
-                .body(resource);
+                .body(body);
     }
 }
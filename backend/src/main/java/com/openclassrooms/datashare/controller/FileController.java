@@ -1,10 +1,12 @@
 package com.openclassrooms.datashare.controller;
 
+import com.openclassrooms.datashare.dto.FileBatchUploadResponseDto;
 import com.openclassrooms.datashare.dto.FileListResponseDto;
 import com.openclassrooms.datashare.dto.FileUploadRequestDto;
 import com.openclassrooms.datashare.dto.FileUploadResponseDto;
 import com.openclassrooms.datashare.entities.User;
 import com.openclassrooms.datashare.service.FileService;
+import com.openclassrooms.datashare.service.FileStorageService;
 import com.openclassrooms.datashare.validation.MimeTypeValidator;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -26,6 +29,7 @@ import java.util.UUID;
  * Endpoints :
  * - GET /api/files : Liste paginée des fichiers de l'utilisateur
  * - POST /api/files : Upload d'un fichier avec authentification JWT
+ * - POST /api/files/batch : Upload d'un lot de fichiers en une seule requête
  * - DELETE /api/files/{fileId} : Suppression d'un fichier
  * <p>
  * Sécurité : Tous les endpoints requièrent une authentification JWT valide.
@@ -142,6 +146,11 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", e.getMessage()));
                     
+        } catch (FileStorageService.InsufficientStorageException e) {
+            log.warn("Insufficient storage: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
+                    .body(Map.of("error", e.getMessage()));
+                    
         } catch (IOException e) {
             log.error("Storage error during file upload", e);
             return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
@@ -154,6 +163,89 @@ public class FileController {
         }
     }
 
+    /**
+     * Upload un lot de fichiers partageant les mêmes métadonnées.
+     * <p>
+     * Authentification requise via JWT.
+     * Content-Type: multipart/form-data, une part "files" par fichier.
+     * Tous les fichiers sont validés avant stockage : si l'un est refusé, aucun n'est conservé.
+     * 
+     * @param files Les fichiers à uploader (required)
+     * @param request Les paramètres d'upload communs (expirationDays, password)
+     * @param userDetails L'utilisateur authentifié extrait du JWT
+     * @return 201 Created avec FileBatchUploadResponseDto
+     */
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ResponseEntity<?> uploadFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @Valid @ModelAttribute FileUploadRequestDto request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        try {
+            // Extraire User depuis UserDetails
+            if (!(userDetails instanceof User)) {
+                log.error("UserDetails is not an instance of User");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", "Authentication error"));
+            }
+            
+            User user = (User) userDetails;
+            log.info("Batch upload request of {} files from user: {} (id={})", files.size(), user.getLogin(), user.getId());
+            
+            // Appeler FileService.uploadFiles()
+            FileBatchUploadResponseDto response = fileService.uploadFiles(files, request, user);
+            
+            // Retourner 201 Created avec FileBatchUploadResponseDto
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            
+        } catch (FileService.BatchSizeExceededException e) {
+            log.warn("Invalid batch size: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (FileService.FileSizeExceededException e) {
+            log.warn("File size exceeded: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (FileService.EmptyFileException e) {
+            log.warn("Empty file upload attempt: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (FileService.InvalidExpirationException e) {
+            log.warn("Invalid expiration: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (FileService.WeakPasswordException e) {
+            log.warn("Weak password: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (MimeTypeValidator.InvalidMimeTypeException e) {
+            log.warn("Invalid MIME type: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (FileStorageService.InsufficientStorageException e) {
+            log.warn("Insufficient storage: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
+                    .body(Map.of("error", e.getMessage()));
+                    
+        } catch (IOException e) {
+            log.error("Storage error during batch upload", e);
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE)
+                    .body(Map.of("error", "Insufficient storage or I/O error"));
+                    
+        } catch (Exception e) {
+            log.error("Unexpected error during batch upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "An unexpected error occurred"));
+        }
+    }
+
     /**
      * Supprime un fichier de l'utilisateur.
      * <p>
@@ -0,0 +1,24 @@
+package com.openclassrooms.datashare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO pour la requête de téléchargement groupé (endpoint POST /api/download/archive).
+ *
+ * Contient :
+ * - La liste des tokens des fichiers à inclure dans l'archive ZIP
+ * - Les mots de passe des fichiers protégés, indexés par token
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveDownloadRequestDto {
+    private List<String> tokens;
+    private Map<String, String> passwords = new HashMap<>();
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.datashare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO pour la réponse de l'upload par lot (endpoint POST /api/files/batch).
+ *
+ * Contient :
+ * - Les fichiers uploadés avec leur lien de téléchargement, dans l'ordre d'envoi
+ * - Le nombre de fichiers et la taille totale du lot
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBatchUploadResponseDto {
+    private List<FileUploadResponseDto> files;
+    private Integer count;
+    private Long totalSize;
+}
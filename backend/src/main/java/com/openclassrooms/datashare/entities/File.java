@@ -56,6 +56,16 @@ public class File {
     @Column(name = "password_hash", length = 60)
     private String passwordHash;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_codec", length = 20)
+    private StorageCodec storageCodec;
+
+    @Column(name = "segment_offset")
+    private Long segmentOffset;
+
+    @Column(name = "segment_length")
+    private Long segmentLength;
+
     @NotNull
     @Column(name = "expiration_date", nullable = false)
     private LocalDateTime expirationDate;
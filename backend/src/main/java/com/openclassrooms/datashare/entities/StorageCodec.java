@@ -0,0 +1,73 @@
+package com.openclassrooms.datashare.entities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codec appliqué au contenu d'un fichier sur le stockage.
+ * <p>
+ * GZIP est un flux deflate encapsulé : il peut être décompressé à la lecture,
+ * ou transmis tel quel au client avec l'en-tête {@code Content-Encoding: gzip}.
+ */
+public enum StorageCodec {
+    NONE(null),
+    GZIP("gzip");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String contentEncoding;
+
+    StorageCodec(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return La valeur HTTP Content-Encoding équivalente, ou null si le contenu est brut
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Encapsule un flux d'écriture pour encoder le contenu.
+     *
+     * @param raw Le flux vers le fichier stocké
+     * @param level Le niveau de compression (1-9), ignoré pour NONE
+     * @return Le flux à utiliser pour écrire le contenu original
+     * @throws IOException Si l'en-tête ne peut pas être écrit
+     */
+    public OutputStream encode(OutputStream raw, int level) throws IOException {
+        if (this == NONE) {
+            return raw;
+        }
+        return new GZIPOutputStream(raw, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Encapsule un flux de lecture pour décoder le contenu stocké.
+     *
+     * @param raw Le flux depuis le fichier stocké
+     * @return Le flux du contenu original
+     * @throws IOException Si l'en-tête est invalide
+     */
+    public InputStream decode(InputStream raw) throws IOException {
+        if (this == NONE) {
+            return raw;
+        }
+        return new GZIPInputStream(raw, BUFFER_SIZE);
+    }
+
+    /**
+     * Retourne le codec d'un fichier, NONE pour les fichiers stockés avant la compression.
+     */
+    public static StorageCodec orNone(StorageCodec codec) {
+        return codec != null ? codec : NONE;
+    }
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.datashare.exception;
+
+/**
+ * Exception levée lorsqu'une demande d'archive est vide ou contient trop de fichiers.
+ * 
+ * Retourne un HTTP 400 Bad Request.
+ */
+public class InvalidArchiveRequestException extends RuntimeException {
+    
+    public InvalidArchiveRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,130 @@
+package com.openclassrooms.datashare.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limite de concurrence adaptative, ajustée d'après la latence observée (algorithme à gradient).
+ * <p>
+ * Deux moyennes mobiles de la latence sont suivies : une longue (la latence "normale")
+ * et une courte (la latence actuelle). Leur rapport donne le gradient :
+ * <ul>
+ *   <li>latence stable (gradient 1) : la limite augmente de sa racine carrée à chaque mesure</li>
+ *   <li>latence en hausse (gradient &lt; 1) : la limite diminue, jusqu'à la moitié à chaque mesure</li>
+ * </ul>
+ * La limite ne grandit que si elle est réellement utilisée : tant que moins de la moitié des places
+ * sont prises, une latence basse ne dit rien de la capacité réelle.
+ * <p>
+ * La classe ne dépend pas de Spring : chaque point d'entrée protégé crée son instance
+ * et lui transmet ses mesures.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Latence tolérée au-dessus de la normale avant de réduire la limite
+    private static final double TOLERANCE = 1.5;
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    // Poids de la nouvelle limite calculée face à l'ancienne, pour lisser les variations
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    /**
+     * @param minLimit La limite plancher, jamais franchie même si la latence explose
+     * @param initialLimit La limite de départ, avant toute mesure
+     * @param maxLimit La limite plafond
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid concurrency bounds: min=%d, max=%d", minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Prend une place si la limite n'est pas atteinte.
+     *
+     * @return true si la place est prise, à rendre par {@link #release()}
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Rend une place prise par {@link #tryAcquire()}.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Prend en compte la latence d'une opération protégée et recalcule la limite.
+     *
+     * @param rttNanos La durée de l'opération, en nanosecondes
+     */
+    public void onSample(long rttNanos) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (longRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                return;
+            }
+            shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+            longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+
+            // Retour au calme après une charge durable : la latence actuelle est retombée bien sous
+            // la latence "normale", gonflée par la période de charge ; celle-ci redescend plus vite
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+
+            double current = limit;
+            if (inFlight.get() < current / 2) {
+                return;
+            }
+
+            double gradient = Math.clamp(TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+            double target = current * gradient + Math.sqrt(current);
+            double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+            limit = Math.clamp(next, minLimit, maxLimit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return La limite actuelle
+     */
+    public int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return Le nombre de places prises
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,140 @@
+package com.openclassrooms.datashare.limiter;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limiteur de débit par clé (adresse IP, token...), à mémoire bornée.
+ * <p>
+ * Chaque clé a son seau à jetons, réduit à un seul long : l'instant théorique où le seau
+ * sera plein (algorithme GCRA). Le remplissage et la consommation se font par compareAndSet,
+ * sans verrou.
+ * <p>
+ * Les seaux sont répartis en segments, chacun étant une table LRU de taille bornée protégée par
+ * son propre verrou : deux clés de segments différents ne se bloquent jamais. Quand un segment
+ * est plein, le seau le moins récemment utilisé est oublié ; une clé évincée repart avec un seau plein.
+ */
+public class StripedRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int burst;
+    private final Stripe[] stripes;
+
+    /**
+     * @param permitsPerMinute Le débit durable autorisé par clé
+     * @param burst Le nombre de requêtes acceptées d'affilée, seau plein
+     * @param maxEntries Le nombre maximal de clés suivies
+     * @param stripes Le nombre de segments (arrondi à la puissance de deux supérieure)
+     */
+    public StripedRateLimiter(int permitsPerMinute, int burst, int maxEntries, int stripes) {
+        if (permitsPerMinute < 1 || burst < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid rate limit: %d/min, burst %d", permitsPerMinute, burst));
+        }
+        this.emissionIntervalNanos = Duration.ofMinutes(1).toNanos() / permitsPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.burst = burst;
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes));
+        if (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        int perStripe = Math.max(1, maxEntries / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Consomme un jeton du seau de la clé.
+     *
+     * @param key La clé (adresse IP, token...)
+     * @return 0 si la requête est acceptée, sinon le délai avant qu'un jeton soit disponible, en nanosecondes
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Consomme plusieurs jetons du seau de la clé, tous ou aucun.
+     * Une requête ne coûte jamais plus qu'un seau plein : elle reste possible une fois le seau rempli.
+     *
+     * @param key La clé (adresse IP, token...)
+     * @param permits Le nombre de jetons demandés
+     * @return 0 si la requête est acceptée, sinon le délai avant que les jetons soient disponibles, en nanosecondes
+     */
+    public long tryAcquire(String key, int permits) {
+        long cost = emissionIntervalNanos * Math.clamp(permits, 1, burst);
+        AtomicLong theoreticalArrival = stripeFor(key).bucket(key);
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long start = current - now > 0 ? current : now;
+            long excess = start + cost - emissionIntervalNanos - now - burstToleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + cost)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de clés actuellement suivies
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Segment de seaux : table LRU bornée.
+     */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, AtomicLong> buckets;
+
+        Stripe(int capacity) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AtomicLong> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        AtomicLong bucket(String key) {
+            lock.lock();
+            try {
+                // Un nouveau seau est plein : son instant théorique est maintenant
+                return buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return buckets.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
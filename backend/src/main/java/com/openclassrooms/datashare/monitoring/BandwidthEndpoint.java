@@ -0,0 +1,28 @@
+package com.openclassrooms.datashare.monitoring;
+
+import com.openclassrooms.datashare.streaming.BandwidthScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint actuator /actuator/bandwidth : débits de téléchargement en cours.
+ * <p>
+ * Débit global, téléchargements en attente de bande passante, et les propriétaires
+ * et liens les plus actifs (seul le début du token de téléchargement est exposé).
+ */
+@Component
+@Endpoint(id = "bandwidth")
+@RequiredArgsConstructor
+public class BandwidthEndpoint {
+
+    private static final int TOP = 20;
+
+    private final BandwidthScheduler bandwidthScheduler;
+
+    @ReadOperation
+    public BandwidthScheduler.Snapshot bandwidth() {
+        return bandwidthScheduler.snapshot(TOP);
+    }
+}
@@ -0,0 +1,300 @@
+package com.openclassrooms.datashare.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métriques métier des transferts de fichiers, exportées par Actuator (/actuator/prometheus).
+ * <p>
+ * - datashare.upload.stage : durée de chaque étape de l'upload (tags stage, mode)
+ * - datashare.upload.bytes : taille des fichiers uploadés
+ * - datashare.upload.rejected : uploads refusés avant lecture du corps (tag reason)
+ * - datashare.download.ttfb : délai entre le début de la requête et l'envoi du premier octet
+ * - datashare.download.duration / bytes / throughput : durée, volume et débit de chaque téléchargement
+ * - datashare.download.outcome : issue des téléchargements (ok, not_found, expired, unauthorized, overloaded, rate_limited)
+ * - datashare.transfers.active : transferts en cours (tag direction)
+ */
+@Component
+public class TransferMetrics {
+
+    public static final String STAGE_VALIDATION = "validation";
+    public static final String STAGE_TOKEN = "token";
+    public static final String STAGE_HASHING = "hashing";
+    public static final String STAGE_STORAGE = "storage";
+    public static final String STAGE_DATABASE = "database";
+
+    public static final String MODE_SINGLE = "single";
+    public static final String MODE_BATCH = "batch";
+
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_NOT_FOUND = "not_found";
+    public static final String OUTCOME_EXPIRED = "expired";
+    public static final String OUTCOME_UNAUTHORIZED = "unauthorized";
+    public static final String OUTCOME_OVERLOADED = "overloaded";
+    public static final String OUTCOME_RATE_LIMITED = "rate_limited";
+
+    public static final String REJECTED_TOO_LARGE = "too_large";
+    public static final String REJECTED_QUOTA = "quota";
+    public static final String REJECTED_UNSUPPORTED_TYPE = "unsupported_type";
+    public static final String REJECTED_OVERLOADED = "overloaded";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger activeDownloads = new AtomicInteger();
+
+    private final DistributionSummary uploadBytes;
+    private final Timer downloadTtfb;
+    private final Timer downloadDuration;
+    private final DistributionSummary downloadBytes;
+    private final DistributionSummary downloadThroughput;
+
+    public TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        Gauge.builder("datashare.transfers.active", activeUploads, AtomicInteger::get)
+                .description("Transferts en cours")
+                .tag("direction", "upload")
+                .register(registry);
+        Gauge.builder("datashare.transfers.active", activeDownloads, AtomicInteger::get)
+                .description("Transferts en cours")
+                .tag("direction", "download")
+                .register(registry);
+
+        this.uploadBytes = DistributionSummary.builder("datashare.upload.bytes")
+                .description("Taille des fichiers uploadés")
+                .baseUnit("bytes")
+                .register(registry);
+        this.downloadTtfb = Timer.builder("datashare.download.ttfb")
+                .description("Délai avant l'envoi du premier octet d'un téléchargement")
+                .register(registry);
+        this.downloadDuration = Timer.builder("datashare.download.duration")
+                .description("Durée totale d'un téléchargement, du début de la requête au dernier octet")
+                .register(registry);
+        this.downloadBytes = DistributionSummary.builder("datashare.download.bytes")
+                .description("Octets envoyés par téléchargement")
+                .baseUnit("bytes")
+                .register(registry);
+        this.downloadThroughput = DistributionSummary.builder("datashare.download.throughput")
+                .description("Débit de chaque téléchargement")
+                .baseUnit("bytes_per_second")
+                .register(registry);
+    }
+
+    /**
+     * Démarre la mesure d'un upload : le transfert est compté comme actif jusqu'à la fermeture du timer.
+     *
+     * @param mode MODE_SINGLE ou MODE_BATCH
+     * @return Le timer des étapes, à fermer en fin d'upload (try-with-resources)
+     */
+    public UploadTimer startUpload(String mode) {
+        activeUploads.incrementAndGet();
+        return new UploadTimer(mode);
+    }
+
+    /**
+     * Compte l'issue d'un téléchargement.
+     *
+     * @param outcome OUTCOME_*
+     */
+    public void downloadOutcome(String outcome) {
+        Counter.builder("datashare.download.outcome")
+                .description("Issue des téléchargements")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Compte un upload refusé par le contrôle d'admission.
+     *
+     * @param reason REJECTED_*
+     */
+    public void uploadRejected(String reason) {
+        Counter.builder("datashare.upload.rejected")
+                .description("Uploads refusés avant lecture du corps")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Instrumente le contenu d'un téléchargement : TTFB au premier octet lu,
+     * volume, durée et débit à la fermeture du flux.
+     *
+     * @param resource Le contenu envoyé au client
+     * @param requestStartNanos Le début du traitement de la requête (System.nanoTime())
+     * @return Une ressource équivalente dont le flux est mesuré
+     */
+    public Resource meterDownload(Resource resource, long requestStartNanos) {
+        return new MeteredResource(resource, requestStartNanos);
+    }
+
+    /**
+     * Mesure des étapes successives d'un upload : chaque appel à {@link #stage}
+     * enregistre le temps écoulé depuis l'étape précédente.
+     */
+    public final class UploadTimer implements AutoCloseable {
+
+        private final String mode;
+        private long stageStart = System.nanoTime();
+        private long uploadedBytes;
+
+        private UploadTimer(String mode) {
+            this.mode = mode;
+        }
+
+        /**
+         * Enregistre la durée de l'étape qui vient de se terminer.
+         *
+         * @param stage L'étape (STAGE_*)
+         */
+        public void stage(String stage) {
+            long now = System.nanoTime();
+            Timer.builder("datashare.upload.stage")
+                    .description("Durée de chaque étape de l'upload")
+                    .tag("stage", stage)
+                    .tag("mode", mode)
+                    .register(registry)
+                    .record(now - stageStart, TimeUnit.NANOSECONDS);
+            stageStart = now;
+        }
+
+        /**
+         * Marque l'upload comme réussi.
+         *
+         * @param bytes La taille totale des fichiers uploadés
+         */
+        public void completed(long bytes) {
+            this.uploadedBytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            activeUploads.decrementAndGet();
+            if (uploadedBytes > 0) {
+                uploadBytes.record(uploadedBytes);
+            }
+        }
+    }
+
+    /**
+     * Ressource déléguée dont chaque flux ouvert est mesuré.
+     * getFile() n'est volontairement pas délégué : l'envoi passe toujours par getInputStream().
+     */
+    private final class MeteredResource extends AbstractResource {
+
+        private final Resource delegate;
+        private final long requestStartNanos;
+
+        private MeteredResource(Resource delegate, long requestStartNanos) {
+            this.delegate = delegate;
+            this.requestStartNanos = requestStartNanos;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new MeteredInputStream(delegate.getInputStream(), requestStartNanos);
+        }
+
+        @Override
+        public boolean exists() {
+            return delegate.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return delegate.isReadable();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return delegate.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return delegate.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return delegate.getDescription();
+        }
+    }
+
+    private final class MeteredInputStream extends FilterInputStream {
+
+        private final long requestStartNanos;
+        private long bytes;
+        private boolean firstByteSeen;
+        private boolean closed;
+
+        private MeteredInputStream(InputStream in, long requestStartNanos) {
+            super(in);
+            this.requestStartNanos = requestStartNanos;
+            activeDownloads.incrementAndGet();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                onRead(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                onRead(read);
+            }
+            return read;
+        }
+
+        private void onRead(int read) {
+            if (!firstByteSeen) {
+                firstByteSeen = true;
+                downloadTtfb.record(System.nanoTime() - requestStartNanos, TimeUnit.NANOSECONDS);
+            }
+            bytes += read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    activeDownloads.decrementAndGet();
+
+                    long elapsed = System.nanoTime() - requestStartNanos;
+                    downloadDuration.record(elapsed, TimeUnit.NANOSECONDS);
+                    downloadBytes.record(bytes);
+                    if (bytes > 0 && elapsed > 0) {
+                        downloadThroughput.record(bytes * 1e9 / elapsed);
+                    }
+                }
+            }
+        }
+    }
+}
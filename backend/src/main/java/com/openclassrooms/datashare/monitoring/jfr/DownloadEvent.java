@@ -0,0 +1,62 @@
+package com.openclassrooms.datashare.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * Événement JFR de la préparation d'un téléchargement : recherche du fichier,
+ * vérifications (expiration, mot de passe) et ouverture du contenu.
+ * <p>
+ * Seul le début du token est enregistré : un enregistrement JFR ne doit pas
+ * permettre de reconstituer un lien de téléchargement.
+ */
+@Name("datashare.Download")
+@Label("Download")
+@Category({"DataShare", "Download"})
+@Description("Préparation d'un téléchargement par DownloadService")
+@StackTrace(false)
+@Setter
+public class DownloadEvent extends jdk.jfr.Event {
+
+    private static final int TOKEN_PREFIX_LENGTH = 8;
+
+    @Label("Token Prefix")
+    private String tokenPrefix;
+
+    @Label("Owner")
+    @Description("Téléchargement par le propriétaire (sans mot de passe)")
+    private boolean owner;
+
+    @Label("Content Length")
+    @DataAmount
+    private long contentLength;
+
+    @Label("Content Encoding")
+    private String contentEncoding;
+
+    @Label("Outcome")
+    @Description("ok, ou le nom de l'exception levée")
+    private String outcome;
+
+    /**
+     * Crée et démarre un événement : la durée est mesurée jusqu'à {@link #commit()}.
+     *
+     * @param token Le token de téléchargement
+     * @param owner true pour un téléchargement propriétaire
+     * @return L'événement démarré
+     */
+    public static DownloadEvent start(String token, boolean owner) {
+        DownloadEvent event = new DownloadEvent();
+        event.tokenPrefix = token != null && token.length() > TOKEN_PREFIX_LENGTH
+                ? token.substring(0, TOKEN_PREFIX_LENGTH)
+                : token;
+        event.owner = owner;
+        event.begin();
+        return event;
+    }
+}
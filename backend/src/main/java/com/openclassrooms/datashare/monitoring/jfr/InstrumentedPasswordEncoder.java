@@ -0,0 +1,43 @@
+package com.openclassrooms.datashare.monitoring.jfr;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Encodeur de mots de passe qui émet un {@link PasswordHashEvent} pour chaque appel
+ * à l'encodeur délégué.
+ */
+public class InstrumentedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    public InstrumentedPasswordEncoder(PasswordEncoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        PasswordHashEvent event = PasswordHashEvent.start(PasswordHashEvent.ENCODE);
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        PasswordHashEvent event = PasswordHashEvent.start(PasswordHashEvent.MATCHES);
+        try {
+            boolean matched = delegate.matches(rawPassword, encodedPassword);
+            event.setMatched(matched);
+            return matched;
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,48 @@
+package com.openclassrooms.datashare.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import lombok.Setter;
+
+/**
+ * Événement JFR de l'authentification d'une requête par son token JWT
+ * (parsing, vérification de signature et chargement de l'utilisateur).
+ * <p>
+ * Émis pour chaque requête authentifiée : seuil par défaut de 1 ms.
+ * Le token lui-même n'est jamais enregistré.
+ */
+@Name("datashare.JwtAuthentication")
+@Label("JWT Authentication")
+@Category({"DataShare", "Security"})
+@Description("Authentification d'une requête par JwtAuthenticationFilter")
+@StackTrace(false)
+@Threshold("1 ms")
+@Setter
+public class JwtAuthenticationEvent extends jdk.jfr.Event {
+
+    public static final String AUTHENTICATED = "authenticated";
+    public static final String INVALID_TOKEN = "invalid_token";
+    public static final String UNKNOWN_USER = "unknown_user";
+    public static final String ERROR = "error";
+
+    @Label("Username")
+    private String username;
+
+    @Label("Outcome")
+    private String outcome;
+
+    /**
+     * Crée et démarre un événement : la durée est mesurée jusqu'à {@link #commit()}.
+     *
+     * @return L'événement démarré
+     */
+    public static JwtAuthenticationEvent start() {
+        JwtAuthenticationEvent event = new JwtAuthenticationEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,42 @@
+package com.openclassrooms.datashare.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * Événement JFR d'un calcul BCrypt (hachage ou vérification d'un mot de passe).
+ */
+@Name("datashare.PasswordHash")
+@Label("Password Hash")
+@Category({"DataShare", "Security"})
+@Description("Appel à l'encodeur de mots de passe BCrypt")
+@StackTrace(false)
+@Setter
+public class PasswordHashEvent extends jdk.jfr.Event {
+
+    public static final String ENCODE = "encode";
+    public static final String MATCHES = "matches";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Matched")
+    private boolean matched;
+
+    /**
+     * Crée et démarre un événement : la durée est mesurée jusqu'à {@link #commit()}.
+     *
+     * @param operation ENCODE ou MATCHES
+     * @return L'événement démarré
+     */
+    public static PasswordHashEvent start(String operation) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+}
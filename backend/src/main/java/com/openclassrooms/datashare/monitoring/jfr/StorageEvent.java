@@ -0,0 +1,58 @@
+package com.openclassrooms.datashare.monitoring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * Événement JFR d'une opération sur le stockage de fichiers (écriture, lecture, suppression).
+ */
+@Name("datashare.Storage")
+@Label("Storage Operation")
+@Category({"DataShare", "Storage"})
+@Description("Opération de FileStorageService sur le système de fichiers")
+@StackTrace(false)
+@Setter
+public class StorageEvent extends jdk.jfr.Event {
+
+    public static final String STORE = "store";
+    public static final String LOAD = "load";
+    public static final String DELETE = "delete";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("File Path")
+    private String filepath;
+
+    @Label("Content Size")
+    @DataAmount
+    private long contentSize;
+
+    @Label("Stored Size")
+    @DataAmount
+    private long storedSize;
+
+    @Label("Codec")
+    private String codec;
+
+    @Label("Success")
+    private boolean success;
+
+    /**
+     * Crée et démarre un événement : la durée est mesurée jusqu'à {@link #commit()}.
+     *
+     * @param operation STORE, LOAD ou DELETE
+     * @return L'événement démarré
+     */
+    public static StorageEvent start(String operation) {
+        StorageEvent event = new StorageEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+}
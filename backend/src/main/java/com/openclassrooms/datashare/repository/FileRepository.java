@@ -4,11 +4,14 @@ import com.openclassrooms.datashare.entities.File;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,7 +21,52 @@ public interface FileRepository extends JpaRepository<File, UUID> {
     Optional<File> findByDownloadToken(String token);
     List<File> findAllByUser_IdOrderByCreatedAtDesc(Long userId);
     Optional<File> findByIdAndUser_Id(UUID id, Long userId);
+    List<File> findAllByDownloadTokenIn(Collection<String> tokens);
+    List<File> findAllByIdInAndUser_Id(Collection<UUID> ids, Long userId);
+
+    /**
+     * Retourne, parmi les tokens donnés, ceux qui sont déjà utilisés.
+     * <p>
+     * Permet de vérifier l'unicité d'un lot de tokens en une seule requête.
+     *
+     * @param tokens Les tokens candidats
+     * @return Les tokens déjà présents en base
+     */
+    @Query("SELECT f.downloadToken FROM File f WHERE f.downloadToken IN :tokens")
+    List<String> findExistingDownloadTokens(@Param("tokens") Collection<String> tokens);
     
+    /**
+     * Retourne les chemins des fichiers ayant expiré dans l'intervalle ]from, to].
+     *
+     * @param from Borne basse exclue (date du balayage précédent)
+     * @param to Borne haute incluse (date du balayage courant)
+     * @return Les chemins relatifs des fichiers expirés
+     */
+    @Query("SELECT f.filepath FROM File f WHERE f.expirationDate > :from AND f.expirationDate <= :to")
+    List<String> findFilepathsExpiredBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Retourne les fichiers non expirés rangés dans un segment.
+     *
+     * @param filepath Le chemin relatif du segment
+     * @param now La date/heure actuelle pour comparaison
+     * @return Les fichiers dont le contenu doit être conservé
+     */
+    @Query("SELECT f FROM File f WHERE f.filepath = :filepath AND f.segmentOffset IS NOT NULL AND f.expirationDate > :now")
+    List<File> findLiveSegmentEntries(@Param("filepath") String filepath, @Param("now") LocalDateTime now);
+
+    /**
+     * Déplace le contenu d'un fichier vers un autre emplacement de segment (compaction).
+     *
+     * @param id L'identifiant du fichier
+     * @param filepath Le chemin relatif du nouveau segment
+     * @param offset La position du contenu dans le nouveau segment
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE File f SET f.filepath = :filepath, f.segmentOffset = :offset WHERE f.id = :id")
+    void moveSegmentEntry(@Param("id") UUID id, @Param("filepath") String filepath, @Param("offset") long offset);
+
     /**
      * Trouve tous les fichiers d'un utilisateur avec pagination.
      * 
@@ -38,4 +86,14 @@ public interface FileRepository extends JpaRepository<File, UUID> {
      */
     @Query("SELECT f FROM File f WHERE f.user.id = :userId AND f.expirationDate > :now")
     Page<File> findNonExpiredByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Calcule l'espace occupé par les fichiers non expirés d'un utilisateur (taille d'origine).
+     *
+     * @param userId L'identifiant de l'utilisateur
+     * @param now La date/heure actuelle pour comparaison
+     * @return La somme des tailles, en octets
+     */
+    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM File f WHERE f.user.id = :userId AND f.expirationDate > :now")
+    long sumNonExpiredFileSizeByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,68 @@
+package com.openclassrooms.datashare.service;
+
+import java.util.Locale;
+
+/**
+ * Lecture de l'en-tête HTTP Accept-Encoding (RFC 9110, section 12.5.3).
+ * <p>
+ * Prend en compte les poids "q" : un codage listé avec {@code q=0} est refusé,
+ * le joker {@code *} couvre les codages non listés explicitement.
+ */
+public final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * Indique si le client accepte un codage de contenu.
+     *
+     * @param header La valeur de l'en-tête Accept-Encoding (peut être null)
+     * @param coding Le codage recherché (ex: "gzip")
+     * @return true si le codage est accepté avec un poids non nul
+     */
+    public static boolean accepts(String header, String coding) {
+        return quality(header, coding) > 0;
+    }
+
+    /**
+     * Retourne le poids attribué par le client à un codage.
+     *
+     * @param header La valeur de l'en-tête Accept-Encoding (peut être null)
+     * @param coding Le codage recherché (ex: "gzip")
+     * @return Le poids entre 0 et 1, 0 si le codage n'est pas accepté
+     */
+    public static double quality(String header, String coding) {
+        if (header == null || header.isBlank() || coding == null) {
+            return 0;
+        }
+
+        Double wildcard = null;
+        for (String element : header.split(",")) {
+            String[] parts = element.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = parseQuality(parts);
+
+            if (name.equals(coding.toLowerCase(Locale.ROOT))) {
+                return q;
+            }
+            if (name.equals("*")) {
+                wildcard = q;
+            }
+        }
+        return wildcard != null ? wildcard : 0;
+    }
+
+    private static double parseQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Math.max(0, Math.min(1, Double.parseDouble(parameter.substring(2).trim())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
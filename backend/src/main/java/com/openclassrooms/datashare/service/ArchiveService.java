@@ -0,0 +1,283 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.dto.ArchiveDownloadRequestDto;
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
+import com.openclassrooms.datashare.exception.FileExpiredException;
+import com.openclassrooms.datashare.exception.FileNotFoundException;
+import com.openclassrooms.datashare.exception.InvalidArchiveRequestException;
+import com.openclassrooms.datashare.exception.InvalidPasswordException;
+import com.openclassrooms.datashare.repository.FileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Service de téléchargement groupé de fichiers sous forme d'archive ZIP.
+ * <p>
+ * L'archive est générée à la volée directement dans le flux de réponse :
+ * elle n'est jamais construite en mémoire ni sur disque, la mémoire consommée
+ * reste constante quelle que soit la taille du lot.
+ * <p>
+ * Les fichiers déjà compressés (images, vidéos, archives...) sont ajoutés en STORED,
+ * les autres en DEFLATED.
+ */
+@Slf4j
+@Service
+public class ArchiveService {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final Path storageLocation;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private SegmentStore segmentStore;
+
+    @Value("${app.download.archive.max-files:100}")
+    private int maxArchiveFiles;
+
+    public ArchiveService(@Value("${app.storage.path}") String storagePath) {
+        this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Résout et vérifie les fichiers d'une archive publique (via tokens).
+     * <p>
+     * Toutes les vérifications (existence, expiration, mot de passe, présence physique)
+     * sont faites avant l'écriture du premier octet, afin de pouvoir encore répondre
+     * avec un code d'erreur HTTP.
+     *
+     * @param request Les tokens demandés et les mots de passe des fichiers protégés
+     * @return Les fichiers à archiver, dans l'ordre des tokens
+     * @throws InvalidArchiveRequestException Si la liste est vide ou dépasse le nombre maximal de fichiers
+     * @throws FileNotFoundException Si un token est invalide ou un fichier physique introuvable
+     * @throws FileExpiredException Si un fichier a expiré
+     * @throws InvalidPasswordException Si le mot de passe d'un fichier protégé est manquant ou incorrect
+     */
+    public List<File> resolvePublicEntries(ArchiveDownloadRequestDto request) {
+        Set<String> tokens = request != null && request.getTokens() != null
+                ? new LinkedHashSet<>(request.getTokens())
+                : Set.of();
+        validateCount(tokens.size());
+
+        Map<String, File> filesByToken = fileRepository.findAllByDownloadTokenIn(tokens).stream()
+                .collect(Collectors.toMap(File::getDownloadToken, Function.identity()));
+        Map<String, String> passwords = request.getPasswords() != null ? request.getPasswords() : Map.of();
+
+        List<File> files = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            File file = filesByToken.get(token);
+            if (file == null) {
+                throw new FileNotFoundException("Lien de téléchargement invalide");
+            }
+            checkNotExpired(file);
+
+            if (file.getPasswordHash() != null) {
+                String password = passwords.get(token);
+                if (password == null || password.isEmpty()) {
+                    throw new InvalidPasswordException("Ce fichier est protégé par mot de passe");
+                }
+                if (!passwordEncoder.matches(password, file.getPasswordHash())) {
+                    throw new InvalidPasswordException("Mot de passe incorrect");
+                }
+            }
+
+            checkReadable(file);
+            files.add(file);
+        }
+
+        log.info("Archive publique résolue: {} fichier(s)", files.size());
+        return files;
+    }
+
+    /**
+     * Résout et vérifie les fichiers d'une archive propriétaire (via identifiants).
+     * <p>
+     * Aucun mot de passe n'est demandé : seuls les fichiers appartenant à l'utilisateur
+     * sont acceptés.
+     *
+     * @param fileIds Les identifiants des fichiers demandés
+     * @param userId L'identifiant du propriétaire
+     * @return Les fichiers à archiver, dans l'ordre des identifiants
+     * @throws InvalidArchiveRequestException Si la liste est vide ou dépasse le nombre maximal de fichiers
+     * @throws FileNotFoundException Si un fichier n'existe pas ou n'appartient pas à l'utilisateur
+     * @throws FileExpiredException Si un fichier a expiré
+     */
+    public List<File> resolveOwnerEntries(Collection<UUID> fileIds, Long userId) {
+        Set<UUID> ids = fileIds != null ? new LinkedHashSet<>(fileIds) : Set.of();
+        validateCount(ids.size());
+
+        Map<UUID, File> filesById = fileRepository.findAllByIdInAndUser_Id(ids, userId).stream()
+                .collect(Collectors.toMap(File::getId, Function.identity()));
+
+        List<File> files = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            File file = filesById.get(id);
+            if (file == null) {
+                throw new FileNotFoundException("Fichier non trouvé");
+            }
+            checkNotExpired(file);
+            checkReadable(file);
+            files.add(file);
+        }
+
+        log.info("Archive propriétaire résolue: {} fichier(s) pour l'utilisateur {}", files.size(), userId);
+        return files;
+    }
+
+    /**
+     * Écrit l'archive ZIP des fichiers dans le flux de sortie, entrée par entrée.
+     * <p>
+     * Seul un tampon de taille fixe est utilisé : rien n'est accumulé en mémoire.
+     * Pour les entrées STORED, le format ZIP impose de connaître le CRC avant le contenu :
+     * le fichier est alors lu deux fois (la seconde lecture est servie par le cache disque).
+     * Les fichiers compressés sur le stockage sont décodés : l'archive contient toujours
+     * le contenu original.
+     *
+     * @param files Les fichiers à archiver (résolus via resolvePublicEntries / resolveOwnerEntries)
+     * @param outputStream Le flux de réponse
+     * @throws IOException Si une lecture ou une écriture échoue
+     */
+    public void writeArchive(List<File> files, OutputStream outputStream) throws IOException {
+        Set<String> usedNames = new HashSet<>();
+        long totalBytes = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE));
+        for (File file : files) {
+            Path path = resolvePath(file);
+            long size = contentSize(file, path);
+
+            ZipEntry entry = new ZipEntry(uniqueEntryName(file.getOriginalFilename(), usedNames));
+            if (CompressibleMimeTypes.isAlreadyCompressed(file.getMimeType())) {
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(computeCrc(file, path));
+            } else {
+                entry.setMethod(ZipEntry.DEFLATED);
+            }
+
+            zip.putNextEntry(entry);
+            try (InputStream in = openContent(file, path)) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+            totalBytes += size;
+        }
+        zip.finish();
+        zip.flush();
+
+        log.info("Archive générée: {} fichier(s), {} octets source", files.size(), totalBytes);
+    }
+
+    private void validateCount(int count) {
+        if (count == 0) {
+            throw new InvalidArchiveRequestException("L'archive doit contenir au moins un fichier");
+        }
+        if (count > maxArchiveFiles) {
+            throw new InvalidArchiveRequestException(
+                    String.format("L'archive ne peut pas contenir plus de %d fichiers", maxArchiveFiles));
+        }
+    }
+
+    private void checkNotExpired(File file) {
+        if (file.getExpirationDate().isBefore(LocalDateTime.now())) {
+            throw new FileExpiredException("Ce fichier a expiré et n'est plus disponible", file.getExpirationDate());
+        }
+    }
+
+    private void checkReadable(File file) {
+        if (!Files.isReadable(resolvePath(file))) {
+            log.error("Fichier physique introuvable ou illisible: {}", file.getFilepath());
+            throw new FileNotFoundException("Le fichier physique est introuvable ou illisible");
+        }
+    }
+
+    private Path resolvePath(File file) {
+        return storageLocation.resolve(file.getFilepath()).normalize();
+    }
+
+    /**
+     * Taille du contenu original : celle du fichier stocké s'il est brut,
+     * celle enregistrée à l'upload s'il est compressé.
+     */
+    private long contentSize(File file, Path path) throws IOException {
+        if (StorageCodec.orNone(file.getStorageCodec()) == StorageCodec.NONE) {
+            return SegmentStore.isPacked(file) ? file.getSegmentLength() : Files.size(path);
+        }
+        return file.getFileSize();
+    }
+
+    private InputStream openContent(File file, Path path) throws IOException {
+        InputStream stored = SegmentStore.isPacked(file)
+                ? segmentStore.open(file).getInputStream()
+                : Files.newInputStream(path);
+        return StorageCodec.orNone(file.getStorageCodec()).decode(stored);
+    }
+
+    private long computeCrc(File file, Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        try (InputStream in = openContent(file, path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Construit un nom d'entrée sans séparateur de chemin, suffixé en cas de doublon
+     * ("rapport.csv", "rapport (1).csv"...).
+     */
+    private String uniqueEntryName(String originalFilename, Set<String> usedNames) {
+        String name = originalFilename == null || originalFilename.isBlank()
+                ? "unnamed"
+                : originalFilename.replace('/', '_').replace('\\', '_');
+
+        if (usedNames.add(name)) {
+            return name;
+        }
+
+        int dotIndex = name.lastIndexOf('.');
+        String base = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        String extension = dotIndex > 0 ? name.substring(dotIndex) : "";
+        int counter = 1;
+        String candidate;
+        do {
+            candidate = String.format("%s (%d)%s", base, counter++, extension);
+        } while (!usedNames.add(candidate));
+        return candidate;
+    }
+}
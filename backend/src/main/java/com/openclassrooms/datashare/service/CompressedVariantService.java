@@ -0,0 +1,209 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
+import com.openclassrooms.datashare.repository.FileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service de gestion des variantes compressées des fichiers stockés bruts.
+ * <p>
+ * Pour un fichier textuel stocké sans compression, une variante gzip est générée
+ * à la première demande d'un client acceptant gzip, puis conservée à côté du fichier
+ * ({@code {fichier}.gz}) pour les téléchargements suivants.
+ * <p>
+ * La génération est faite en arrière-plan sur l'exécuteur de stockage : la requête
+ * qui la déclenche reçoit le fichier brut, sans attendre la compression. Le nombre de
+ * générations simultanées est borné ici, et non par l'exécuteur : en threads virtuels,
+ * celui-ci fait attendre l'appelant au lieu de refuser la tâche.
+ * <p>
+ * Les variantes sont supprimées avec le fichier, et par un balayage périodique
+ * des fichiers expirés.
+ */
+@Slf4j
+@Service
+public class CompressedVariantService {
+
+    private final Path storageLocation;
+
+    // Variantes en cours de génération, pour ne pas compresser deux fois le même fichier
+    private final Set<Path> pendingVariants = ConcurrentHashMap.newKeySet();
+
+    // Générations en cours : au-delà, la variante est différée plutôt que d'attendre l'exécuteur
+    private final Semaphore generationPermits;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    @Qualifier("storageExecutor")
+    private Executor storageExecutor;
+
+    @Value("${app.download.precompressed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.download.precompressed.min-size:1024}")
+    private long minSize;
+
+    @Value("${app.download.precompressed.level:6}")
+    private int level;
+
+    // Au démarrage, une période de balayage en arrière : les variantes des fichiers expirés plus tôt
+    // ont été supprimées avant l'arrêt, et le premier balayage ne reparcourt pas tout l'historique
+    private LocalDateTime lastSweep;
+
+    public CompressedVariantService(@Value("${app.storage.path}") String storagePath,
+                                    @Value("${app.download.precompressed.max-concurrent:2}") int maxConcurrent,
+                                    @Value("${app.download.precompressed.sweep-cron:0 0 * * * *}") String sweepCron) {
+        this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
+        this.generationPermits = new Semaphore(maxConcurrent);
+        LocalDateTime now = LocalDateTime.now();
+        this.lastSweep = now.minus(sweepPeriod(CronExpression.parse(sweepCron), now));
+    }
+
+    /**
+     * Indique si un fichier peut être servi en gzip, sa représentation dépendant alors
+     * de l'en-tête Accept-Encoding du client.
+     *
+     * @param file Le fichier téléchargé
+     * @return true si le fichier est stocké brut dans son propre fichier, textuel et assez volumineux
+     */
+    public boolean supportsGzip(File file) {
+        return enabled
+                && !SegmentStore.isPacked(file)
+                && StorageCodec.orNone(file.getStorageCodec()) == StorageCodec.NONE
+                && file.getFileSize() != null
+                && file.getFileSize() >= minSize
+                && CompressibleMimeTypes.isCompressible(file.getMimeType());
+    }
+
+    /**
+     * Retourne la variante gzip d'un fichier si elle est déjà disponible.
+     * <p>
+     * Si elle n'existe pas encore, sa génération est planifiée et le fichier brut
+     * doit être servi pour cette requête.
+     *
+     * @param file Le fichier téléchargé
+     * @return Le chemin de la variante gzip, vide si elle n'est pas (encore) disponible
+     */
+    public Optional<Path> findGzipVariant(File file) {
+        if (!supportsGzip(file)) {
+            return Optional.empty();
+        }
+
+        Path blob = storageLocation.resolve(file.getFilepath()).normalize();
+        Path variant = variantPath(blob);
+        if (Files.isReadable(variant)) {
+            return Optional.of(variant);
+        }
+
+        if (!pendingVariants.add(variant)) {
+            return Optional.empty();
+        }
+        if (!generationPermits.tryAcquire()) {
+            pendingVariants.remove(variant);
+            log.debug("Génération de variante différée, générations en cours au maximum: {}", variant);
+            return Optional.empty();
+        }
+        try {
+            storageExecutor.execute(() -> generate(blob, variant));
+        } catch (RejectedExecutionException e) {
+            // File d'attente pleine de l'exécuteur en threads de plateforme
+            generationPermits.release();
+            pendingVariants.remove(variant);
+            log.debug("Génération de variante différée, exécuteur saturé: {}", variant);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Supprime les variantes compressées des fichiers expirés depuis le balayage précédent.
+     */
+    @Scheduled(cron = "${app.download.precompressed.sweep-cron:0 0 * * * *}")
+    public void evictExpiredVariants() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> filepaths = fileRepository.findFilepathsExpiredBetween(lastSweep, now);
+
+        int evicted = 0;
+        for (String filepath : filepaths) {
+            Path variant = variantPath(storageLocation.resolve(filepath).normalize());
+            try {
+                if (Files.deleteIfExists(variant)) {
+                    evicted++;
+                }
+            } catch (IOException e) {
+                log.warn("Impossible de supprimer la variante compressée: {}", variant, e);
+            }
+        }
+        lastSweep = now;
+
+        if (evicted > 0) {
+            log.info("Variantes compressées supprimées: {} (fichiers expirés: {})", evicted, filepaths.size());
+        }
+    }
+
+    /**
+     * Compresse le fichier dans un fichier temporaire puis le renomme atomiquement :
+     * une variante visible est toujours complète.
+     */
+    private void generate(Path blob, Path variant) {
+        Path temp = variant.resolveSibling(variant.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(blob);
+                 OutputStream out = StorageCodec.GZIP.encode(Files.newOutputStream(temp), level)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (!Files.exists(blob)) {
+                // Fichier supprimé pendant la compression
+                Files.deleteIfExists(variant);
+                return;
+            }
+            log.debug("Variante gzip générée: {} ({} -> {} octets)", variant, Files.size(blob), Files.size(variant));
+        } catch (IOException e) {
+            log.warn("Échec de la génération de la variante gzip: {}", variant, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Fichier temporaire orphelin, sans impact sur les téléchargements
+            }
+        } finally {
+            pendingVariants.remove(variant);
+            generationPermits.release();
+        }
+    }
+
+    private static Duration sweepPeriod(CronExpression cron, LocalDateTime now) {
+        LocalDateTime next = cron.next(now);
+        LocalDateTime following = next != null ? cron.next(next) : null;
+        return following != null ? Duration.between(next, following) : Duration.ZERO;
+    }
+
+    private Path variantPath(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + FileStorageService.GZIP_VARIANT_SUFFIX);
+    }
+}
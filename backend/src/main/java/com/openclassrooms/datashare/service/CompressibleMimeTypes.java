@@ -0,0 +1,110 @@
+package com.openclassrooms.datashare.service;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Classification des types MIME selon leur aptitude à la compression.
+ * <p>
+ * Deux questions distinctes, volontairement conservatrices dans des sens opposés :
+ * - {@link #isAlreadyCompressed} : le contenu est déjà compressé, inutile de le recompresser
+ *   (un type inconnu n'est pas considéré comme compressé)
+ * - {@link #isCompressible} : le contenu gagne nettement à être compressé
+ *   (un type inconnu n'est pas considéré comme compressible)
+ */
+public final class CompressibleMimeTypes {
+
+    // Formats dont la charge utile est déjà compressée
+    private static final Set<String> ALREADY_COMPRESSED_TYPES = Set.of(
+            // Archives
+            "application/zip",
+            "application/gzip",
+            "application/x-gzip",
+            "application/x-7z-compressed",
+            "application/x-rar-compressed",
+            "application/vnd.rar",
+            "application/x-bzip2",
+            "application/x-xz",
+            "application/zstd",
+            // Documents conteneurs ZIP
+            "application/pdf",
+            "application/epub+zip",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+            "application/vnd.oasis.opendocument.text",
+            "application/vnd.oasis.opendocument.spreadsheet",
+            "application/vnd.oasis.opendocument.presentation"
+    );
+
+    private static final Set<String> ALREADY_COMPRESSED_PREFIXES = Set.of("image/", "audio/", "video/", "font/");
+
+    // Exceptions textuelles parmi les préfixes ci-dessus
+    private static final Set<String> TEXTUAL_IMAGE_TYPES = Set.of("image/svg+xml", "image/bmp", "image/x-ms-bmp");
+
+    // Formats textuels qui compressent typiquement de 5 à 10 fois
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json",
+            "application/x-ndjson",
+            "application/xml",
+            "application/javascript",
+            "application/x-javascript",
+            "application/sql",
+            "application/x-sql",
+            "application/yaml",
+            "application/x-yaml",
+            "application/csv",
+            "application/x-csv",
+            "application/x-tex",
+            "application/rtf",
+            "image/svg+xml",
+            "image/bmp"
+    );
+
+    private CompressibleMimeTypes() {
+    }
+
+    /**
+     * Indique si le contenu est déjà compressé (archives, médias, documents ZIP).
+     *
+     * @param mimeType Le type MIME (paramètres éventuels ignorés)
+     * @return true si une recompression serait inutile
+     */
+    public static boolean isAlreadyCompressed(String mimeType) {
+        String type = normalize(mimeType);
+        if (type == null) {
+            return false;
+        }
+        if (ALREADY_COMPRESSED_TYPES.contains(type)) {
+            return true;
+        }
+        return !TEXTUAL_IMAGE_TYPES.contains(type)
+                && ALREADY_COMPRESSED_PREFIXES.stream().anyMatch(type::startsWith);
+    }
+
+    /**
+     * Indique si le contenu est textuel et gagne à être compressé (CSV, JSON, logs...).
+     *
+     * @param mimeType Le type MIME (paramètres éventuels ignorés)
+     * @return true si la compression est rentable
+     */
+    public static boolean isCompressible(String mimeType) {
+        String type = normalize(mimeType);
+        if (type == null) {
+            return false;
+        }
+        return type.startsWith("text/")
+                || COMPRESSIBLE_TYPES.contains(type)
+                || type.endsWith("+json")
+                || type.endsWith("+xml");
+    }
+
+    private static String normalize(String mimeType) {
+        if (mimeType == null || mimeType.isBlank()) {
+            return null;
+        }
+        int separator = mimeType.indexOf(';');
+        String type = separator >= 0 ? mimeType.substring(0, separator) : mimeType;
+        return type.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,44 @@
+package com.openclassrooms.datashare.service;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Répertoires du stockage dont l'existence est déjà établie.
+ * <p>
+ * Évite à chaque upload un Files.createDirectories, qui interroge le système de fichiers
+ * pour chaque composant du chemin. Quand le nombre d'entrées atteint la borne, le cache est
+ * vidé : les répertoires encore utilisés y reviennent au prochain upload.
+ */
+class DirectoryCache {
+
+    private final int maxEntries;
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+
+    DirectoryCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    boolean contains(Path directory) {
+        return directories.contains(directory);
+    }
+
+    void add(Path directory) {
+        if (directories.size() >= maxEntries) {
+            directories.clear();
+        }
+        directories.add(directory);
+    }
+
+    /**
+     * Oublie un répertoire et tous ceux qu'il contient (répertoire supprimé).
+     */
+    void removeTree(Path directory) {
+        directories.removeIf(known -> known.startsWith(directory));
+    }
+
+    int size() {
+        return directories.size();
+    }
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.entities.File;
+import org.springframework.core.io.Resource;
+
+/**
+ * Contenu prêt à être envoyé pour un téléchargement.
+ *
+ * @param file Les métadonnées du fichier téléchargé
+ * @param resource Le contenu à streamer (décodé, ou encodé tel que stocké)
+ * @param contentLength La longueur du contenu envoyé, en octets
+ * @param contentEncoding Le Content-Encoding du contenu envoyé, null s'il est brut
+ * @param varyByEncoding true si la représentation dépend de l'en-tête Accept-Encoding
+ */
+public record DownloadContent(File file, Resource resource, long contentLength, String contentEncoding,
+                              boolean varyByEncoding) {
+}
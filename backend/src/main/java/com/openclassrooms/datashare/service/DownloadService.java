@@ -1,25 +1,36 @@
 package com.openclassrooms.datashare.service;
 
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.configuration.logging.SampledLogger;
 import com.openclassrooms.datashare.dto.FileDownloadRequestDto;
 import com.openclassrooms.datashare.dto.FileInfoResponseDto;
 import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
 import com.openclassrooms.datashare.exception.FileExpiredException;
 import com.openclassrooms.datashare.exception.FileNotFoundException;
 import com.openclassrooms.datashare.exception.InvalidPasswordException;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import com.openclassrooms.datashare.monitoring.jfr.DownloadEvent;
 import com.openclassrooms.datashare.repository.FileRepository;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Service pour gérer les téléchargements publics de fichiers
@@ -29,6 +40,12 @@ import java.time.LocalDateTime;
 @Service
 public class DownloadService {
 
+    // Logs des chemins fréquents : succès échantillonnés, erreurs répétées agrégées (scans de tokens, liens expirés)
+    private static final SampledLogger SUCCESS_LOG = SampledLogger.oneIn(log, 100);
+    private static final RateLimitedLogger INVALID_TOKEN_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+    private static final RateLimitedLogger EXPIRED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+    private static final RateLimitedLogger PASSWORD_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
     private final Path storageLocation;
 
     @Autowired
@@ -37,6 +54,18 @@ public class DownloadService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private CompressedVariantService compressedVariantService;
+
+    @Autowired
+    private TransferMetrics transferMetrics;
+
+    @Autowired
+    private SegmentStore segmentStore;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
     public DownloadService(@Value("${app.storage.path}") String storagePath) {
         this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
     }
@@ -90,12 +119,34 @@ public class DownloadService {
      * @throws InvalidPasswordException Si le mot de passe est incorrect ou manquant
      */
     public Resource downloadFile(String token, FileDownloadRequestDto requestDto) {
-        log.info("Tentative de téléchargement du fichier avec token: {}", token);
+        return openDownload(token, requestDto, false).resource();
+    }
+
+    /**
+     * Prépare le téléchargement d'un fichier avec vérification optionnelle du mot de passe
+     * 
+     * @param token Token de téléchargement
+     * @param requestDto DTO contenant le mot de passe optionnel
+     * @param acceptsGzip true si le client accepte Content-Encoding: gzip
+     *                   (un fichier stocké compressé est alors envoyé sans décompression)
+     * @return Le fichier, son contenu et les informations d'encodage
+     * @throws FileNotFoundException Si le fichier n'existe pas
+     * @throws FileExpiredException Si le fichier a expiré
+     * @throws InvalidPasswordException Si le mot de passe est incorrect ou manquant
+     */
+    public DownloadContent openDownload(String token, FileDownloadRequestDto requestDto, boolean acceptsGzip) {
+        return recordDownload(token, false, () -> checkAndOpen(token, requestDto, acceptsGzip));
+    }
+
+    private DownloadContent checkAndOpen(String token, FileDownloadRequestDto requestDto, boolean acceptsGzip) {
+        long start = System.nanoTime();
+        log.debug("Tentative de téléchargement du fichier avec token: {}", token);
         
         // 1. Récupérer le fichier
         File file = fileRepository.findByDownloadToken(token)
                 .orElseThrow(() -> {
-                    log.warn("Fichier non trouvé pour le token: {}", token);
+                    INVALID_TOKEN_LOG.log("Fichier non trouvé pour le token: {}", token);
+                    transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_NOT_FOUND);
                     return new FileNotFoundException("Lien de téléchargement invalide");
                 });
 
@@ -104,8 +155,9 @@ public class DownloadService {
 
         // 2. Vérifier l'expiration
         if (file.getExpirationDate().isBefore(LocalDateTime.now())) {
-            log.warn("Tentative de téléchargement d'un fichier expiré: {} (expiré le: {})", 
+            EXPIRED_LOG.log("Tentative de téléchargement d'un fichier expiré: {} (expiré le: {})", 
                     file.getOriginalFilename(), file.getExpirationDate());
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_EXPIRED);
             throw new FileExpiredException("Ce fichier a expiré et n'est plus disponible", file.getExpirationDate());
         }
 
@@ -114,12 +166,14 @@ public class DownloadService {
             log.debug("Fichier protégé par mot de passe: {}", file.getOriginalFilename());
             
             if (requestDto == null || requestDto.getPassword() == null || requestDto.getPassword().isEmpty()) {
-                log.warn("Tentative de téléchargement sans mot de passe pour le fichier: {}", file.getOriginalFilename());
+                PASSWORD_LOG.log("Tentative de téléchargement sans mot de passe pour le fichier: {}", file.getOriginalFilename());
+                transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_UNAUTHORIZED);
                 throw new InvalidPasswordException("Ce fichier est protégé par mot de passe");
             }
 
             if (!passwordEncoder.matches(requestDto.getPassword(), file.getPasswordHash())) {
-                log.warn("Mot de passe incorrect pour le fichier: {}", file.getOriginalFilename());
+                PASSWORD_LOG.log("Mot de passe incorrect pour le fichier: {}", file.getOriginalFilename());
+                transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_UNAUTHORIZED);
                 throw new InvalidPasswordException("Mot de passe incorrect");
             }
             
@@ -127,26 +181,10 @@ public class DownloadService {
         }
 
         // 4. Charger le fichier depuis le système de fichiers
-        try {
-            Path filePath = storageLocation.resolve(file.getFilepath()).normalize();
-            log.debug("Chargement du fichier depuis: {}", filePath.toAbsolutePath());
-            
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists() || !resource.isReadable()) {
-                log.error("Fichier physique introuvable ou illisible: {}", filePath.toAbsolutePath());
-                throw new FileNotFoundException("Le fichier physique est introuvable ou illisible");
-            }
-
-            log.info("Téléchargement réussi du fichier: {} (ID: {}, Taille: {} octets)", 
-                    file.getOriginalFilename(), file.getId(), file.getFileSize());
-            
-            return resource;
-        } catch (IOException e) {
-            log.error("Erreur IOException lors du chargement du fichier: {} - {}", 
-                    file.getOriginalFilename(), e.getMessage(), e);
-            throw new FileNotFoundException("Erreur lors de la lecture du fichier: " + e.getMessage());
-        }
+        DownloadContent content = openContent(file, acceptsGzip, start);
+        SUCCESS_LOG.info("Téléchargement réussi du fichier: {} (ID: {}, Taille: {} octets)", 
+                file.getOriginalFilename(), file.getId(), file.getFileSize());
+        return content;
     }
 
     /**
@@ -159,12 +197,31 @@ public class DownloadService {
      * @throws FileExpiredException Si le fichier a expiré
      */
     public Resource downloadFileAsOwner(String token) {
-        log.info("Téléchargement propriétaire du fichier avec token: {}", token);
+        return openDownloadAsOwner(token, false).resource();
+    }
+
+    /**
+     * Prépare le téléchargement d'un fichier pour le propriétaire sans vérification de mot de passe
+     * 
+     * @param token Token de téléchargement
+     * @param acceptsGzip true si le client accepte Content-Encoding: gzip
+     * @return Le fichier, son contenu et les informations d'encodage
+     * @throws FileNotFoundException Si le fichier n'existe pas
+     * @throws FileExpiredException Si le fichier a expiré
+     */
+    public DownloadContent openDownloadAsOwner(String token, boolean acceptsGzip) {
+        return recordDownload(token, true, () -> checkAndOpenAsOwner(token, acceptsGzip));
+    }
+
+    private DownloadContent checkAndOpenAsOwner(String token, boolean acceptsGzip) {
+        long start = System.nanoTime();
+        log.debug("Téléchargement propriétaire du fichier avec token: {}", token);
         
         // 1. Récupérer le fichier
         File file = fileRepository.findByDownloadToken(token)
                 .orElseThrow(() -> {
-                    log.warn("Fichier non trouvé pour le token: {}", token);
+                    INVALID_TOKEN_LOG.log("Fichier non trouvé pour le token: {}", token);
+                    transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_NOT_FOUND);
                     return new FileNotFoundException("Lien de téléchargement invalide");
                 });
 
@@ -173,8 +230,9 @@ public class DownloadService {
 
         // 2. Vérifier l'expiration
         if (file.getExpirationDate().isBefore(LocalDateTime.now())) {
-            log.warn("Tentative de téléchargement d'un fichier expiré: {} (expiré le: {})", 
+            EXPIRED_LOG.log("Tentative de téléchargement d'un fichier expiré: {} (expiré le: {})", 
                     file.getOriginalFilename(), file.getExpirationDate());
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_EXPIRED);
             throw new FileExpiredException("Ce fichier a expiré et n'est plus disponible", file.getExpirationDate());
         }
 
@@ -185,28 +243,105 @@ public class DownloadService {
         }
 
         // 4. Charger le fichier depuis le système de fichiers
+        DownloadContent content = openContent(file, acceptsGzip, start);
+        SUCCESS_LOG.info("Téléchargement propriétaire réussi du fichier: {} (ID: {}, Taille: {} octets)", 
+                file.getOriginalFilename(), file.getId(), file.getFileSize());
+        return content;
+    }
+
+    /**
+     * Émet un événement JFR couvrant la préparation complète d'un téléchargement.
+     */
+    private DownloadContent recordDownload(String token, boolean owner, Supplier<DownloadContent> download) {
+        DownloadEvent event = DownloadEvent.start(token, owner);
+        try {
+            DownloadContent content = download.get();
+            event.setContentLength(content.contentLength());
+            event.setContentEncoding(content.contentEncoding());
+            event.setOutcome("ok");
+            return content;
+        } catch (RuntimeException e) {
+            event.setOutcome(e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Ouvre le contenu physique d'un fichier.
+     * <p>
+     * Un fichier stocké compressé est transmis tel quel si le client accepte son encodage,
+     * sinon il est décompressé à la volée pendant l'envoi.
+     * Un fichier textuel stocké brut est transmis via sa variante gzip si elle est disponible.
+     * Le flux retourné est mesuré par {@link TransferMetrics} (TTFB, octets, débit).
+     */
+    private DownloadContent openContent(File file, boolean acceptsGzip, long start) {
+        DownloadContent content = resolveContent(file, acceptsGzip);
+        transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_OK);
+        return new DownloadContent(content.file(), transferMetrics.meterDownload(content.resource(), start),
+                content.contentLength(), content.contentEncoding(), content.varyByEncoding());
+    }
+
+    private DownloadContent resolveContent(File file, boolean acceptsGzip) {
         try {
             Path filePath = storageLocation.resolve(file.getFilepath()).normalize();
             log.debug("Chargement du fichier depuis: {}", filePath.toAbsolutePath());
             
-            Resource resource = new UrlResource(filePath.toUri());
+            Resource resource = openStored(file, filePath);
 
-            if (!resource.exists() || !resource.isReadable()) {
-                log.error("Fichier physique introuvable ou illisible: {}", filePath.toAbsolutePath());
-                throw new FileNotFoundException("Le fichier physique est introuvable ou illisible");
+            StorageCodec codec = StorageCodec.orNone(file.getStorageCodec());
+            if (codec == StorageCodec.NONE) {
+                boolean negotiable = compressedVariantService.supportsGzip(file);
+                if (negotiable && acceptsGzip) {
+                    Optional<Path> variant = compressedVariantService.findGzipVariant(file);
+                    if (variant.isPresent()) {
+                        log.debug("Envoi de la variante gzip: {}", variant.get());
+                        return new DownloadContent(file, new FileSystemResource(variant.get()),
+                                Files.size(variant.get()), StorageCodec.GZIP.getContentEncoding(), true);
+                    }
+                }
+                return new DownloadContent(file, resource, file.getFileSize(), null, negotiable);
+            }
+            if (acceptsGzip && codec == StorageCodec.GZIP) {
+                log.debug("Envoi du fichier compressé sans décompression: {}", file.getOriginalFilename());
+                return new DownloadContent(file, resource, resource.contentLength(), codec.getContentEncoding(), true);
             }
 
-            log.info("Téléchargement propriétaire réussi du fichier: {} (ID: {}, Taille: {} octets)", 
-                    file.getOriginalFilename(), file.getId(), file.getFileSize());
-            
-            return resource;
+            Resource decoded = new InputStreamResource(
+                    () -> codec.decode(resource.getInputStream()), file.getOriginalFilename());
+            return new DownloadContent(file, decoded, file.getFileSize(), null, true);
         } catch (IOException e) {
             log.error("Erreur IOException lors du chargement du fichier: {} - {}", 
                     file.getOriginalFilename(), e.getMessage(), e);
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_NOT_FOUND);
             throw new FileNotFoundException("Erreur lors de la lecture du fichier: " + e.getMessage());
         }
     }
 
+    /**
+     * Ouvre le contenu stocké d'un fichier : depuis la mémoire s'il est populaire, sinon depuis le disque.
+     */
+    private Resource openStored(File file, Path filePath) throws IOException {
+        // Petit fichier populaire : servi depuis la mémoire, sans accès disque
+        Resource cached = hotFileCache.lookup(file);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Petit fichier regroupé : lecture positionnelle dans son segment
+        Resource stored = SegmentStore.isPacked(file)
+                ? segmentStore.open(file)
+                : new UrlResource(filePath.toUri());
+
+        if (!stored.exists() || !stored.isReadable()) {
+            log.error("Fichier physique introuvable ou illisible: {}", filePath.toAbsolutePath());
+            transferMetrics.downloadOutcome(TransferMetrics.OUTCOME_NOT_FOUND);
+            throw new FileNotFoundException("Le fichier physique est introuvable ou illisible");
+        }
+        return hotFileCache.admit(file, stored);
+    }
+
     /**
      * Récupère un fichier par son token (utile pour obtenir les métadonnées)
      * 
@@ -0,0 +1,203 @@
+package com.openclassrooms.datashare.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publication d'un fichier préparé à son emplacement définitif, selon la {@link StorageDurability}.
+ * <p>
+ * En GROUP_COMMIT, l'upload dépose sa demande et attend : le thread "storage-group-commit"
+ * attend la fin de la fenêtre, puis pour tout le lot force les fichiers préparés, les renomme,
+ * et force chaque répertoire cible une seule fois. Java n'exposant pas syncfs, chaque fichier
+ * reste forcé individuellement ; les fsync enchaînés sont regroupés par le journal du système
+ * de fichiers, et les fsync de répertoire sont dédoublonnés.
+ */
+@Slf4j
+class FilePublisher {
+
+    // Attente maximale d'une demande : délai de prise en compte de l'arrêt
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final StorageDurability durability;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Publication> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    FilePublisher(StorageDurability durability, Duration window, int maxBatch) {
+        this.durability = durability;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = Math.max(1, maxBatch);
+        if (durability == StorageDurability.GROUP_COMMIT) {
+            this.committer = new Thread(this::commitLoop, "storage-group-commit");
+            this.committer.setDaemon(true);
+            this.committer.start();
+        } else {
+            this.committer = null;
+        }
+    }
+
+    StorageDurability durability() {
+        return durability;
+    }
+
+    /**
+     * Renomme atomiquement le fichier préparé à son emplacement définitif.
+     *
+     * @param staged Le fichier complet, dans le répertoire de préparation
+     * @param target Le chemin définitif (répertoire existant)
+     * @throws IOException Si le fichier ne peut pas être forcé ou renommé
+     */
+    void publish(Path staged, Path target) throws IOException {
+        switch (durability) {
+            case NONE -> move(staged, target);
+            case FSYNC -> {
+                force(staged);
+                move(staged, target);
+                force(target.getParent());
+            }
+            case GROUP_COMMIT -> awaitGroupCommit(staged, target);
+        }
+    }
+
+    /**
+     * Arrête le thread de commit après avoir publié les demandes en attente.
+     * <p>
+     * Le thread n'est pas interrompu : une interruption ferait échouer les fsync du dernier lot
+     * (ClosedByInterruptException). Il s'arrête au plus tard {@value #POLL_TIMEOUT_MILLIS} ms
+     * après avoir vidé la file.
+     */
+    void stop() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        committer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void awaitGroupCommit(Path staged, Path target) throws IOException {
+        Publication publication = new Publication(staged, target, new CompletableFuture<>());
+        if (!running) {
+            throw new IOException("Storage is shutting down");
+        }
+        queue.add(publication);
+        // Arrêt entre les deux : la demande ne sera pas prise par le thread de commit, s'il est déjà sorti
+        if (!running && queue.remove(publication)) {
+            throw new IOException("Storage is shutting down");
+        }
+        try {
+            publication.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for group commit");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Group commit failed", e.getCause());
+        }
+    }
+
+    private void commitLoop() {
+        List<Publication> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Publication first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Fenêtre de regroupement : les uploads qui se terminent entre-temps partagent le lot
+                LockSupport.parkNanos(windowNanos);
+            } catch (InterruptedException e) {
+                // Interruption inattendue : le lot en cours est publié, l'arrêt passe par running
+            }
+            // Un indicateur d'interruption resté levé ferait échouer FileChannel.force
+            Thread.interrupted();
+            queue.drainTo(batch, maxBatch - batch.size());
+            commit(batch);
+            batch.clear();
+        }
+
+        // Demandes déposées pendant l'arrêt : leurs uploads échouent au lieu d'attendre indéfiniment
+        queue.drainTo(batch);
+        batch.forEach(publication -> publication.done().completeExceptionally(
+                new IOException("Storage is shutting down")));
+    }
+
+    /**
+     * Publie un lot : fsync des fichiers, renommages, puis un fsync par répertoire cible.
+     */
+    void commit(List<Publication> batch) {
+        List<Publication> moved = new ArrayList<>(batch.size());
+        for (Publication publication : batch) {
+            try {
+                force(publication.staged());
+                move(publication.staged(), publication.target());
+                moved.add(publication);
+            } catch (IOException e) {
+                publication.done().completeExceptionally(e);
+            }
+        }
+
+        Set<Path> directories = new LinkedHashSet<>();
+        moved.forEach(publication -> directories.add(publication.target().getParent()));
+        Set<Path> failed = new LinkedHashSet<>();
+        for (Path directory : directories) {
+            try {
+                force(directory);
+            } catch (IOException e) {
+                log.error("Failed to sync storage directory: {}", directory, e);
+                failed.add(directory);
+            }
+        }
+
+        for (Publication publication : moved) {
+            if (failed.contains(publication.target().getParent())) {
+                publication.done().completeExceptionally(
+                        new IOException("Failed to sync directory of " + publication.target().getFileName()));
+            } else {
+                publication.done().complete(null);
+            }
+        }
+        log.debug("Group commit: {} files, {} directories synced", moved.size(), directories.size());
+    }
+
+    private static void move(Path staged, Path target) throws IOException {
+        Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Force l'écriture sur disque d'un fichier ou d'un répertoire (fsync).
+     */
+    private static void force(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Demande de publication en attente du prochain lot.
+     */
+    record Publication(Path staged, Path target, CompletableFuture<Void> done) {
+    }
+}
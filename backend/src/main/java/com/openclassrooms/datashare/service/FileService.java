@@ -1,5 +1,9 @@
 package com.openclassrooms.datashare.service;
 
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.configuration.logging.SampledLogger;
+import com.openclassrooms.datashare.configuration.upload.UploadConcurrencyLimiter;
+import com.openclassrooms.datashare.dto.FileBatchUploadResponseDto;
 import com.openclassrooms.datashare.dto.FileListResponseDto;
 import com.openclassrooms.datashare.dto.FileMetadataDto;
 import com.openclassrooms.datashare.dto.FileUploadRequestDto;
@@ -7,10 +11,14 @@ import com.openclassrooms.datashare.dto.FileUploadResponseDto;
 import com.openclassrooms.datashare.entities.File;
 import com.openclassrooms.datashare.entities.User;
 import com.openclassrooms.datashare.mapper.FileMapper;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
 import com.openclassrooms.datashare.repository.FileRepository;
+import com.openclassrooms.datashare.service.FileStorageService.StoredFile;
 import com.openclassrooms.datashare.validation.MimeTypeValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,8 +31,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -42,12 +55,19 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FileService {
 
+    // Logs des chemins fréquents : succès échantillonnés, erreurs répétées agrégées
+    private static final SampledLogger UPLOAD_SUCCESS_LOG = SampledLogger.oneIn(log, 100);
+    private static final RateLimitedLogger NOT_OWNER_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
     private final FileRepository fileRepository;
     private final FileStorageService storageService;
     private final PasswordEncoder passwordEncoder;
     private final FileMapper fileMapper;
     private final TokenGeneratorService tokenGeneratorService;
     private final MimeTypeValidator mimeTypeValidator;
+    private final TransferMetrics transferMetrics;
+    private final UploadConcurrencyLimiter uploadConcurrencyLimiter;
+    private final HotFileCache hotFileCache;
 
     @Value("${app.file.max-size}")
     private long maxFileSize;
@@ -55,6 +75,13 @@ public class FileService {
     @Value("${app.download.base-url}")
     private String downloadBaseUrl;
 
+    @Value("${app.file.batch.max-files:500}")
+    private int maxBatchFiles;
+
+    @Autowired
+    @Qualifier("storageExecutor")
+    private Executor storageExecutor;
+
     @PostConstruct
     public void init() {
         log.info("FileService initialized with downloadBaseUrl: {}", downloadBaseUrl);
@@ -73,86 +100,214 @@ public class FileService {
      * @throws WeakPasswordException Si le mot de passe est trop faible
      * @throws IOException Si une erreur I/O se produit lors du stockage
      */
-    @Transactional
+    // Sans transaction englobante : la copie, qui peut durer des minutes, ne retient aucune connexion
+    // du pool des uploads ; seul l'enregistrement des métadonnées ouvre une transaction (courte)
     public FileUploadResponseDto uploadFile(MultipartFile file, FileUploadRequestDto request, User user) 
             throws IOException {
-        log.info("Starting file upload for user: {} (id={})", user.getLogin(), user.getId());
+        log.debug("Starting file upload for user: {} (id={})", user.getLogin(), user.getId());
+        try (TransferMetrics.UploadTimer timer = transferMetrics.startUpload(TransferMetrics.MODE_SINGLE)) {
+            // 1-2.5. Valider taille, fichier non vide et MIME type
+            validateFile(file);
+
+            // Valider expirationDays et password (normalement géré par @Valid, mais double vérification)
+            Integer expirationDays = validateExpirationDays(request);
+            String password = validatePassword(request);
+            timer.stage(TransferMetrics.STAGE_VALIDATION);
+
+            // 3. Générer token unique
+            String downloadToken = tokenGeneratorService.generateUniqueToken();
+            timer.stage(TransferMetrics.STAGE_TOKEN);
+
+            // 4. Calculer expiration date
+            LocalDateTime expirationDate = calculateExpirationDate(expirationDays);
+
+            // 5. Détecter MIME type déclaré (confirmé d'après le contenu lors du stockage)
+            String mimeType = storageService.detectMimeType(file);
+
+            // 6. Hasher password si fourni (BCrypt)
+            String passwordHash = hashPassword(password);
+            timer.stage(TransferMetrics.STAGE_HASHING);
+
+            // 7. Appeler FileStorageService.storeFile() (analyse du contenu, compression selon le MIME type)
+            StoredFile storedFile = storeFile(file, user.getId(), mimeType, expirationDate);
+            log.debug("File stored at: {} (type={}, codec={})", 
+                storedFile.filepath(), storedFile.mimeType(), storedFile.codec());
+            timer.stage(TransferMetrics.STAGE_STORAGE);
+
+            // 8. Sauvegarder métadonnées en DB
+            File fileEntity = buildFileEntity(file, user, storedFile, downloadToken, passwordHash, expirationDate);
+
+            File savedFile;
+            try {
+                savedFile = fileRepository.save(fileEntity);
+            } catch (RuntimeException e) {
+                storageService.deleteFile(storedFile.filepath());
+                throw e;
+            }
+            log.debug("File metadata saved with id: {}", savedFile.getId());
+            timer.stage(TransferMetrics.STAGE_DATABASE);
 
-        // 1. Valider taille fichier (< 1 GB)
-        if (file.getSize() > maxFileSize) {
-            throw new FileSizeExceededException(
-                String.format("File size %d bytes exceeds maximum allowed size of %d bytes", 
-                    file.getSize(), maxFileSize)
-            );
-        }
+            // 9. Construire downloadUrl
+            FileUploadResponseDto response = fileMapper.toUploadResponse(savedFile);
+            String downloadUrl = buildDownloadUrl(downloadToken);
+            response.setDownloadUrl(downloadUrl);
 
-        // 2. Valider fichier non vide
-        if (file.isEmpty() || file.getSize() == 0) {
-            throw new EmptyFileException("Cannot upload empty file");
+            // 10. Retourner DTO
+            UPLOAD_SUCCESS_LOG.info("File upload completed successfully: {} ({} bytes)", 
+                savedFile.getFilename(), savedFile.getFileSize());
+
+            timer.completed(file.getSize());
+            return response;
         }
+    }
 
-        // 2.5. Valider MIME type (optionnel)
-        mimeTypeValidator.validateOrThrow(file);
+    /**
+     * Upload un lot de fichiers partageant les mêmes paramètres (expiration, password).
+     * <p>
+     * Par rapport à N appels à {@link #uploadFile}, le lot ne paie qu'une fois :
+     * - la vérification d'unicité des tokens (une seule requête)
+     * - le hash BCrypt du mot de passe
+     * - la transaction d'enregistrement, les métadonnées étant insérées par batch JDBC
+     * <p>
+     * Les fichiers sont copiés en parallèle sur l'exécuteur de stockage. En cas d'échec,
+     * les fichiers déjà copiés sont supprimés et aucune métadonnée n'est conservée.
+     *
+     * @param files Les fichiers à uploader
+     * @param request Les paramètres communs de l'upload (expiration, password)
+     * @param user L'utilisateur effectuant l'upload
+     * @return Le DTO de réponse avec les fichiers uploadés, dans l'ordre d'envoi
+     * @throws BatchSizeExceededException Si le lot est vide ou dépasse le nombre maximal de fichiers
+     * @throws FileSizeExceededException Si un fichier dépasse 1 GB
+     * @throws EmptyFileException Si un fichier est vide
+     * @throws InvalidExpirationException Si la durée d'expiration est invalide
+     * @throws WeakPasswordException Si le mot de passe est trop faible
+     * @throws IOException Si une erreur I/O se produit lors du stockage
+     */
+    // Sans transaction englobante, comme uploadFile : seul saveAllAndFlush ouvre une transaction
+    public FileBatchUploadResponseDto uploadFiles(List<MultipartFile> files, FileUploadRequestDto request, User user)
+            throws IOException {
+        int count = files != null ? files.size() : 0;
+        log.debug("Starting batch upload of {} files for user: {} (id={})", count, user.getLogin(), user.getId());
 
-        // Valider expirationDays (normalement géré par @Valid, mais double vérification)
-        Integer expirationDays = request.getExpirationDays() != null ? request.getExpirationDays() : 7;
-        if (expirationDays < 1 || expirationDays > 7) {
-            throw new InvalidExpirationException(
-                String.format("Expiration days must be between 1 and 7, got: %d", expirationDays)
-            );
+        // 1. Valider le lot puis chaque fichier avant toute écriture
+        if (count == 0) {
+            throw new BatchSizeExceededException("Batch upload requires at least one file");
         }
-
-        // Valider password si fourni
-        String password = request.getPassword();
-        if (password != null && !password.isBlank() && password.length() < 4) {
-            throw new WeakPasswordException("Password must be at least 4 characters long");
+        if (count > maxBatchFiles) {
+            throw new BatchSizeExceededException(
+                String.format("Batch contains %d files, maximum allowed is %d", count, maxBatchFiles)
+            );
         }
+        try (TransferMetrics.UploadTimer timer = transferMetrics.startUpload(TransferMetrics.MODE_BATCH)) {
+            files.forEach(this::validateFile);
+
+            Integer expirationDays = validateExpirationDays(request);
+            String password = validatePassword(request);
+            timer.stage(TransferMetrics.STAGE_VALIDATION);
+
+            // 2. Tokens, expiration et hash communs au lot
+            List<String> downloadTokens = tokenGeneratorService.generateUniqueTokens(count);
+            timer.stage(TransferMetrics.STAGE_TOKEN);
+            LocalDateTime expirationDate = calculateExpirationDate(expirationDays);
+            String passwordHash = hashPassword(password);
+            timer.stage(TransferMetrics.STAGE_HASHING);
+
+            // 3. Copier les fichiers en parallèle (analyse du contenu, compression selon le MIME type)
+            List<String> mimeTypes = files.stream().map(storageService::detectMimeType).toList();
+            List<StoredFile> storedFiles = storeFilesInParallel(files, mimeTypes, user.getId(), expirationDate);
+            timer.stage(TransferMetrics.STAGE_STORAGE);
+
+            // 4. Insérer toutes les métadonnées en une seule fois (batch JDBC)
+            List<File> fileEntities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                fileEntities.add(buildFileEntity(files.get(i), user, storedFiles.get(i),
+                        downloadTokens.get(i), passwordHash, expirationDate));
+            }
 
-        // 3. Générer token unique
-        String downloadToken = tokenGeneratorService.generateUniqueToken();
-
-        // 4. Calculer expiration date
-        LocalDateTime expirationDate = calculateExpirationDate(expirationDays);
-
-        // 5. Détecter MIME type
-        String mimeType = storageService.detectMimeType(file);
+            // Transaction propre à saveAllAndFlush : un échec (contrainte, connexion perdue), au flush
+            // comme au commit, est levé ici et les fichiers copiés ne restent pas orphelins
+            List<File> savedFiles;
+            try {
+                savedFiles = fileRepository.saveAllAndFlush(fileEntities);
+            } catch (RuntimeException e) {
+                storedFiles.forEach(storedFile -> storageService.deleteFile(storedFile.filepath()));
+                throw e;
+            }
+            timer.stage(TransferMetrics.STAGE_DATABASE);
+
+            // 5. Construire les DTOs avec les liens de téléchargement
+            List<FileUploadResponseDto> responses = new ArrayList<>(count);
+            long totalSize = 0;
+            for (File savedFile : savedFiles) {
+                FileUploadResponseDto response = fileMapper.toUploadResponse(savedFile);
+                response.setDownloadUrl(buildDownloadUrl(savedFile.getDownloadToken()));
+                responses.add(response);
+                totalSize += savedFile.getFileSize();
+            }
 
-        // 6. Hasher password si fourni (BCrypt)
-        String passwordHash = null;
-        if (password != null && !password.isBlank()) {
-            passwordHash = passwordEncoder.encode(password);
-            log.debug("Password hashed for file upload");
+            log.info("Batch upload completed successfully: {} files ({} bytes)", count, totalSize);
+            timer.completed(totalSize);
+            return new FileBatchUploadResponseDto(responses, count, totalSize);
         }
+    }
 
-        // 7. Appeler FileStorageService.storeFile()
-        String filepath = storageService.storeFile(file, user.getId());
-        log.debug("File stored at: {}", filepath);
-
-        // 8. Sauvegarder métadonnées en DB
-        File fileEntity = new File();
-        fileEntity.setUser(user);
-        fileEntity.setFilename(generateSafeFilename(file.getOriginalFilename()));
-        fileEntity.setOriginalFilename(file.getOriginalFilename());
-        fileEntity.setFilepath(filepath);
-        fileEntity.setFileSize(file.getSize());
-        fileEntity.setMimeType(mimeType);
-        fileEntity.setDownloadToken(downloadToken);
-        fileEntity.setPasswordHash(passwordHash);
-        fileEntity.setExpirationDate(expirationDate);
+    /**
+     * Stocke un fichier et transmet la durée d'écriture au limiteur d'uploads simultanés.
+     */
+    private StoredFile storeFile(MultipartFile file, Long userId, String mimeType, LocalDateTime expirationDate)
+            throws IOException {
+        long start = System.nanoTime();
+        StoredFile storedFile = storageService.storeFile(file, userId, mimeType, expirationDate);
+        uploadConcurrencyLimiter.recordStoreLatency(System.nanoTime() - start, file.getSize());
+        return storedFile;
+    }
 
-        File savedFile = fileRepository.save(fileEntity);
-        log.info("File metadata saved with id: {}", savedFile.getId());
+    /**
+     * Copie les fichiers d'un lot en parallèle sur l'exécuteur de stockage.
+     * <p>
+     * Si une copie échoue, les fichiers déjà copiés sont supprimés.
+     *
+     * @param files Les fichiers à copier
+     * @param mimeTypes Les types MIME déclarés, dans l'ordre du lot
+     * @param userId L'identifiant de l'utilisateur
+     * @param expirationDate La date d'expiration commune au lot
+     * @return Les fichiers stockés, dans l'ordre du lot
+     * @throws IOException Si une copie échoue
+     */
+    private List<StoredFile> storeFilesInParallel(List<MultipartFile> files, List<String> mimeTypes, Long userId,
+                                                  LocalDateTime expirationDate) throws IOException {
+        List<CompletableFuture<StoredFile>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String mimeType = mimeTypes.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return storeFile(file, userId, mimeType, expirationDate);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, storageExecutor));
+        }
 
-        // 9. Construire downloadUrl
-        FileUploadResponseDto response = fileMapper.toUploadResponse(savedFile);
-        String downloadUrl = buildDownloadUrl(downloadToken);
-        response.setDownloadUrl(downloadUrl);
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // Nettoyer les fichiers copiés avec succès avant de propager l'erreur
+            futures.stream()
+                .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                .map(CompletableFuture::join)
+                .forEach(storedFile -> storageService.deleteFile(storedFile.filepath()));
+
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
 
-        // 10. Retourner DTO
-        log.info("File upload completed successfully: {} ({} bytes)", 
-            savedFile.getFilename(), savedFile.getFileSize());
-        
-        return response;
+        return futures.stream().map(CompletableFuture::join).toList();
     }
 
     /**
@@ -167,7 +322,7 @@ public class FileService {
      */
     @Transactional(readOnly = true)
     public FileListResponseDto listUserFiles(User user, Integer page, Integer size, String sortParam, Boolean includeExpired) {
-        log.info("Listing files for user: {} (id={}) - page={}, size={}, sort={}, includeExpired={}", 
+        log.debug("Listing files for user: {} (id={}) - page={}, size={}, sort={}, includeExpired={}", 
             user.getLogin(), user.getId(), page, size, sortParam, includeExpired);
 
         // Valider et normaliser les paramètres
@@ -209,7 +364,7 @@ public class FileService {
         response.setCurrentPage(filePage.getNumber());
         response.setPageSize(filePage.getSize());
 
-        log.info("Found {} files for user {} (page {}/{})", 
+        log.debug("Found {} files for user {} (page {}/{})", 
             fileDtos.size(), user.getId(), pageNumber + 1, filePage.getTotalPages());
 
         return response;
@@ -258,12 +413,12 @@ public class FileService {
      */
     @Transactional
     public void deleteFile(java.util.UUID fileId, User user) {
-        log.info("Delete file request from user: {} (id={}) for file: {}", user.getLogin(), user.getId(), fileId);
+        log.debug("Delete file request from user: {} (id={}) for file: {}", user.getLogin(), user.getId(), fileId);
 
         // 1. Vérifier que le fichier existe et appartient à l'utilisateur
         File file = fileRepository.findByIdAndUser_Id(fileId, user.getId())
                 .orElseThrow(() -> {
-                    log.warn("File not found or user not owner: fileId={}, userId={}", fileId, user.getId());
+                    NOT_OWNER_LOG.log("File not found or user not owner: fileId={}, userId={}", fileId, user.getId());
                     // Vérifier si le fichier existe mais n'appartient pas à l'utilisateur
                     if (fileRepository.findById(fileId).isPresent()) {
                         return new ForbiddenFileAccessException(
@@ -279,6 +434,7 @@ public class FileService {
 
         // 2. Supprimer le fichier physique du système de fichiers
         storageService.deleteFile(file.getFilepath());
+        hotFileCache.invalidate(file.getId());
         log.debug("Physical file deleted: {}", file.getFilepath());
 
         // 3. Supprimer les métadonnées en base de données
@@ -286,6 +442,101 @@ public class FileService {
         log.info("File deleted successfully: {} (id={})", file.getOriginalFilename(), fileId);
     }
 
+    /**
+     * Valide un fichier uploadé : taille maximale, fichier non vide et MIME type.
+     *
+     * @param file Le fichier à valider
+     * @throws FileSizeExceededException Si le fichier dépasse 1 GB
+     * @throws EmptyFileException Si le fichier est vide
+     */
+    private void validateFile(MultipartFile file) {
+        // Valider taille fichier (< 1 GB)
+        if (file.getSize() > maxFileSize) {
+            throw new FileSizeExceededException(
+                String.format("File size %d bytes exceeds maximum allowed size of %d bytes", 
+                    file.getSize(), maxFileSize)
+            );
+        }
+
+        // Valider fichier non vide
+        if (file.isEmpty() || file.getSize() == 0) {
+            throw new EmptyFileException("Cannot upload empty file");
+        }
+
+        // Valider MIME type (optionnel)
+        mimeTypeValidator.validateOrThrow(file);
+    }
+
+    /**
+     * Valide la durée d'expiration demandée (7 jours par défaut).
+     *
+     * @param request Les paramètres de l'upload
+     * @return La durée d'expiration en jours
+     * @throws InvalidExpirationException Si la durée n'est pas comprise entre 1 et 7 jours
+     */
+    private Integer validateExpirationDays(FileUploadRequestDto request) {
+        Integer expirationDays = request.getExpirationDays() != null ? request.getExpirationDays() : 7;
+        if (expirationDays < 1 || expirationDays > 7) {
+            throw new InvalidExpirationException(
+                String.format("Expiration days must be between 1 and 7, got: %d", expirationDays)
+            );
+        }
+        return expirationDays;
+    }
+
+    /**
+     * Valide le mot de passe optionnel de l'upload.
+     *
+     * @param request Les paramètres de l'upload
+     * @return Le mot de passe, ou null s'il n'est pas fourni
+     * @throws WeakPasswordException Si le mot de passe est trop court
+     */
+    private String validatePassword(FileUploadRequestDto request) {
+        String password = request.getPassword();
+        if (password != null && !password.isBlank() && password.length() < 4) {
+            throw new WeakPasswordException("Password must be at least 4 characters long");
+        }
+        return password;
+    }
+
+    /**
+     * Hash le mot de passe avec BCrypt s'il est fourni.
+     *
+     * @param password Le mot de passe en clair (optionnel)
+     * @return Le hash BCrypt, ou null si aucun mot de passe
+     */
+    private String hashPassword(String password) {
+        if (password == null || password.isBlank()) {
+            return null;
+        }
+        String passwordHash = passwordEncoder.encode(password);
+        log.debug("Password hashed for file upload");
+        return passwordHash;
+    }
+
+    /**
+     * Construit l'entité File à sauvegarder pour un fichier stocké.
+     */
+    private File buildFileEntity(MultipartFile file, User user, StoredFile storedFile,
+                                 String downloadToken, String passwordHash, LocalDateTime expirationDate) {
+        File fileEntity = new File();
+        fileEntity.setUser(user);
+        fileEntity.setFilename(generateSafeFilename(file.getOriginalFilename()));
+        fileEntity.setOriginalFilename(file.getOriginalFilename());
+        fileEntity.setFilepath(storedFile.filepath());
+        fileEntity.setStorageCodec(storedFile.codec());
+        if (storedFile.segmentOffset() != null) {
+            fileEntity.setSegmentOffset(storedFile.segmentOffset());
+            fileEntity.setSegmentLength(storedFile.storedSize());
+        }
+        fileEntity.setFileSize(file.getSize());
+        fileEntity.setMimeType(storedFile.mimeType());
+        fileEntity.setDownloadToken(downloadToken);
+        fileEntity.setPasswordHash(passwordHash);
+        fileEntity.setExpirationDate(expirationDate);
+        return fileEntity;
+    }
+
     /**
      * Calcule la date d'expiration à partir du nombre de jours.
      * 
@@ -315,7 +566,7 @@ public class FileService {
      * @param originalFilename Le nom de fichier original
      * @return Un nom de fichier sécurisé
      */
-    private String generateSafeFilename(String originalFilename) {
+    static String generateSafeFilename(String originalFilename) {
         if (originalFilename == null || originalFilename.isBlank()) {
             return "unnamed";
         }
@@ -337,6 +588,15 @@ public class FileService {
         }
     }
 
+    /**
+     * Exception levée quand un lot d'upload est vide ou contient trop de fichiers.
+     */
+    public static class BatchSizeExceededException extends RuntimeException {
+        public BatchSizeExceededException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Exception levée quand un fichier vide est uploadé.
      */
@@ -1,20 +1,43 @@
 package com.openclassrooms.datashare.service;
 
+import com.openclassrooms.datashare.entities.StorageCodec;
+import com.openclassrooms.datashare.monitoring.jfr.StorageEvent;
+import com.openclassrooms.datashare.validation.MagicNumberSniffer;
+import com.openclassrooms.datashare.validation.MimeTypeValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileStore;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 /**
  * Service de gestion physique des fichiers sur le système de fichiers.
@@ -23,23 +46,93 @@ import java.util.UUID;
  * - Stockage des fichiers uploadés avec organisation par utilisateur et date
  * - Chargement des fichiers depuis le filesystem
  * - Suppression physique des fichiers
- * - Détection du type MIME des fichiers
+ * - Détection du type MIME des fichiers (extension, puis contenu pendant la copie)
+ * - Compression transparente optionnelle des types textuels
+ * <p>
+ * Un fichier est d'abord écrit dans le répertoire de préparation ({@value #STAGING_DIRECTORY}, sur le même volume),
+ * puis renommé atomiquement à son emplacement définitif : un fichier visible sous son chemin final est
+ * toujours complet, même après un arrêt brutal pendant la copie. Le fichier est forcé sur disque avant
+ * son renommage selon {@code app.storage.durability} ({@link StorageDurability}).
+ * <p>
+ * Les fichiers d'au plus {@code app.storage.packing.threshold} octets peuvent être regroupés dans des
+ * segments ({@link SegmentStore}) plutôt que stockés chacun dans son fichier.
+ * <p>
+ * Avant la copie, la taille annoncée du fichier est réservée sur le volume : un upload qui ne tiendrait
+ * pas est refusé immédiatement ({@link InsufficientStorageException}), et non après l'écriture de
+ * plusieurs centaines de Mo.
  */
 @Service
 @Slf4j
 public class FileStorageService {
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Suffixe des variantes gzip générées à côté d'un fichier stocké brut
+     * (voir CompressedVariantService).
+     */
+    public static final String GZIP_VARIANT_SUFFIX = ".gz";
+
+    /**
+     * Répertoire de préparation des uploads, à la racine du stockage.
+     */
+    public static final String STAGING_DIRECTORY = ".staging";
+
+    private static final String STAGING_SUFFIX = ".part";
+
     private final Path storageLocation;
+    private final Path stagingLocation;
     private final long maxFileSize;
+    private final SegmentStore segmentStore;
+    private final FileStore fileStore;
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    @Value("${app.storage.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${app.storage.compression.min-size:1024}")
+    private long compressionMinSize;
+
+    @Value("${app.storage.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${app.storage.durability:none}")
+    private StorageDurability durability = StorageDurability.NONE;
+
+    @Value("${app.storage.group-commit.window:2ms}")
+    private Duration groupCommitWindow = Duration.ofMillis(2);
+
+    @Value("${app.storage.group-commit.max-batch:256}")
+    private int groupCommitMaxBatch = 256;
+
+    @Value("${app.storage.layout:dated}")
+    private StorageLayout layout = StorageLayout.DATED;
+
+    @Value("${app.storage.directory-cache.max-entries:10000}")
+    private int directoryCacheMaxEntries = 10000;
+
+    @Value("${app.storage.min-free-space:512MB}")
+    private DataSize minFreeSpace = DataSize.ofMegabytes(512);
+
+    @Value("${app.storage.staging.orphan-grace:10m}")
+    private Duration orphanGrace = Duration.ofMinutes(10);
+
+    private FilePublisher publisher = new FilePublisher(StorageDurability.NONE, Duration.ZERO, 1);
+    private DirectoryCache directoryCache = new DirectoryCache(10000);
 
     public FileStorageService(
             @Value("${app.storage.path}") String storagePath,
-            @Value("${app.file.max-size}") long maxFileSize) throws FileStorageException {
+            @Value("${app.file.max-size}") long maxFileSize,
+            SegmentStore segmentStore) throws FileStorageException {
         this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
+        this.stagingLocation = this.storageLocation.resolve(STAGING_DIRECTORY);
         this.maxFileSize = maxFileSize;
+        this.segmentStore = segmentStore;
         
         try {
             Files.createDirectories(this.storageLocation);
+            Files.createDirectories(this.stagingLocation);
+            this.fileStore = Files.getFileStore(this.storageLocation);
             log.info("Storage location initialized: {}", this.storageLocation);
         } catch (IOException e) {
             log.error("Could not create storage directory", e);
@@ -48,9 +141,9 @@ public class FileStorageService {
     }
 
     /**
-     * Stocke un fichier uploadé sur le système de fichiers.
+     * Stocke un fichier uploadé sur le système de fichiers, sans type MIME déclaré.
      * <p>
-     * Organisation : /storage/{userId}/{yyyy}/{mm}/{dd}/{UUID}_{filename}
+     * Organisation : /storage/{userId}/{yyyy}/{mm}/{dd}/{UUID}_{filename} (voir {@link StorageLayout})
      * 
      * @param file Le fichier à stocker
      * @param userId L'identifiant de l'utilisateur
@@ -58,6 +151,65 @@ public class FileStorageService {
      * @throws FileStorageException Si le fichier ne peut pas être stocké
      */
     public String storeFile(MultipartFile file, Long userId) throws FileStorageException {
+        return storeFile(file, userId, null).filepath();
+    }
+
+    /**
+     * Stocke un fichier uploadé, compressé si son type MIME s'y prête.
+     * <p>
+     * Organisation : /storage/{userId}/{yyyy}/{mm}/{dd}/{UUID}_{filename} (voir {@link StorageLayout})
+     * <p>
+     * Le type MIME réel est détecté d'après les premiers octets du flux (magic numbers),
+     * pendant l'unique lecture de la copie : un exécutable renommé est refusé avant
+     * l'écriture du moindre octet sur disque.
+     * <p>
+     * Si la compression est activée, les types textuels (CSV, JSON, logs...) d'au moins
+     * {@code app.storage.compression.min-size} octets sont compressés à la volée pendant la copie.
+     * Le codec et le type MIME retournés doivent être enregistrés avec les métadonnées du fichier.
+     * 
+     * @param file Le fichier à stocker
+     * @param userId L'identifiant de l'utilisateur
+     * @param declaredMimeType Le type MIME déduit de l'extension ou fourni par le client (peut être null)
+     * @return Le chemin relatif, le codec appliqué, la taille sur disque et le type MIME retenu
+     * @throws FileStorageException Si le fichier ne peut pas être stocké
+     * @throws MimeTypeValidator.InvalidMimeTypeException Si le contenu est d'un type bloqué
+     */
+    public StoredFile storeFile(MultipartFile file, Long userId, String declaredMimeType) throws FileStorageException {
+        return storeFile(file, userId, declaredMimeType, null);
+    }
+
+    /**
+     * Stocke un fichier uploadé dont la date d'expiration est connue.
+     * <p>
+     * En organisation EXPIRY, le fichier est rangé dans le bucket de son heure d'expiration
+     * (voir {@link StorageLayout#EXPIRY}) ; les autres organisations ignorent la date.
+     *
+     * @param file Le fichier à stocker
+     * @param userId L'identifiant de l'utilisateur
+     * @param declaredMimeType Le type MIME déduit de l'extension ou fourni par le client (peut être null)
+     * @param expiresAt La date d'expiration du fichier (peut être null)
+     * @return Le chemin relatif, le codec appliqué, la taille sur disque et le type MIME retenu
+     * @throws FileStorageException Si le fichier ne peut pas être stocké
+     * @throws MimeTypeValidator.InvalidMimeTypeException Si le contenu est d'un type bloqué
+     */
+    public StoredFile storeFile(MultipartFile file, Long userId, String declaredMimeType, LocalDateTime expiresAt)
+            throws FileStorageException {
+        StorageEvent event = StorageEvent.start(StorageEvent.STORE);
+        event.setContentSize(file.getSize());
+        try {
+            StoredFile storedFile = writeToStorage(file, userId, declaredMimeType, expiresAt);
+            event.setFilepath(storedFile.filepath());
+            event.setStoredSize(storedFile.storedSize());
+            event.setCodec(storedFile.codec().name());
+            event.setSuccess(true);
+            return storedFile;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private StoredFile writeToStorage(MultipartFile file, Long userId, String declaredMimeType, LocalDateTime expiresAt)
+            throws FileStorageException {
         // Validation fichier non vide
         if (file.isEmpty()) {
             throw new FileStorageException("Cannot store empty file");
@@ -70,48 +222,324 @@ public class FileStorageService {
             );
         }
 
+        // Réservation de la place sur le volume, libérée une fois le fichier publié ou abandonné
+        reserveSpace(file.getSize());
+        try {
+            return copyToStorage(file, userId, declaredMimeType, expiresAt);
+        } finally {
+            reservedBytes.addAndGet(-file.getSize());
+        }
+    }
+
+    /**
+     * Réserve la place d'un fichier sur le volume de stockage.
+     * <p>
+     * L'espace disponible doit couvrir le fichier, les uploads déjà en cours et la marge
+     * {@code app.storage.min-free-space}. Les uploads en cours ayant déjà écrit une partie de leur
+     * contenu sont comptés deux fois pour cette partie : l'estimation est prudente.
+     *
+     * @param size La taille annoncée du fichier
+     * @throws InsufficientStorageException Si le volume ne peut pas contenir le fichier
+     */
+    private void reserveSpace(long size) throws FileStorageException {
+        long reserved = reservedBytes.addAndGet(size);
+        long usable;
+        try {
+            usable = fileStore.getUsableSpace();
+        } catch (IOException e) {
+            reservedBytes.addAndGet(-size);
+            throw new FileStorageException("Could not read available storage space", e);
+        }
+
+        if (usable - reserved < minFreeSpace.toBytes()) {
+            reservedBytes.addAndGet(-size);
+            log.warn("Insufficient storage: {} bytes requested, {} bytes usable, {} bytes reserved by uploads in progress",
+                    size, usable, reserved - size);
+            throw new InsufficientStorageException(
+                String.format("Insufficient storage space for a file of %d bytes", size)
+            );
+        }
+    }
+
+    private StoredFile copyToStorage(MultipartFile file, Long userId, String declaredMimeType, LocalDateTime expiresAt)
+            throws FileStorageException {
         // Génération du nom de fichier unique
         String originalFilename = file.getOriginalFilename();
         if (originalFilename == null || originalFilename.isBlank()) {
             originalFilename = "unnamed";
         }
         
-        String uniqueFilename = UUID.randomUUID() + "_" + originalFilename;
+        UUID fileId = UUID.randomUUID();
+        String uniqueFilename = fileId + "_" + originalFilename;
 
-        // Construction du chemin organisé par date
-        LocalDateTime now = LocalDateTime.now();
-        String year = now.format(DateTimeFormatter.ofPattern("yyyy"));
-        String month = now.format(DateTimeFormatter.ofPattern("MM"));
-        String day = now.format(DateTimeFormatter.ofPattern("dd"));
-
-        // Chemin relatif : {userId}/{yyyy}/{mm}/{dd}
-        String relativePath = String.format("%d/%s/%s/%s", userId, year, month, day);
+        // Chemin relatif selon app.storage.layout : {userId}/{yyyy}/{mm}/{dd}[/{xx}] ou expiry/{yyyy}/{mm}/{dd}/{HH}/{xx}
+        String relativePath = layout.directory(userId, fileId, LocalDateTime.now(), expiresAt);
         
         // Chemin complet du répertoire
         Path targetDirectory = this.storageLocation.resolve(relativePath);
         
-        try {
-            // Création des répertoires si nécessaire
-            Files.createDirectories(targetDirectory);
-            
-            // Chemin complet du fichier
+        Path stagedFile = null;
+        try (InputStream in = new BufferedInputStream(file.getInputStream(), COPY_BUFFER_SIZE)) {
+            // Détection du type réel sur les premiers octets, relus ensuite par la copie
+            in.mark(MagicNumberSniffer.SNIFF_LENGTH);
+            byte[] head = in.readNBytes(MagicNumberSniffer.SNIFF_LENGTH);
+            in.reset();
+
+            String sniffedMimeType = MagicNumberSniffer.sniff(head, head.length);
+            String mimeType = MagicNumberSniffer.resolve(sniffedMimeType, declaredMimeType);
+            if (MimeTypeValidator.isBlockedMimeType(mimeType)) {
+                log.warn("Blocked content type detected: {} for file: {} (declared: {})", 
+                    mimeType, originalFilename, declaredMimeType);
+                throw new MimeTypeValidator.InvalidMimeTypeException(
+                    String.format("File type not allowed: %s (MIME: %s)", originalFilename, mimeType)
+                );
+            }
+
+            StorageCodec codec = selectCodec(mimeType, file.getSize());
+            if (segmentStore.accepts(file.getSize())) {
+                return pack(in, codec, mimeType, file.getSize());
+            }
+
+            // Copie dans le répertoire de préparation, compressée si le type s'y prête
+            stagedFile = stagingLocation.resolve(UUID.randomUUID() + STAGING_SUFFIX);
+            try (OutputStream out = codec.encode(
+                    Files.newOutputStream(stagedFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                    compressionLevel)) {
+                in.transferTo(out);
+            }
+            long storedSize = Files.size(stagedFile);
+
+            // Publication atomique du fichier complet
+            // (forcé sur disque avant le renommage selon app.storage.durability)
             Path targetFile = targetDirectory.resolve(uniqueFilename);
-            
-            // Copie du fichier
-            Files.copy(file.getInputStream(), targetFile, StandardCopyOption.REPLACE_EXISTING);
+            publish(stagedFile, targetFile);
+            stagedFile = null;
             
             // Retour du chemin relatif complet
             String fullRelativePath = relativePath + "/" + uniqueFilename;
-            log.info("File stored successfully: {}", fullRelativePath);
+            log.info("File stored successfully: {} (type={}, codec={}, {} -> {} bytes)", 
+                fullRelativePath, mimeType, codec, file.getSize(), storedSize);
             
-            return fullRelativePath;
+            return new StoredFile(fullRelativePath, codec, storedSize, mimeType);
             
         } catch (IOException e) {
             log.error("Failed to store file: {}", uniqueFilename, e);
             throw new FileStorageException("Failed to store file: " + uniqueFilename, e);
+        } finally {
+            if (stagedFile != null) {
+                deleteStagedFile(stagedFile);
+            }
         }
     }
 
+    /**
+     * Ajoute un petit fichier au segment actif, au lieu de lui créer son propre fichier.
+     */
+    private StoredFile pack(InputStream in, StorageCodec codec, String mimeType, long size) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) size);
+        try (OutputStream out = codec.encode(content, compressionLevel)) {
+            in.transferTo(out);
+        }
+        SegmentStore.Entry entry = segmentStore.append(content.toByteArray());
+        log.info("File packed successfully: {}@{} (type={}, codec={}, {} -> {} bytes)",
+            entry.filepath(), entry.offset(), mimeType, codec, size, entry.length());
+        return new StoredFile(entry.filepath(), codec, entry.length(), mimeType, entry.offset());
+    }
+
+    /**
+     * Publie un fichier préparé, en créant son répertoire s'il n'est pas déjà connu.
+     * <p>
+     * Si un répertoire connu a disparu entre-temps (suppression manuelle, purge), il est oublié,
+     * recréé, et la publication est retentée une fois.
+     */
+    private void publish(Path stagedFile, Path targetFile) throws IOException {
+        Path directory = targetFile.getParent();
+        if (!directoryCache.contains(directory)) {
+            Files.createDirectories(directory);
+            directoryCache.add(directory);
+        }
+        try {
+            publisher.publish(stagedFile, targetFile);
+        } catch (NoSuchFileException e) {
+            log.warn("Storage directory disappeared, recreating it: {}", directory);
+            directoryCache.removeTree(directory);
+            Files.createDirectories(directory);
+            directoryCache.add(directory);
+            publisher.publish(stagedFile, targetFile);
+        }
+    }
+
+    /**
+     * Applique la politique de persistance configurée, puis nettoie le répertoire de préparation.
+     */
+    @PostConstruct
+    public void initialize() {
+        publisher = new FilePublisher(durability, groupCommitWindow, groupCommitMaxBatch);
+        directoryCache = new DirectoryCache(directoryCacheMaxEntries);
+        log.info("Storage durability: {}, layout: {}", durability, layout);
+        recoverStagingArea();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        publisher.stop();
+    }
+
+    /**
+     * Supprime les fichiers de préparation laissés par un arrêt brutal pendant un upload.
+     * <p>
+     * Exécuté au démarrage puis périodiquement, en parallèle. Seuls les fichiers non modifiés depuis
+     * {@code app.storage.staging.orphan-grace} sont supprimés : un upload en cours sur une autre
+     * instance partageant le volume n'est pas interrompu. Les orphelins d'un redémarrage rapide,
+     * trop récents au démarrage, sont supprimés par un passage suivant.
+     *
+     * @return Le nombre de fichiers supprimés
+     */
+    @Scheduled(cron = "${app.storage.staging.recovery-cron:0 */15 * * * *}")
+    public int recoverStagingArea() {
+        long start = System.nanoTime();
+        FileTime threshold = FileTime.from(Instant.now().minus(orphanGrace));
+
+        List<Path> orphans;
+        try (Stream<Path> staged = Files.list(stagingLocation)) {
+            orphans = staged.filter(path -> isOrphan(path, threshold)).toList();
+        } catch (IOException e) {
+            log.warn("Could not scan staging directory: {}", stagingLocation, e);
+            return 0;
+        }
+
+        long deleted = orphans.parallelStream().filter(FileStorageService::deleteStagedFile).count();
+        if (!orphans.isEmpty()) {
+            log.info("Staging recovery: {} orphaned files deleted in {} ms",
+                    deleted, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        return (int) deleted;
+    }
+
+    /**
+     * Supprime d'un bloc les buckets de l'organisation EXPIRY dont l'heure est passée.
+     * <p>
+     * Tous les fichiers d'un bucket expirent au plus tard à son heure : le répertoire entier est
+     * supprimé sans consulter la base, puis les répertoires de jour, mois et année devenus vides.
+     * Les lignes {@code files} restent, et les téléchargements des fichiers expirés sont refusés
+     * avant tout accès disque.
+     *
+     * @return Le nombre de fichiers supprimés
+     */
+    @Scheduled(cron = "${app.storage.expiry-sweep.cron:0 5 * * * *}")
+    public int sweepExpiredBuckets() {
+        Path root = storageLocation.resolve(StorageLayout.EXPIRY_DIRECTORY);
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<Path> expired;
+        // expiry/{yyyy}/{mm}/{dd}/{HH}
+        try (Stream<Path> buckets = Files.find(root, 4,
+                (path, attributes) -> attributes.isDirectory() && root.relativize(path).getNameCount() == 4)) {
+            expired = buckets.filter(bucket -> isExpiredBucket(root.relativize(bucket), now)).toList();
+        } catch (IOException e) {
+            log.warn("Could not scan expiry buckets: {}", root, e);
+            return 0;
+        }
+
+        int deleted = 0;
+        for (Path bucket : expired) {
+            directoryCache.removeTree(bucket);
+            deleted += deleteTree(bucket);
+            deleteEmptyParents(bucket.getParent(), root);
+        }
+        if (!expired.isEmpty()) {
+            log.info("Expiry sweep: {} buckets, {} files deleted in {} ms",
+                    expired.size(), deleted, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        return deleted;
+    }
+
+    private static boolean isExpiredBucket(Path bucket, LocalDateTime now) {
+        try {
+            LocalDateTime hour = LocalDateTime.of(
+                    Integer.parseInt(bucket.getName(0).toString()),
+                    Integer.parseInt(bucket.getName(1).toString()),
+                    Integer.parseInt(bucket.getName(2).toString()),
+                    Integer.parseInt(bucket.getName(3).toString()), 0);
+            return !hour.isAfter(now);
+        } catch (NumberFormatException | DateTimeException e) {
+            // Répertoire étranger à l'organisation : jamais supprimé
+            return false;
+        }
+    }
+
+    private static int deleteTree(Path directory) {
+        List<Path> paths;
+        try (Stream<Path> tree = Files.walk(directory)) {
+            paths = tree.sorted(Comparator.reverseOrder()).toList();
+        } catch (IOException e) {
+            log.warn("Could not scan expired bucket: {}", directory, e);
+            return 0;
+        }
+
+        int files = 0;
+        for (Path path : paths) {
+            try {
+                boolean regularFile = Files.isRegularFile(path);
+                Files.deleteIfExists(path);
+                if (regularFile) {
+                    files++;
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete expired path: {}", path, e);
+            }
+        }
+        return files;
+    }
+
+    private static void deleteEmptyParents(Path directory, Path root) {
+        for (Path current = directory; current != null && current.startsWith(root) && !current.equals(root);
+                current = current.getParent()) {
+            try {
+                Files.delete(current);
+            } catch (IOException e) {
+                // Répertoire non vide (autres buckets) ou déjà supprimé
+                return;
+            }
+        }
+    }
+
+    private static boolean isOrphan(Path path, FileTime threshold) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).compareTo(threshold) < 0;
+        } catch (IOException e) {
+            // Fichier déjà déplacé ou supprimé
+            return false;
+        }
+    }
+
+    private static boolean deleteStagedFile(Path stagedFile) {
+        try {
+            return Files.deleteIfExists(stagedFile);
+        } catch (IOException e) {
+            log.warn("Could not delete staged file: {}", stagedFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Choisit le codec de stockage d'un fichier selon son type MIME et sa taille.
+     * 
+     * @param mimeType Le type MIME détecté (null : pas de compression)
+     * @param size La taille du fichier original
+     * @return GZIP pour les types compressibles si la compression est activée, NONE sinon
+     */
+    StorageCodec selectCodec(String mimeType, long size) {
+        if (!compressionEnabled || size < compressionMinSize) {
+            return StorageCodec.NONE;
+        }
+        return CompressibleMimeTypes.isCompressible(mimeType) ? StorageCodec.GZIP : StorageCodec.NONE;
+    }
+
     /**
      * Charge un fichier depuis le système de fichiers.
      * 
@@ -120,6 +548,8 @@ public class FileStorageService {
      * @throws FileStorageException Si le fichier n'existe pas ou ne peut pas être lu
      */
     public Resource loadFileAsResource(String filepath) throws FileStorageException {
+        StorageEvent event = StorageEvent.start(StorageEvent.LOAD);
+        event.setFilepath(filepath);
         try {
             Path filePath = this.storageLocation.resolve(filepath).normalize();
             
@@ -135,6 +565,8 @@ public class FileStorageService {
             }
             
             log.debug("File loaded successfully: {}", filepath);
+            event.setStoredSize(resource.contentLength());
+            event.setSuccess(true);
             return resource;
             
         } catch (FileStorageException e) {
@@ -142,17 +574,28 @@ public class FileStorageService {
         } catch (Exception e) {
             log.error("Failed to load file: {}", filepath, e);
             throw new FileStorageException("Failed to load file: " + filepath, e);
+        } finally {
+            event.commit();
         }
     }
 
     /**
-     * Supprime un fichier du système de fichiers.
+     * Supprime un fichier du système de fichiers, ainsi que sa variante compressée éventuelle.
+     * <p>
+     * Un segment, partagé par plusieurs fichiers, n'est jamais supprimé ici : l'entrée n'étant plus
+     * référencée, sa place est récupérée par la compaction ({@link SegmentStore#compact()}).
      * <p>
      * Gestion des erreurs silencieuse avec log warning si échec.
      * 
      * @param filepath Le chemin relatif du fichier à supprimer
      */
     public void deleteFile(String filepath) {
+        if (SegmentStore.isSegmentPath(filepath)) {
+            log.debug("Packed entry released, reclaimed by compaction: {}", filepath);
+            return;
+        }
+        StorageEvent event = StorageEvent.start(StorageEvent.DELETE);
+        event.setFilepath(filepath);
         try {
             Path filePath = this.storageLocation.resolve(filepath).normalize();
             
@@ -165,47 +608,71 @@ public class FileStorageService {
             if (Files.exists(filePath)) {
                 Files.delete(filePath);
                 log.info("File deleted successfully: {}", filepath);
+                event.setSuccess(true);
             } else {
                 log.warn("File not found for deletion: {}", filepath);
             }
+
+            Path variantPath = filePath.resolveSibling(filePath.getFileName() + GZIP_VARIANT_SUFFIX);
+            if (Files.deleteIfExists(variantPath)) {
+                log.debug("Compressed variant deleted: {}", variantPath);
+            }
             
         } catch (IOException e) {
             log.warn("Failed to delete file: {}", filepath, e);
+        } finally {
+            event.commit();
         }
     }
 
     /**
-     * Détecte le type MIME d'un fichier uploadé.
+     * Détecte le type MIME déclaré d'un fichier uploadé (extension, puis Content-Type du client).
+     * <p>
+     * Simple table en mémoire, sans accès disque. Le type définitif est confirmé
+     * d'après le contenu lors du stockage (voir {@link #storeFile(MultipartFile, Long, String)}).
      * 
      * @param file Le fichier uploadé
      * @return Le type MIME détecté
      */
     public String detectMimeType(MultipartFile file) {
-        try {
-            // Tentative de détection via Files.probeContentType()
-            if (file.getOriginalFilename() != null) {
-                Path tempPath = Paths.get(file.getOriginalFilename());
-                String contentType = Files.probeContentType(tempPath);
-                
-                if (contentType != null && !contentType.isBlank()) {
-                    return contentType;
-                }
-            }
+        // Détection via l'extension du nom de fichier
+        if (file.getOriginalFilename() != null) {
+            String contentType = MediaTypeFactory.getMediaType(file.getOriginalFilename())
+                    .map(MediaType::toString)
+                    .orElse(null);
             
-            // Fallback sur le content type fourni par le client
-            String clientContentType = file.getContentType();
-            if (clientContentType != null && !clientContentType.isBlank()) {
-                return clientContentType;
+            if (contentType != null && !contentType.isBlank()) {
+                return contentType;
             }
-            
-        } catch (IOException e) {
-            log.debug("Could not probe content type", e);
+        }
+        
+        // Fallback sur le content type fourni par le client
+        String clientContentType = file.getContentType();
+        if (clientContentType != null && !clientContentType.isBlank()) {
+            return clientContentType;
         }
         
         // Défaut
         return "application/octet-stream";
     }
 
+    /**
+     * Résultat du stockage d'un fichier.
+     * 
+     * @param filepath Le chemin relatif du fichier stocké
+     * @param codec Le codec appliqué au contenu
+     * @param storedSize La taille occupée sur disque (compressée le cas échéant)
+     * @param mimeType Le type MIME retenu après analyse du contenu
+     * @param segmentOffset La position du contenu si filepath désigne un segment, null sinon
+     */
+    public record StoredFile(String filepath, StorageCodec codec, long storedSize, String mimeType,
+                             Long segmentOffset) {
+
+        public StoredFile(String filepath, StorageCodec codec, long storedSize, String mimeType) {
+            this(filepath, codec, storedSize, mimeType, null);
+        }
+    }
+
     /**
      * Exception personnalisée pour les erreurs de stockage de fichiers.
      */
@@ -218,4 +685,13 @@ public class FileStorageService {
             super(message, cause);
         }
     }
+
+    /**
+     * Exception levée quand le volume de stockage ne peut pas contenir le fichier (HTTP 507).
+     */
+    public static class InsufficientStorageException extends FileStorageException {
+        public InsufficientStorageException(String message) {
+            super(message);
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.cache.OffHeapLfuCache;
+import com.openclassrooms.datashare.entities.File;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Cache en mémoire hors tas des petits fichiers téléchargés souvent.
+ * <p>
+ * Le contenu est conservé tel qu'il est stocké (compressé le cas échéant), indexé par identifiant de fichier,
+ * dans un {@link OffHeapLfuCache} : un fichier populaire est servi depuis la mémoire, sans accès disque
+ * ni copie sur le tas. Un fichier n'est chargé qu'à partir de son deuxième téléchargement récent :
+ * les fichiers téléchargés une seule fois ne sont jamais lus en entier pour rien.
+ * <p>
+ * Une entrée est retirée à la suppression du fichier, et n'est plus servie après son expiration.
+ * <p>
+ * Métriques : datashare.download.cache.requests (result=hit|miss), datashare.download.cache.evictions,
+ * datashare.download.cache.size, datashare.download.cache.entries et datashare.download.cache.hit.ratio.
+ */
+@Slf4j
+@Service
+public class HotFileCache {
+
+    // Téléchargements récents à partir desquels un fichier est chargé en cache
+    private static final int ADMISSION_FREQUENCY = 2;
+
+    private final boolean enabled;
+    private final long maxEntryBytes;
+    private final OffHeapLfuCache<UUID> cache;
+
+    public HotFileCache(MeterRegistry registry,
+                        @Value("${app.download.cache.enabled:false}") boolean enabled,
+                        @Value("${app.download.cache.max-size:256MB}") DataSize maxSize,
+                        @Value("${app.download.cache.max-entry-size:64KB}") DataSize maxEntrySize) {
+        this.enabled = enabled;
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.cache = new OffHeapLfuCache<>(maxSize.toBytes(), maxEntryBytes);
+
+        FunctionCounter.builder("datashare.download.cache.requests", cache, OffHeapLfuCache::hitCount)
+                .description("Téléchargements de petits fichiers, servis ou non depuis le cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("datashare.download.cache.requests", cache, OffHeapLfuCache::missCount)
+                .description("Téléchargements de petits fichiers, servis ou non depuis le cache")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("datashare.download.cache.evictions", cache, OffHeapLfuCache::evictionCount)
+                .description("Contenus évincés ou refusés par l'admission TinyLFU")
+                .register(registry);
+        Gauge.builder("datashare.download.cache.size", cache, OffHeapLfuCache::weightedSize)
+                .description("Mémoire hors tas occupée par les contenus en cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("datashare.download.cache.entries", cache, OffHeapLfuCache::size)
+                .description("Contenus en cache")
+                .register(registry);
+        Gauge.builder("datashare.download.cache.hit.ratio", cache, HotFileCache::hitRatio)
+                .description("Part des téléchargements de petits fichiers servis depuis le cache")
+                .register(registry);
+
+        if (enabled) {
+            log.info("Cache des fichiers populaires activé ({} hors tas, fichiers jusqu'à {})", maxSize, maxEntrySize);
+        }
+    }
+
+    /**
+     * Retourne le contenu stocké du fichier s'il est en cache, et enregistre le téléchargement.
+     *
+     * @param file Le fichier téléchargé
+     * @return Le contenu stocké, servi depuis la mémoire, null s'il n'est pas en cache
+     */
+    public Resource lookup(File file) {
+        if (!isEligible(file)) {
+            return null;
+        }
+        ByteBuffer content = cache.get(file.getId());
+        return content != null ? new BufferResource(content, file.getId()) : null;
+    }
+
+    /**
+     * Charge en cache le contenu stocké d'un fichier absent du cache s'il a été téléchargé récemment.
+     *
+     * @param file Le fichier téléchargé
+     * @param stored Le contenu stocké, lu depuis le disque
+     * @return Le contenu à servir : en mémoire s'il vient d'être chargé, stored sinon
+     * @throws IOException Si la lecture du contenu échoue
+     */
+    public Resource admit(File file, Resource stored) throws IOException {
+        if (!isEligible(file) || cache.frequency(file.getId()) < ADMISSION_FREQUENCY) {
+            return stored;
+        }
+        byte[] content;
+        try (InputStream in = stored.getInputStream()) {
+            content = in.readNBytes((int) maxEntryBytes + 1);
+        }
+        if (content.length > maxEntryBytes) {
+            // Contenu stocké plus gros que prévu (gzip d'un fichier incompressible)
+            return stored;
+        }
+        cache.put(file.getId(), content,
+                file.getExpirationDate().atZone(ZoneId.systemDefault()).toInstant());
+        return new ByteArrayResource(content);
+    }
+
+    /**
+     * Retire un fichier du cache (fichier supprimé).
+     *
+     * @param fileId L'identifiant du fichier
+     */
+    public void invalidate(UUID fileId) {
+        cache.invalidate(fileId);
+    }
+
+    /**
+     * Libère la mémoire des fichiers expirés, qui ne sont déjà plus servis.
+     */
+    @Scheduled(cron = "${app.download.cache.expiry-sweep-cron:0 */5 * * * *}")
+    public void evictExpired() {
+        int evicted = cache.removeExpired();
+        if (evicted > 0) {
+            log.debug("Fichiers expirés retirés du cache: {}", evicted);
+        }
+    }
+
+    private boolean isEligible(File file) {
+        return enabled && file.getFileSize() != null && file.getFileSize() <= maxEntryBytes;
+    }
+
+    private static double hitRatio(OffHeapLfuCache<?> cache) {
+        long hits = cache.hitCount();
+        long total = hits + cache.missCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Contenu en cache, lu directement depuis la mémoire hors tas.
+     */
+    private static final class BufferResource extends AbstractResource {
+
+        private final ByteBuffer content;
+        private final UUID fileId;
+
+        private BufferResource(ByteBuffer content, UUID fileId) {
+            this.content = content;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteBufferInputStream(content.duplicate());
+        }
+
+        @Override
+        public String getDescription() {
+            return "cached file [" + fileId + "]";
+        }
+    }
+
+    /**
+     * Flux de lecture d'une vue de ByteBuffer, copiée par blocs dans les tampons de l'appelant.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
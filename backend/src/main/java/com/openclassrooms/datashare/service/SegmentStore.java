@@ -0,0 +1,386 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.repository.FileRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Stockage groupé des petits fichiers dans des segments en ajout seul.
+ * <p>
+ * Un fichier d'au plus {@code app.storage.packing.threshold} octets n'a pas son propre fichier sur disque :
+ * son contenu (compressé le cas échéant) est ajouté à la fin du segment actif
+ * ({@value #SEGMENT_DIRECTORY}/{UUID}.seg), et sa ligne {@code files} enregistre le chemin du segment,
+ * la position et la longueur du contenu. Ni inode ni entrée de répertoire par fichier ; la lecture est
+ * une lecture positionnelle dans un canal ouvert une fois par segment.
+ * <p>
+ * Un segment n'est jamais modifié. Le compacteur recopie dans le segment actif les entrées encore
+ * valides des segments majoritairement expirés ou supprimés, puis supprime, au passage suivant,
+ * les segments qui ne sont plus référencés.
+ */
+@Slf4j
+@Service
+public class SegmentStore {
+
+    /**
+     * Répertoire des segments, à la racine du stockage.
+     */
+    public static final String SEGMENT_DIRECTORY = "segments";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path storageLocation;
+    private final Path segmentLocation;
+
+    // Canaux de lecture partagés : FileChannel.read(buffer, position) est sûr entre threads
+    private final Map<Path, FileChannel> readers = new ConcurrentHashMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private FileChannel activeChannel;
+    private Path activeSegment;
+    private long activePosition;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Value("${app.storage.packing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.storage.packing.threshold:64KB}")
+    private DataSize threshold = DataSize.ofKilobytes(64);
+
+    @Value("${app.storage.packing.segment-size:1GB}")
+    private DataSize segmentSize = DataSize.ofGigabytes(1);
+
+    @Value("${app.storage.packing.compaction.live-ratio:0.5}")
+    private double compactionLiveRatio = 0.5;
+
+    @Value("${app.storage.packing.compaction.grace:10m}")
+    private Duration compactionGrace = Duration.ofMinutes(10);
+
+    @Value("${app.storage.durability:none}")
+    private StorageDurability durability = StorageDurability.NONE;
+
+    public SegmentStore(@Value("${app.storage.path}") String storagePath) throws IOException {
+        this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
+        this.segmentLocation = this.storageLocation.resolve(SEGMENT_DIRECTORY);
+        Files.createDirectories(this.segmentLocation);
+    }
+
+    /**
+     * Indique si un fichier de cette taille doit être ajouté à un segment.
+     *
+     * @param size La taille du fichier original
+     * @return true si le regroupement est activé et le fichier assez petit
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= threshold.toBytes();
+    }
+
+    /**
+     * @param file Les métadonnées d'un fichier
+     * @return true si son contenu est rangé dans un segment
+     */
+    public static boolean isPacked(File file) {
+        return file.getSegmentOffset() != null;
+    }
+
+    /**
+     * @param filepath Un chemin relatif de fichier stocké
+     * @return true s'il désigne un segment, partagé par plusieurs fichiers
+     */
+    public static boolean isSegmentPath(String filepath) {
+        return filepath.startsWith(SEGMENT_DIRECTORY + "/");
+    }
+
+    /**
+     * Ajoute un contenu à la fin du segment actif.
+     * <p>
+     * Un nouveau segment est ouvert quand l'actif atteindrait {@code app.storage.packing.segment-size}.
+     * Si {@code app.storage.durability} n'est pas NONE, le segment est forcé sur disque avant le retour.
+     *
+     * @param content Le contenu tel qu'il doit être stocké
+     * @return L'emplacement du contenu, à enregistrer avec les métadonnées du fichier
+     * @throws IOException Si l'écriture échoue
+     */
+    public Entry append(byte[] content) throws IOException {
+        appendLock.lock();
+        try {
+            if (activeChannel == null || activePosition + content.length > segmentSize.toBytes()) {
+                openSegment();
+            }
+            long offset = activePosition;
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                activePosition += activeChannel.write(buffer, activePosition);
+            }
+            if (durability != StorageDurability.NONE) {
+                activeChannel.force(false);
+            }
+            return new Entry(relativize(activeSegment), offset, content.length);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Lit le contenu d'un fichier rangé dans un segment, tel qu'il est stocké.
+     *
+     * @param file Les métadonnées du fichier (segment, position, longueur)
+     * @return Le contenu stocké
+     * @throws IOException Si le segment est introuvable ou tronqué
+     */
+    public byte[] read(File file) throws IOException {
+        FileChannel channel = reader(resolve(file.getFilepath()));
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(file.getSegmentLength()));
+        long offset = file.getSegmentOffset();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Truncated segment entry: " + file.getFilepath() + "@" + offset);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Ressource donnant accès au contenu d'un fichier rangé dans un segment, lu à l'ouverture du flux.
+     *
+     * @param file Les métadonnées du fichier
+     * @return La ressource du contenu stocké
+     */
+    public Resource open(File file) {
+        return new SegmentEntryResource(file);
+    }
+
+    /**
+     * Compacte les segments : supprime ceux qui ne sont plus référencés, et recopie dans le segment
+     * actif les entrées valides de ceux dont la part encore valide est inférieure à
+     * {@code app.storage.packing.compaction.live-ratio}.
+     * <p>
+     * Les segments modifiés depuis moins de {@code app.storage.packing.compaction.grace} sont ignorés :
+     * un upload dont la ligne n'est pas encore insérée n'est pas perdu. Un segment vidé par recopie
+     * n'est supprimé qu'au passage suivant, pour qu'un téléchargement ayant lu l'ancien emplacement
+     * aboutisse.
+     *
+     * @return Le nombre d'octets libérés
+     */
+    @Scheduled(cron = "${app.storage.packing.compaction.cron:0 30 3 * * *}")
+    public long compact() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        FileTime threshold = FileTime.from(Instant.now().minus(compactionGrace));
+        // Lu sous le verrou des ajouts : le segment actif change à chaque bascule
+        Path active;
+        appendLock.lock();
+        try {
+            active = activeSegment;
+        } finally {
+            appendLock.unlock();
+        }
+
+        List<Path> segments;
+        try (Stream<Path> paths = Files.list(segmentLocation)) {
+            segments = paths.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .filter(path -> !path.equals(active) && isSealed(path, threshold))
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Could not scan segment directory: {}", segmentLocation, e);
+            return 0;
+        }
+
+        long reclaimed = 0;
+        int deleted = 0;
+        int rewritten = 0;
+        for (Path segment : segments) {
+            try {
+                long size = Files.size(segment);
+                List<File> live = fileRepository.findLiveSegmentEntries(relativize(segment), now);
+                if (live.isEmpty()) {
+                    closeReader(segment);
+                    Files.deleteIfExists(segment);
+                    reclaimed += size;
+                    deleted++;
+                    continue;
+                }
+
+                long liveBytes = live.stream().mapToLong(File::getSegmentLength).sum();
+                if (liveBytes < size * compactionLiveRatio) {
+                    for (File file : live) {
+                        Entry entry = append(read(file));
+                        fileRepository.moveSegmentEntry(file.getId(), entry.filepath(), entry.offset());
+                    }
+                    reclaimed += size - liveBytes;
+                    rewritten++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not compact segment: {}", segment, e);
+            }
+        }
+
+        if (deleted > 0 || rewritten > 0) {
+            log.info("Segment compaction: {} deleted, {} rewritten, {} bytes reclaimed in {} ms",
+                    deleted, rewritten, reclaimed, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        return reclaimed;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (activeChannel != null) {
+                activeChannel.close();
+                activeChannel = null;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path segment : List.copyOf(readers.keySet())) {
+            closeReader(segment);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        activeSegment = segmentLocation.resolve(UUID.randomUUID() + SEGMENT_SUFFIX);
+        activeChannel = FileChannel.open(activeSegment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activePosition = 0;
+        if (durability != StorageDurability.NONE) {
+            // Le nom du segment doit survivre à une coupure, comme son contenu
+            try (FileChannel directory = FileChannel.open(segmentLocation, StandardOpenOption.READ)) {
+                directory.force(true);
+            }
+        }
+        log.info("Segment opened: {}", activeSegment.getFileName());
+    }
+
+    private FileChannel reader(Path segment) throws IOException {
+        FileChannel channel = readers.get(segment);
+        if (channel != null && channel.isOpen()) {
+            return channel;
+        }
+        // Canal absent, ou fermé par l'interruption d'un thread lecteur
+        try {
+            return readers.compute(segment, (path, current) -> {
+                if (current != null && current.isOpen()) {
+                    return current;
+                }
+                try {
+                    return FileChannel.open(path, StandardOpenOption.READ);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void closeReader(Path segment) {
+        FileChannel channel = readers.remove(segment);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close segment reader: {}", segment, e);
+            }
+        }
+    }
+
+    private static boolean isSealed(Path segment, FileTime threshold) {
+        try {
+            return Files.getLastModifiedTime(segment).compareTo(threshold) < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path resolve(String filepath) throws IOException {
+        Path segment = storageLocation.resolve(filepath).normalize();
+        if (!segment.startsWith(segmentLocation)) {
+            throw new IOException("Cannot access segment outside segment directory: " + filepath);
+        }
+        return segment;
+    }
+
+    private String relativize(Path segment) {
+        return storageLocation.relativize(segment).toString().replace('\\', '/');
+    }
+
+    /**
+     * Emplacement d'un contenu dans un segment.
+     *
+     * @param filepath Le chemin relatif du segment
+     * @param offset La position du contenu dans le segment
+     * @param length La longueur du contenu stocké
+     */
+    public record Entry(String filepath, long offset, long length) {
+    }
+
+    /**
+     * Contenu d'une entrée de segment, lu en une lecture positionnelle à l'ouverture du flux.
+     */
+    private final class SegmentEntryResource extends AbstractResource {
+
+        private final File file;
+
+        private SegmentEntryResource(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public boolean exists() {
+            try {
+                return Files.isReadable(resolve(file.getFilepath()));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public long contentLength() {
+            return file.getSegmentLength();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(read(file));
+        }
+
+        @Override
+        public String getDescription() {
+            return "segment entry [" + file.getFilepath() + "@" + file.getSegmentOffset() + "]";
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.datashare.service;
+
+/**
+ * Garantie de persistance des fichiers stockés, au moment où l'upload est confirmé au client.
+ * <p>
+ * Configurée par {@code app.storage.durability} (none, fsync, group-commit).
+ */
+public enum StorageDurability {
+
+    /**
+     * Aucun fsync : le système écrit les données sur disque à son rythme.
+     * Une coupure de courant peut perdre les uploads des dernières secondes.
+     */
+    NONE,
+
+    /**
+     * fsync du fichier avant sa publication, puis de son répertoire, par chaque upload.
+     */
+    FSYNC,
+
+    /**
+     * Mêmes garanties que FSYNC, mais les uploads terminés dans une même fenêtre de temps
+     * sont publiés ensemble par un thread dédié : un seul fsync par répertoire pour le lot.
+     */
+    GROUP_COMMIT
+}
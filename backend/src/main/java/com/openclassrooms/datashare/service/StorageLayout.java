@@ -0,0 +1,80 @@
+package com.openclassrooms.datashare.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Organisation des fichiers stockés sous le répertoire de stockage.
+ * <p>
+ * Configurée par {@code app.storage.layout} (dated, hashed, expiry). Le chemin relatif étant enregistré
+ * avec les métadonnées du fichier, changer d'organisation ne concerne que les nouveaux uploads.
+ */
+public enum StorageLayout {
+
+    /**
+     * {userId}/{yyyy}/{mm}/{dd} : tous les fichiers d'un utilisateur pour une journée
+     * dans un même répertoire.
+     */
+    DATED,
+
+    /**
+     * {userId}/{yyyy}/{mm}/{dd}/{xx} : un niveau de plus, choisi d'après les deux premiers
+     * caractères hexadécimaux de l'UUID du fichier. Un répertoire de journée a au plus
+     * 256 sous-répertoires, chacun recevant 1/256 des uploads.
+     */
+    HASHED,
+
+    /**
+     * expiry/{yyyy}/{mm}/{dd}/{HH}/{xx} : rangement par heure d'expiration, arrondie à l'heure
+     * supérieure. Une fois cette heure passée, tout le répertoire {HH} a expiré et peut être
+     * supprimé d'un bloc, sans consulter la base (voir FileStorageService.sweepExpiredBuckets).
+     */
+    EXPIRY;
+
+    /**
+     * Répertoire racine de l'organisation EXPIRY, à côté des répertoires utilisateurs.
+     */
+    public static final String EXPIRY_DIRECTORY = "expiry";
+
+    /**
+     * Calcule le répertoire relatif d'un nouveau fichier.
+     *
+     * @param userId L'identifiant de l'utilisateur
+     * @param fileId L'UUID qui préfixe le nom du fichier stocké
+     * @param uploadedAt La date de l'upload
+     * @param expiresAt La date d'expiration du fichier (null : organisation DATED pour EXPIRY)
+     * @return Le chemin relatif du répertoire, séparé par des '/'
+     */
+    public String directory(Long userId, UUID fileId, LocalDateTime uploadedAt, LocalDateTime expiresAt) {
+        String fanOut = fileId.toString().substring(0, 2);
+        return switch (this) {
+            case DATED -> dated(userId, uploadedAt);
+            case HASHED -> dated(userId, uploadedAt) + "/" + fanOut;
+            case EXPIRY -> expiresAt == null
+                    ? dated(userId, uploadedAt)
+                    : expiryBucket(expiresAt) + "/" + fanOut;
+        };
+    }
+
+    /**
+     * Calcule le répertoire du bucket d'une date d'expiration : l'heure pleine qui la suit
+     * (ou qui lui est égale).
+     *
+     * @param expiresAt La date d'expiration
+     * @return expiry/{yyyy}/{mm}/{dd}/{HH}
+     */
+    public static String expiryBucket(LocalDateTime expiresAt) {
+        LocalDateTime hour = expiresAt.truncatedTo(ChronoUnit.HOURS);
+        if (hour.isBefore(expiresAt)) {
+            hour = hour.plusHours(1);
+        }
+        return String.format("%s/%04d/%02d/%02d/%02d", EXPIRY_DIRECTORY,
+                hour.getYear(), hour.getMonthValue(), hour.getDayOfMonth(), hour.getHour());
+    }
+
+    private static String dated(Long userId, LocalDateTime uploadedAt) {
+        return String.format("%d/%04d/%02d/%02d",
+                userId, uploadedAt.getYear(), uploadedAt.getMonthValue(), uploadedAt.getDayOfMonth());
+    }
+}
@@ -5,6 +5,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -58,6 +62,42 @@ public class TokenGeneratorService {
         );
     }
 
+    /**
+     * Génère un lot de tokens uniques pour un upload multiple.
+     * <p>
+     * L'unicité de l'ensemble du lot est vérifiée en une seule requête ;
+     * seuls les tokens en collision sont régénérés, jusqu'à MAX_RETRY_ATTEMPTS fois.
+     *
+     * @param count Le nombre de tokens à générer
+     * @return Une liste de tokens uniques (en base et entre eux)
+     * @throws TokenGenerationException Si impossible de générer le lot après MAX_RETRY_ATTEMPTS
+     */
+    public List<String> generateUniqueTokens(int count) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int attempt = 0;
+
+        while (attempt < MAX_RETRY_ATTEMPTS) {
+            attempt++;
+            while (tokens.size() < count) {
+                tokens.add(UUID.randomUUID().toString());
+            }
+
+            List<String> existing = fileRepository.findExistingDownloadTokens(tokens);
+            if (existing.isEmpty()) {
+                log.debug("Generated {} unique tokens in {} attempt(s)", count, attempt);
+                return new ArrayList<>(tokens);
+            }
+
+            log.warn("{} token collision(s) detected on attempt {}/{}", existing.size(), attempt, MAX_RETRY_ATTEMPTS);
+            existing.forEach(tokens::remove);
+        }
+
+        log.error("Failed to generate {} unique tokens after {} attempts", count, MAX_RETRY_ATTEMPTS);
+        throw new TokenGenerationException(
+            String.format("Could not generate %d unique tokens after %d attempts", count, MAX_RETRY_ATTEMPTS)
+        );
+    }
+
     /**
      * Vérifie si un token est unique dans la base de données.
      * 
@@ -0,0 +1,334 @@
+package com.openclassrooms.datashare.streaming;
+
+import com.openclassrooms.datashare.configuration.logging.RateLimitedLogger;
+import com.openclassrooms.datashare.service.DownloadContent;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Envoi des fichiers téléchargés en E/S servlet non bloquantes ({@link WriteListener}).
+ * <p>
+ * Le thread Tomcat est rendu dès que la socket n'accepte plus de données : un client lent
+ * ne coûte plus qu'un tampon de la réserve et un descripteur de fichier ouvert.
+ * L'envoi reprend dans {@link WriteListener#onWritePossible()} quand la socket est de nouveau disponible.
+ * <p>
+ * Un téléchargement sans progression pendant write-timeout est interrompu
+ * (le délai global de la requête asynchrone est désactivé, un gros fichier pouvant prendre des heures).
+ * <p>
+ * Chaque tampon envoyé est soumis au {@link BandwidthScheduler} : faute de bande passante,
+ * l'envoi est suspendu sans bloquer de thread et repris par le planificateur.
+ */
+@Slf4j
+@Component
+public class AsyncDownloadWriter {
+
+    private static final RateLimitedLogger STALLED_LOG = RateLimitedLogger.warn(log, Duration.ofSeconds(10));
+
+    private final boolean enabled;
+    private final long writeTimeoutNanos;
+    private final BufferPool bufferPool;
+    private final BandwidthScheduler bandwidthScheduler;
+    private final Set<Transfer> transfers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+
+    public AsyncDownloadWriter(@Value("${app.download.writer.async-enabled:true}") boolean enabled,
+                               @Value("${app.download.writer.buffer-size:65536}") int bufferSize,
+                               @Value("${app.download.writer.buffer-pool-size:256}") int bufferPoolSize,
+                               @Value("${app.download.writer.write-timeout:60s}") Duration writeTimeout,
+                               BandwidthScheduler bandwidthScheduler) {
+        this.enabled = enabled;
+        this.bandwidthScheduler = bandwidthScheduler;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.bufferPool = new BufferPool(bufferSize, bufferPoolSize);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "download-write-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkIntervalMillis = Math.max(100, writeTimeout.toMillis() / 4);
+        this.watchdog.scheduleWithFixedDelay(this::abortStalledTransfers,
+                checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Indique si la requête peut être servie en E/S non bloquantes.
+     * Les requêtes partielles (Range) restent servies par Spring MVC, qui gère les plages d'octets.
+     *
+     * @param request La requête de téléchargement
+     * @return true si {@link #write} peut être utilisé
+     */
+    public boolean supports(HttpServletRequest request) {
+        return enabled && request.isAsyncSupported() && request.getHeader(HttpHeaders.RANGE) == null;
+    }
+
+    /**
+     * Démarre l'envoi du contenu et rend la main sans attendre la fin du transfert.
+     * Le statut et les en-têtes doivent être positionnés sur la réponse avant l'appel.
+     *
+     * @param request La requête de téléchargement
+     * @param response La réponse dans laquelle écrire le contenu
+     * @param content Le contenu à envoyer
+     * @throws IOException Si le contenu ne peut pas être ouvert
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, DownloadContent content) throws IOException {
+        // Ouvert avant le passage en asynchrone : un contenu introuvable reste une erreur ordinaire
+        InputStream in = content.resource().getInputStream();
+        AsyncContext asyncContext;
+        ServletOutputStream out;
+        try {
+            asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(0);
+            out = response.getOutputStream();
+        } catch (IOException | RuntimeException e) {
+            // Asynchrone refusé ou réponse déjà engagée : le fichier ne doit pas rester ouvert
+            try {
+                in.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+
+        Transfer transfer = new Transfer(asyncContext, in, out, bandwidthScheduler.open(content.file()));
+        asyncContext.addListener(transfer);
+        transfers.add(transfer);
+        try {
+            out.setWriteListener(transfer);
+        } catch (UnsupportedOperationException e) {
+            // Conteneur sans E/S non bloquantes (MockMvc) : copie dans le thread courant
+            transfer.copyBlocking();
+        }
+    }
+
+    /**
+     * @return Le nombre de téléchargements en cours d'envoi
+     */
+    public int activeTransfers() {
+        return transfers.size();
+    }
+
+    /**
+     * @return Le nombre de tampons libres dans la réserve
+     */
+    int availableBuffers() {
+        return bufferPool.available();
+    }
+
+    void abortStalledTransfers() {
+        long now = System.nanoTime();
+        for (Transfer transfer : transfers) {
+            transfer.abortIfStalled(now);
+        }
+    }
+
+    /**
+     * Un téléchargement en cours : un tampon de la réserve, le flux du fichier et sa part de bande passante.
+     * <p>
+     * Le verrou protège le tampon contre une interruption (watchdog) pendant une lecture :
+     * un tampon rendu à la réserve ne doit plus être écrit.
+     */
+    private final class Transfer implements WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final InputStream in;
+        private final ServletOutputStream out;
+        private final BandwidthScheduler.Flow flow;
+        private final ReentrantLock lock = new ReentrantLock();
+        private byte[] buffer;
+        private boolean finished;
+        private volatile long lastProgressNanos;
+
+        private Transfer(AsyncContext asyncContext, InputStream in, ServletOutputStream out,
+                         BandwidthScheduler.Flow flow) {
+            this.asyncContext = asyncContext;
+            this.in = in;
+            this.out = out;
+            this.flow = flow;
+            this.buffer = bufferPool.acquire();
+            this.lastProgressNanos = System.nanoTime();
+        }
+
+        @Override
+        public void onWritePossible() {
+            lock.lock();
+            try {
+                if (!finished) {
+                    pump(0);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reprise par le planificateur de bande passante.
+         *
+         * @param granted Le nombre d'octets attribués
+         */
+        private void resume(int granted) {
+            lock.lock();
+            try {
+                if (finished) {
+                    flow.refund(granted);
+                } else {
+                    pump(granted);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Envoie des tampons tant que la socket les accepte et que la bande passante est disponible.
+         * Appelé verrou détenu.
+         */
+        private void pump(int granted) {
+            lastProgressNanos = System.nanoTime();
+            int allowed = granted;
+            try {
+                while (true) {
+                    if (allowed == 0) {
+                        if (!out.isReady()) {
+                            return; // Le conteneur rappellera onWritePossible
+                        }
+                        allowed = flow.acquire(buffer.length, this::resume);
+                        if (allowed == 0) {
+                            return; // Le planificateur rappellera resume
+                        }
+                    }
+                    int read = in.read(buffer, 0, allowed);
+                    flow.refund(allowed - Math.max(read, 0));
+                    if (read < 0) {
+                        finish();
+                        return;
+                    }
+                    // Chaque write est copié par le conteneur : le tampon est réutilisable dès le retour
+                    out.write(buffer, 0, read);
+                    allowed = 0;
+                }
+            } catch (IOException | RuntimeException e) {
+                // IllegalStateException de out.write ou isReady après la fin de la requête : sur la reprise
+                // par le planificateur, personne d'autre ne libérerait le fichier, le tampon ni la bande passante
+                log.debug("Envoi interrompu : {}", e.getMessage());
+                finish();
+            }
+        }
+
+        void copyBlocking() throws IOException {
+            lock.lock();
+            try {
+                int read;
+                do {
+                    int allowed = flow.acquireBlocking(buffer.length);
+                    read = in.read(buffer, 0, allowed);
+                    flow.refund(allowed - Math.max(read, 0));
+                    if (read > 0) {
+                        out.write(buffer, 0, read);
+                    }
+                } while (read >= 0);
+            } finally {
+                finish();
+                lock.unlock();
+            }
+        }
+
+        void abortIfStalled(long now) {
+            if (now - lastProgressNanos < writeTimeoutNanos || !lock.tryLock()) {
+                return;
+            }
+            try {
+                if (!finished) {
+                    STALLED_LOG.log("Téléchargement interrompu : aucune progression depuis {} s",
+                            TimeUnit.NANOSECONDS.toSeconds(now - lastProgressNanos));
+                    finish();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.debug("Client déconnecté pendant le téléchargement : {}", throwable.getMessage());
+            finishLocked();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finishLocked();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finishLocked();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finishLocked();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Pas de redémarrage asynchrone pour un téléchargement
+        }
+
+        private void finishLocked() {
+            lock.lock();
+            try {
+                finish();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Libère le fichier, le tampon et la bande passante, puis termine la requête. Appelé verrou détenu.
+         */
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            transfers.remove(this);
+            flow.close();
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.debug("Fermeture du contenu impossible : {}", e.getMessage());
+            }
+            bufferPool.release(buffer);
+            buffer = null;
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // Requête déjà terminée par le conteneur (erreur ou déconnexion)
+            }
+        }
+    }
+}
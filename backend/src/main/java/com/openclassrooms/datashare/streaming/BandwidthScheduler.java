@@ -0,0 +1,508 @@
+package com.openclassrooms.datashare.streaming;
+
+import com.openclassrooms.datashare.entities.File;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Répartition de la bande passante des téléchargements.
+ * <p>
+ * Chaque envoi consomme des jetons dans trois seaux : global, propriétaire du fichier et lien
+ * de téléchargement. Un lien viral est ainsi plafonné sans pénaliser les autres liens,
+ * et l'ensemble des téléchargements ne dépasse pas le débit global.
+ * <p>
+ * Les jetons sont pris directement par le thread d'envoi tant qu'aucun téléchargement partageant
+ * un seau limité n'attend. Sinon, ou dès qu'un seau est vide, les téléchargements non bloquants
+ * ({@link AsyncDownloadWriter}) rejoignent une {@link HierarchicalFairQueue} servie par un thread dédié :
+ * à chaque tour, chaque propriétaire, puis chaque lien, puis chaque téléchargement reçoit au plus un tampon.
+ * Un lien plafonné n'impose donc pas la file aux autres liens.
+ * Les envois bloquants (requêtes Range) attendent les jetons en dehors de la file.
+ * <p>
+ * Un débit à 0 désactive la limite correspondante ; les débits restent mesurés
+ * et consultables via l'endpoint actuator /actuator/bandwidth.
+ */
+@Slf4j
+@Component
+public class BandwidthScheduler {
+
+    /**
+     * Plus petite attribution : en dessous, le téléchargement attend le prochain tour
+     * plutôt que d'envoyer des fragments de quelques octets.
+     */
+    static final int MIN_GRANT = 8 * 1024;
+
+    private static final long MIN_BURST = 64 * 1024;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int TOKEN_PREFIX_LENGTH = 8;
+
+    private final long ownerRate;
+    private final long linkRate;
+    private final TokenBucket global;
+    private final Map<Long, TokenBucket> owners = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> links = new ConcurrentHashMap<>();
+    private final AtomicInteger activeFlows = new AtomicInteger();
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final HierarchicalFairQueue<Flow> waiting = new HierarchicalFairQueue<>();
+    private volatile int waitingCount;
+
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public BandwidthScheduler(@Value("${app.download.bandwidth.global-rate:0}") DataSize globalRate,
+                              @Value("${app.download.bandwidth.per-owner-rate:0}") DataSize ownerRate,
+                              @Value("${app.download.bandwidth.per-link-rate:0}") DataSize linkRate) {
+        this.ownerRate = ownerRate.toBytes();
+        this.linkRate = linkRate.toBytes();
+        this.global = newBucket(globalRate.toBytes());
+        this.dispatcher = new Thread(this::dispatchLoop, "download-bandwidth");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        dispatcher.start();
+        log.info("Bandwidth scheduler started (global={} B/s, per owner={} B/s, per link={} B/s, 0 = unlimited)",
+                global.rate(), ownerRate, linkRate);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Ouvre un flux de téléchargement rattaché aux seaux du lien et du propriétaire.
+     * Le flux doit être fermé à la fin de l'envoi.
+     *
+     * @param file Le fichier téléchargé
+     * @return Le flux, à utiliser pour chaque tampon envoyé
+     */
+    public Flow open(File file) {
+        Long ownerId = file.getUser() != null ? file.getUser().getId() : null;
+        return open(file.getDownloadToken(), ownerId);
+    }
+
+    Flow open(String token, Long ownerId) {
+        TokenBucket link = links.compute(token, (key, bucket) -> attach(bucket, linkRate));
+        TokenBucket owner = ownerId != null ? owners.compute(ownerId, (key, bucket) -> attach(bucket, ownerRate)) : null;
+        activeFlows.incrementAndGet();
+        return new Flow(token, ownerId, link, owner);
+    }
+
+    /**
+     * Enveloppe une ressource dont la lecture est limitée par la bande passante (envoi bloquant).
+     *
+     * @param resource La ressource à envoyer
+     * @param file Le fichier téléchargé
+     * @return La ressource limitée
+     */
+    public Resource throttle(Resource resource, File file) {
+        return new ThrottledResource(resource, file);
+    }
+
+    /**
+     * Instantané des débits mesurés sur la dernière seconde.
+     *
+     * @param limit Nombre maximum de propriétaires et de liens retournés (les plus actifs)
+     * @return Les débits global, par propriétaire et par lien
+     */
+    public Snapshot snapshot(int limit) {
+        List<Usage> ownerUsages = owners.entrySet().stream()
+                .map(entry -> usage(String.valueOf(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparingLong(Usage::bytesPerSecond).reversed())
+                .limit(limit)
+                .toList();
+        List<Usage> linkUsages = links.entrySet().stream()
+                .map(entry -> usage(tokenPrefix(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparingLong(Usage::bytesPerSecond).reversed())
+                .limit(limit)
+                .toList();
+        return new Snapshot(new Usage("global", global.rate(), global.bytesPerSecond(), activeFlows.get()),
+                waitingCount, ownerUsages, linkUsages);
+    }
+
+    private Usage usage(String key, TokenBucket bucket) {
+        return new Usage(key, bucket.rate(), bucket.bytesPerSecond(), bucket.flows);
+    }
+
+    private TokenBucket attach(TokenBucket bucket, long rate) {
+        TokenBucket attached = bucket != null ? bucket : newBucket(rate);
+        attached.flows++;
+        return attached;
+    }
+
+    private static TokenBucket detach(TokenBucket bucket) {
+        return --bucket.flows == 0 ? null : bucket;
+    }
+
+    private static TokenBucket newBucket(long rate) {
+        return new TokenBucket(rate, Math.max(rate, MIN_BURST), System.nanoTime());
+    }
+
+    private static String tokenPrefix(String token) {
+        return token.length() > TOKEN_PREFIX_LENGTH ? token.substring(0, TOKEN_PREFIX_LENGTH) : token;
+    }
+
+    /**
+     * Attribue au plus wanted octets, dans la limite des trois seaux.
+     * Les seaux sans limite ne prennent aucun verrou : avec la configuration par défaut,
+     * le chemin d'envoi ne fait que compter les octets.
+     *
+     * @return Le nombre d'octets attribués, 0 si le téléchargement doit attendre
+     */
+    private int grant(Flow flow, int wanted, long now) {
+        long available = Math.min(global.available(now), flow.link.available(now));
+        if (flow.owner != null) {
+            available = Math.min(available, flow.owner.available(now));
+        }
+        int granted = (int) Math.min(wanted, available);
+        if (granted < Math.min(wanted, MIN_GRANT)) {
+            return 0;
+        }
+        global.consume(granted);
+        flow.link.consume(granted);
+        if (flow.owner != null) {
+            flow.owner.consume(granted);
+        }
+        return granted;
+    }
+
+    private void enqueue(Flow flow) {
+        boolean wasEmpty;
+        queueLock.lock();
+        try {
+            wasEmpty = waiting.isEmpty();
+            waiting.add(flow.ownerId, flow.token, flow);
+            flow.setQueued(true);
+            waitingCount = waiting.size();
+        } finally {
+            queueLock.unlock();
+        }
+        if (wasEmpty) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private Flow dequeue() {
+        queueLock.lock();
+        try {
+            Flow flow = waiting.poll();
+            if (flow != null) {
+                flow.setQueued(false);
+                waitingCount = waiting.size();
+            }
+            return flow;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void remove(Flow flow) {
+        queueLock.lock();
+        try {
+            if (flow.queued) {
+                waiting.remove(flow.ownerId, flow.token, flow);
+                flow.setQueued(false);
+                waitingCount = waiting.size();
+            }
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        long nextSample = System.nanoTime() + SAMPLE_NANOS;
+        while (running) {
+            long now = System.nanoTime();
+            if (now >= nextSample) {
+                sampleRates(now);
+                nextSample = now + SAMPLE_NANOS;
+            }
+            if (waitingCount == 0) {
+                LockSupport.parkNanos(nextSample - now);
+            } else {
+                dispatchRound(now);
+                LockSupport.parkNanos(TICK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Un tour de la file : chaque téléchargement en attente est servi au plus une fois.
+     */
+    void dispatchRound(long now) {
+        int round = waitingCount;
+        for (int i = 0; i < round && global.available(now) >= MIN_GRANT; i++) {
+            Flow flow = dequeue();
+            if (flow == null) {
+                return;
+            }
+            if (flow.closed) {
+                continue;
+            }
+            int granted = grant(flow, flow.wanted, now);
+            if (granted == 0) {
+                enqueue(flow);
+                continue;
+            }
+            try {
+                flow.onGrant.accept(granted);
+            } catch (RuntimeException e) {
+                log.warn("Reprise d'un téléchargement en échec : {}", e.getMessage());
+                flow.refund(granted);
+                flow.close();
+            }
+        }
+    }
+
+    void sampleRates(long now) {
+        global.sampleRate(now);
+        owners.values().forEach(bucket -> bucket.sampleRate(now));
+        links.values().forEach(bucket -> bucket.sampleRate(now));
+    }
+
+    /**
+     * Débit d'un seau.
+     *
+     * @param key Le propriétaire, le début du token de téléchargement, ou "global"
+     * @param limit La limite en octets/s (0 : sans limite)
+     * @param bytesPerSecond Le débit mesuré sur la dernière seconde
+     * @param transfers Le nombre de téléchargements en cours
+     */
+    public record Usage(String key, long limit, long bytesPerSecond, int transfers) {
+    }
+
+    /**
+     * @param global Le débit de l'ensemble des téléchargements
+     * @param waiting Le nombre de téléchargements en attente de bande passante
+     * @param owners Les propriétaires les plus actifs
+     * @param links Les liens les plus actifs
+     */
+    public record Snapshot(Usage global, int waiting, List<Usage> owners, List<Usage> links) {
+    }
+
+    /**
+     * Un téléchargement en cours, rattaché aux seaux de son lien et de son propriétaire.
+     */
+    public final class Flow implements AutoCloseable {
+
+        private final String token;
+        private final Long ownerId;
+        private final TokenBucket link;
+        private final TokenBucket owner;
+        private volatile boolean closed;
+
+        // Demande en attente, protégée par queueLock
+        private int wanted;
+        private IntConsumer onGrant;
+        private boolean queued;
+
+        private Flow(String token, Long ownerId, TokenBucket link, TokenBucket owner) {
+            this.token = token;
+            this.ownerId = ownerId;
+            this.link = link;
+            this.owner = owner;
+        }
+
+        /**
+         * Demande la bande passante pour envoyer jusqu'à wanted octets, sans bloquer.
+         * Si elle n'est pas disponible, le téléchargement rejoint la file d'attente
+         * et onGrant sera appelé par le thread du planificateur avec le nombre d'octets attribués.
+         *
+         * @param wanted Le nombre d'octets souhaité (taille du tampon)
+         * @param onGrant Reprise de l'envoi quand la bande passante est attribuée
+         * @return Le nombre d'octets attribués immédiatement, 0 si le téléchargement attend
+         */
+        public int acquire(int wanted, IntConsumer onGrant) {
+            if (!contended()) {
+                int granted = grant(this, wanted, System.nanoTime());
+                if (granted > 0) {
+                    return granted;
+                }
+            }
+            this.wanted = wanted;
+            this.onGrant = onGrant;
+            enqueue(this);
+            return 0;
+        }
+
+        /**
+         * @return true si un téléchargement partageant un seau limité attend déjà son tour
+         */
+        private boolean contended() {
+            return (global.rate() > 0 && waitingCount > 0)
+                    || (link.rate() > 0 && link.waiting > 0)
+                    || (owner != null && owner.rate() > 0 && owner.waiting > 0);
+        }
+
+        /**
+         * Met à jour l'état d'attente et les compteurs des seaux. Appelé sous queueLock.
+         */
+        private void setQueued(boolean queued) {
+            if (this.queued == queued) {
+                return;
+            }
+            this.queued = queued;
+            int delta = queued ? 1 : -1;
+            link.waiting += delta;
+            if (owner != null) {
+                owner.waiting += delta;
+            }
+        }
+
+        /**
+         * Demande la bande passante pour envoyer jusqu'à wanted octets, en attendant si nécessaire.
+         *
+         * @return Le nombre d'octets attribués (au moins 1)
+         * @throws InterruptedIOException Si le thread est interrompu pendant l'attente
+         */
+        public int acquireBlocking(int wanted) throws InterruptedIOException {
+            while (true) {
+                int granted = grant(this, wanted, System.nanoTime());
+                if (granted > 0) {
+                    return granted;
+                }
+                LockSupport.parkNanos(TICK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Attente de bande passante interrompue");
+                }
+            }
+        }
+
+        /**
+         * Rend les octets attribués mais non envoyés (fin de fichier, lecture partielle).
+         */
+        public void refund(int bytes) {
+            if (bytes <= 0) {
+                return;
+            }
+            global.refund(bytes);
+            link.refund(bytes);
+            if (owner != null) {
+                owner.refund(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remove(this);
+            links.computeIfPresent(token, (key, bucket) -> detach(bucket));
+            if (ownerId != null) {
+                owners.computeIfPresent(ownerId, (key, bucket) -> detach(bucket));
+            }
+            activeFlows.decrementAndGet();
+        }
+    }
+
+    /**
+     * Ressource dont chaque flux ouvert attend la bande passante avant chaque lecture.
+     */
+    private final class ThrottledResource extends AbstractResource {
+
+        private final Resource delegate;
+        private final File file;
+
+        private ThrottledResource(Resource delegate, File file) {
+            this.delegate = delegate;
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ThrottledInputStream(delegate.getInputStream(), open(file));
+        }
+
+        @Override
+        public boolean exists() {
+            return delegate.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return delegate.isReadable();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public String getFilename() {
+            return delegate.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return delegate.getDescription();
+        }
+    }
+
+    private static final class ThrottledInputStream extends FilterInputStream {
+
+        private final Flow flow;
+
+        private ThrottledInputStream(InputStream in, Flow flow) {
+            super(in);
+            this.flow = flow;
+        }
+
+        @Override
+        public int read() throws IOException {
+            flow.acquireBlocking(1);
+            int b = super.read();
+            if (b < 0) {
+                flow.refund(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int allowed = flow.acquireBlocking(length);
+            int read = super.read(buffer, offset, allowed);
+            flow.refund(allowed - Math.max(read, 0));
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                flow.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.datashare.streaming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Réserve bornée de tampons de taille fixe, réutilisés d'un téléchargement à l'autre.
+ * <p>
+ * Un téléchargement lent conserve son tampon pendant toute sa durée : la réserve évite
+ * d'en réallouer un à chaque connexion. Au-delà de maxPooled tampons libres,
+ * les tampons rendus sont abandonnés au GC.
+ */
+class BufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> free;
+
+    BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("La taille des tampons doit être positive : " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+    }
+
+    /**
+     * @return Un tampon libre de la réserve, ou un nouveau tampon si elle est vide
+     */
+    byte[] acquire() {
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Rend un tampon à la réserve. Il ne doit plus être utilisé par l'appelant.
+     *
+     * @param buffer Le tampon obtenu par {@link #acquire()}
+     */
+    void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            free.offer(buffer);
+        }
+    }
+
+    /**
+     * @return Le nombre de tampons libres dans la réserve
+     */
+    int available() {
+        return free.size();
+    }
+}
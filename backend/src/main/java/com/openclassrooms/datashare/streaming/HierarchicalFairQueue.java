@@ -0,0 +1,116 @@
+package com.openclassrooms.datashare.streaming;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * File d'attente équitable hiérarchique : tourniquet entre propriétaires, puis entre liens
+ * d'un même propriétaire, puis entre téléchargements d'un même lien.
+ * <p>
+ * Un propriétaire dont un lien est téléchargé 1000 fois en parallèle n'obtient pas plus de tours
+ * qu'un propriétaire avec un seul téléchargement. Non thread-safe : utilisée sous le verrou
+ * du {@link BandwidthScheduler}.
+ *
+ * @param <T> Le type des éléments en attente
+ */
+class HierarchicalFairQueue<T> {
+
+    private final ArrayDeque<Group<Group<T>>> owners = new ArrayDeque<>();
+    private final Map<Object, Group<Group<T>>> ownersByKey = new HashMap<>();
+    private int size;
+
+    /**
+     * Ajoute un élément en fin de file de son lien.
+     *
+     * @param ownerKey La clé du propriétaire (peut être null : fichiers sans propriétaire)
+     * @param linkKey La clé du lien
+     * @param item L'élément
+     */
+    void add(Object ownerKey, Object linkKey, T item) {
+        Group<Group<T>> owner = ownersByKey.get(ownerKey);
+        if (owner == null) {
+            owner = new Group<>(ownerKey);
+            ownersByKey.put(ownerKey, owner);
+            owners.addLast(owner);
+        }
+        Group<T> link = owner.byKey.get(linkKey);
+        if (link == null) {
+            link = new Group<>(linkKey);
+            owner.byKey.put(linkKey, link);
+            owner.items.addLast(link);
+        }
+        link.items.addLast(item);
+        size++;
+    }
+
+    /**
+     * Retire le prochain élément : premier propriétaire, premier lien, premier téléchargement,
+     * puis fait tourner le propriétaire et le lien en fin de file.
+     *
+     * @return L'élément, null si la file est vide
+     */
+    T poll() {
+        Group<Group<T>> owner = owners.pollFirst();
+        if (owner == null) {
+            return null;
+        }
+        Group<T> link = owner.items.pollFirst();
+        T item = link.items.pollFirst();
+        size--;
+
+        if (link.items.isEmpty()) {
+            owner.byKey.remove(link.key);
+        } else {
+            owner.items.addLast(link);
+        }
+        if (owner.items.isEmpty()) {
+            ownersByKey.remove(owner.key);
+        } else {
+            owners.addLast(owner);
+        }
+        return item;
+    }
+
+    /**
+     * Retire un élément précis (téléchargement terminé pendant son attente).
+     *
+     * @return true si l'élément était en attente
+     */
+    boolean remove(Object ownerKey, Object linkKey, T item) {
+        Group<Group<T>> owner = ownersByKey.get(ownerKey);
+        Group<T> link = owner != null ? owner.byKey.get(linkKey) : null;
+        if (link == null || !link.items.remove(item)) {
+            return false;
+        }
+        size--;
+        if (link.items.isEmpty()) {
+            owner.byKey.remove(linkKey);
+            owner.items.remove(link);
+            if (owner.items.isEmpty()) {
+                ownersByKey.remove(ownerKey);
+                owners.remove(owner);
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static final class Group<E> {
+
+        private final Object key;
+        private final ArrayDeque<E> items = new ArrayDeque<>();
+        private final Map<Object, E> byKey = new HashMap<>();
+
+        private Group(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.datashare.streaming;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seau à jetons exprimé en octets : rate octets/s, au plus burst octets d'avance.
+ * <p>
+ * Un débit nul signifie « sans limite » : le seau ne sert alors qu'à mesurer le débit,
+ * sans prendre son verrou. Les octets envoyés sont comptés sans verrou dans tous les cas.
+ * Les jetons peuvent devenir négatifs (consommation concurrente de plusieurs seaux) :
+ * la dette est remboursée par le remplissage suivant.
+ */
+class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long rate;
+    private final long burst;
+    private long tokens;
+    private long lastRefillNanos;
+
+    // Mesure du débit, mise à jour par sampleRate() (une fois par seconde)
+    private final LongAdder sentBytes = new LongAdder();
+    private long sampledBytes;
+    private long lastSampleNanos;
+    private volatile long bytesPerSecond;
+
+    // Téléchargements rattachés à ce seau (modifié sous le verrou de la map du planificateur)
+    int flows;
+
+    // Téléchargements de ce seau en file d'attente (modifié sous le verrou de la file)
+    volatile int waiting;
+
+    TokenBucket(long rate, long burst, long nowNanos) {
+        this.rate = rate;
+        this.burst = Math.max(burst, rate);
+        this.tokens = this.burst;
+        this.lastRefillNanos = nowNanos;
+        this.lastSampleNanos = nowNanos;
+    }
+
+    /**
+     * @return Le nombre d'octets disponibles immédiatement
+     */
+    long available(long nowNanos) {
+        if (rate <= 0) {
+            return Long.MAX_VALUE;
+        }
+        synchronized (this) {
+            refill(nowNanos);
+            return Math.max(0, tokens);
+        }
+    }
+
+    /**
+     * Consomme des jetons. Le débit mesuré compte les octets consommés, même sans limite.
+     */
+    void consume(long bytes) {
+        sentBytes.add(bytes);
+        if (rate > 0) {
+            synchronized (this) {
+                tokens -= bytes;
+            }
+        }
+    }
+
+    /**
+     * Rend des jetons consommés mais non envoyés (fin de fichier, lecture partielle).
+     */
+    void refund(long bytes) {
+        sentBytes.add(-bytes);
+        if (rate > 0) {
+            synchronized (this) {
+                tokens = Math.min(burst, tokens + bytes);
+            }
+        }
+    }
+
+    synchronized void sampleRate(long nowNanos) {
+        long elapsed = nowNanos - lastSampleNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        long sent = sentBytes.sum();
+        bytesPerSecond = (long) ((sent - sampledBytes) * (double) NANOS_PER_SECOND / elapsed);
+        sampledBytes = sent;
+        lastSampleNanos = nowNanos;
+    }
+
+    long rate() {
+        return rate;
+    }
+
+    long bytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        long added = (long) (elapsed * (double) rate / NANOS_PER_SECOND);
+        if (added >= burst - tokens) {
+            tokens = burst;
+            lastRefillNanos = nowNanos;
+        } else if (added > 0) {
+            tokens += added;
+            // Avancer du temps correspondant aux jetons ajoutés, pour ne pas perdre les fractions
+            lastRefillNanos += (long) (added * (double) NANOS_PER_SECOND / rate);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.openclassrooms.datashare.validation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Détection du type MIME d'après les premiers octets du contenu (magic numbers).
+ * <p>
+ * Seuls les {@link #SNIFF_LENGTH} premiers octets sont inspectés : la détection se fait
+ * pendant la copie du fichier, sans lecture supplémentaire.
+ * <p>
+ * Les signatures en début de fichier sont indexées par leur premier octet (table de 256 entrées),
+ * les plus longues testées en premier ; les rares signatures à un décalage non nul
+ * (MP4, TAR) sont testées ensuite.
+ */
+public final class MagicNumberSniffer {
+
+    /**
+     * Nombre d'octets à fournir pour la détection (la signature TAR est à l'octet 257).
+     */
+    public static final int SNIFF_LENGTH = 4 * 1024;
+
+    private static final List<Signature> SIGNATURES = List.of(
+            // Exécutables
+            new Signature("application/x-msdownload", part(0, "MZ")),
+            new Signature("application/x-executable", part(0, 0x7F, 'E', 'L', 'F')),
+            new Signature("application/x-mach-binary", part(0, 0xFE, 0xED, 0xFA, 0xCE)),
+            new Signature("application/x-mach-binary", part(0, 0xFE, 0xED, 0xFA, 0xCF)),
+            new Signature("application/x-mach-binary", part(0, 0xCE, 0xFA, 0xED, 0xFE)),
+            new Signature("application/x-mach-binary", part(0, 0xCF, 0xFA, 0xED, 0xFE)),
+            new Signature("application/java-vm", part(0, 0xCA, 0xFE, 0xBA, 0xBE)),
+            // Scripts shell
+            new Signature("application/x-sh", part(0, "#!/bin/sh")),
+            new Signature("application/x-sh", part(0, "#!/bin/bash")),
+            new Signature("application/x-sh", part(0, "#!/usr/bin/env sh")),
+            new Signature("application/x-sh", part(0, "#!/usr/bin/env bash")),
+            // Documents
+            new Signature("application/pdf", part(0, "%PDF-")),
+            new Signature("application/postscript", part(0, "%!PS")),
+            new Signature("application/rtf", part(0, "{\\rtf")),
+            new Signature("application/x-ole-storage", part(0, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)),
+            new Signature("application/xml", part(0, "<?xml")),
+            new Signature("application/vnd.sqlite3", part(0, "SQLite format 3\0")),
+            // Images
+            new Signature("image/png", part(0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)),
+            new Signature("image/jpeg", part(0, 0xFF, 0xD8, 0xFF)),
+            new Signature("image/gif", part(0, "GIF87a")),
+            new Signature("image/gif", part(0, "GIF89a")),
+            new Signature("image/webp", part(0, "RIFF"), part(8, "WEBP")),
+            new Signature("image/bmp", part(0, "BM"), part(6, 0x00, 0x00, 0x00, 0x00)),
+            new Signature("image/tiff", part(0, "II*\0")),
+            new Signature("image/tiff", part(0, "MM\0*")),
+            new Signature("image/x-icon", part(0, 0x00, 0x00, 0x01, 0x00)),
+            // Audio / vidéo
+            new Signature("audio/wav", part(0, "RIFF"), part(8, "WAVE")),
+            new Signature("video/x-msvideo", part(0, "RIFF"), part(8, "AVI ")),
+            new Signature("audio/mpeg", part(0, "ID3")),
+            new Signature("audio/ogg", part(0, "OggS")),
+            new Signature("audio/flac", part(0, "fLaC")),
+            new Signature("video/webm", part(0, 0x1A, 0x45, 0xDF, 0xA3)),
+            new Signature("video/mp4", part(4, "ftyp")),
+            // Polices
+            new Signature("font/woff", part(0, "wOFF")),
+            new Signature("font/woff2", part(0, "wOF2")),
+            // Archives
+            new Signature("application/zip", part(0, 'P', 'K', 0x03, 0x04)),
+            new Signature("application/zip", part(0, 'P', 'K', 0x05, 0x06)),
+            new Signature("application/gzip", part(0, 0x1F, 0x8B)),
+            new Signature("application/x-7z-compressed", part(0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)),
+            new Signature("application/vnd.rar", part(0, "Rar!\u001A\u0007")),
+            new Signature("application/x-bzip2", part(0, "BZh")),
+            new Signature("application/x-xz", part(0, 0xFD, '7', 'z', 'X', 'Z', 0x00)),
+            new Signature("application/zstd", part(0, 0x28, 0xB5, 0x2F, 0xFD)),
+            new Signature("application/x-tar", part(257, "ustar"))
+    );
+
+    // Formats conteneurs : le type déclaré peut préciser le format réel (DOCX est un ZIP, DOC un OLE...)
+    private static final Map<String, Predicate<String>> CONTAINER_REFINEMENTS = Map.of(
+            "application/zip", declared -> declared.startsWith("application/vnd.openxmlformats-officedocument.")
+                    || declared.startsWith("application/vnd.oasis.opendocument.")
+                    || declared.equals("application/epub+zip")
+                    || declared.equals("application/java-archive")
+                    || declared.equals("application/vnd.android.package-archive"),
+            "application/x-ole-storage", declared -> declared.equals("application/msword")
+                    || declared.equals("application/vnd.ms-excel")
+                    || declared.equals("application/vnd.ms-powerpoint")
+                    || declared.equals("application/vnd.ms-outlook")
+                    || declared.equals("application/x-msi"),
+            "application/xml", declared -> declared.equals("text/xml")
+                    || declared.endsWith("+xml")
+    );
+
+    private static final Signature[][] BY_FIRST_BYTE = new Signature[256][];
+    private static final Signature[] AT_OFFSET;
+
+    static {
+        Comparator<Signature> longestFirst = Comparator.comparingInt(Signature::length).reversed();
+        List<List<Signature>> buckets = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        List<Signature> atOffset = new ArrayList<>();
+
+        for (Signature signature : SIGNATURES) {
+            Part first = signature.parts()[0];
+            if (first.offset() == 0) {
+                buckets.get(first.bytes()[0] & 0xFF).add(signature);
+            } else {
+                atOffset.add(signature);
+            }
+        }
+        for (int i = 0; i < 256; i++) {
+            List<Signature> bucket = buckets.get(i);
+            bucket.sort(longestFirst);
+            BY_FIRST_BYTE[i] = bucket.isEmpty() ? null : bucket.toArray(Signature[]::new);
+        }
+        atOffset.sort(longestFirst);
+        AT_OFFSET = atOffset.toArray(Signature[]::new);
+    }
+
+    private MagicNumberSniffer() {
+    }
+
+    /**
+     * Détecte le type MIME d'après l'en-tête du contenu.
+     *
+     * @param head Les premiers octets du fichier
+     * @param length Le nombre d'octets valides dans head
+     * @return Le type MIME reconnu, null si aucune signature ne correspond
+     */
+    public static String sniff(byte[] head, int length) {
+        if (head == null || length <= 0) {
+            return null;
+        }
+
+        Signature[] candidates = BY_FIRST_BYTE[head[0] & 0xFF];
+        if (candidates != null) {
+            for (Signature signature : candidates) {
+                if (signature.matches(head, length)) {
+                    return signature.mimeType();
+                }
+            }
+        }
+        for (Signature signature : AT_OFFSET) {
+            if (signature.matches(head, length)) {
+                return signature.mimeType();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Choisit le type MIME final à partir du type détecté et du type déclaré
+     * (déduit de l'extension ou fourni par le client).
+     * <p>
+     * Le contenu fait foi : le type déclaré n'est retenu que si rien n'a été détecté,
+     * ou s'il précise un format conteneur détecté (un DOCX est détecté comme ZIP).
+     *
+     * @param sniffed Le type détecté par {@link #sniff}, peut être null
+     * @param declared Le type déclaré, peut être null
+     * @return Le type MIME à enregistrer, null si aucun n'est connu
+     */
+    public static String resolve(String sniffed, String declared) {
+        if (sniffed == null) {
+            return declared;
+        }
+        if (declared == null) {
+            return sniffed;
+        }
+        Predicate<String> refinement = CONTAINER_REFINEMENTS.get(sniffed);
+        String normalizedDeclared = declared.trim().toLowerCase(Locale.ROOT);
+        if (refinement != null && refinement.test(normalizedDeclared)) {
+            return declared;
+        }
+        return sniffed;
+    }
+
+    private static Part part(int offset, String ascii) {
+        return new Part(offset, ascii.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static Part part(int offset, int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return new Part(offset, bytes);
+    }
+
+    /**
+     * Séquence d'octets attendue à un décalage donné.
+     */
+    private record Part(int offset, byte[] bytes) {
+
+        boolean matches(byte[] head, int length) {
+            if (offset + bytes.length > length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (head[offset + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Signature d'un format : toutes les parties doivent correspondre.
+     */
+    private record Signature(String mimeType, Part... parts) {
+
+        boolean matches(byte[] head, int length) {
+            for (Part part : parts) {
+                if (!part.matches(head, length)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int length() {
+            int total = 0;
+            for (Part part : parts) {
+                total += part.bytes().length;
+            }
+            return total;
+        }
+    }
+}
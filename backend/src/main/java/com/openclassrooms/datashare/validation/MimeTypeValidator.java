@@ -33,12 +33,16 @@ public class MimeTypeValidator {
             "application/x-exe",
             "application/exe",
             "application/x-winexe",
+            // Exécutables Linux / macOS
+            "application/x-executable",
+            "application/x-mach-binary",
             // Scripts et code exécutable
             "application/x-sh",
             "application/x-shellscript",
             "application/x-bat",
             "application/x-java-archive",
             "application/java-archive",
+            "application/java-vm",
             // Fichiers système dangereux
             "application/x-deb",
             "application/x-rpm",
@@ -87,11 +91,7 @@ public class MimeTypeValidator {
         }
 
         // Vérifier si le MIME type est dans la blacklist
-        boolean isBlocked = BLOCKED_MIME_TYPES.stream()
-                .anyMatch(blockedType -> contentType.equals(blockedType) || 
-                         contentType.startsWith(blockedType + ";"));
-
-        if (isBlocked) {
+        if (isBlockedMimeType(contentType)) {
             log.warn("MIME type blocked: {} for file: {}", contentType, filename);
             return false;
         }
@@ -101,13 +101,35 @@ public class MimeTypeValidator {
         return true;
     }
 
+    /**
+     * Vérifie si un type MIME fait partie de la blacklist.
+     * <p>
+     * Utilisé aussi pour le type détecté d'après le contenu (voir MagicNumberSniffer),
+     * qui ne peut pas être falsifié par le client.
+     * 
+     * @param mimeType Le type MIME (paramètres éventuels acceptés)
+     * @return true si le type est bloqué, false sinon
+     */
+    public static boolean isBlockedMimeType(String mimeType) {
+        if (mimeType == null || mimeType.isBlank()) {
+            return false;
+        }
+        String normalized = mimeType.trim().toLowerCase();
+        return BLOCKED_MIME_TYPES.stream()
+                .anyMatch(blockedType -> normalized.equals(blockedType) || 
+                         normalized.startsWith(blockedType + ";"));
+    }
+
     /**
      * Vérifie si le fichier a une extension bloquée.
+     * <p>
+     * Utilisé aussi avant la lecture du corps de la requête, sur le nom annoncé par le client
+     * (voir UploadAdmissionFilter).
      * 
      * @param filename Le nom du fichier
      * @return true si l'extension est bloquée, false sinon
      */
-    private boolean hasBlockedExtension(String filename) {
+    public static boolean hasBlockedExtension(String filename) {
         if (filename == null || filename.isBlank()) {
             return false;
         }
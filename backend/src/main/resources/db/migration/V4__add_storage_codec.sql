@@ -0,0 +1,6 @@
+-- Migration V4: Add storage codec to files table
+-- Description: Codec de compression appliqué au fichier stocké (compression transparente)
+
+ALTER TABLE files ADD COLUMN storage_codec VARCHAR(20) NULL;
+
+COMMENT ON COLUMN files.storage_codec IS 'Codec du contenu stocké (NONE, GZIP), NULL pour les fichiers stockés bruts avant la compression';
@@ -0,0 +1,11 @@
+-- Migration V5: Add segment entry index to files table
+-- Description: Position et longueur du contenu des petits fichiers regroupés dans un segment (filepath désigne alors le segment)
+
+ALTER TABLE files ADD COLUMN segment_offset BIGINT NULL;
+ALTER TABLE files ADD COLUMN segment_length BIGINT NULL;
+
+-- Index pour la compaction : entrées d'un segment
+CREATE INDEX idx_files_filepath ON files(filepath);
+
+COMMENT ON COLUMN files.segment_offset IS 'Position du contenu dans le segment, NULL pour un fichier stocké seul';
+COMMENT ON COLUMN files.segment_length IS 'Longueur du contenu stocké dans le segment, NULL pour un fichier stocké seul';
@@ -0,0 +1,115 @@
+package com.openclassrooms.datashare.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitaires pour OffHeapLfuCache
+ * Cache hors tas à admission W-TinyLFU
+ */
+class OffHeapLfuCacheTest {
+
+    @Test
+    void get_ShouldReturnStoredContentAndCountHitsAndMisses() {
+        // Given
+        OffHeapLfuCache<String> cache = new OffHeapLfuCache<>(100, 10);
+        cache.put("a", content(1, 4), null);
+
+        // When
+        ByteBuffer hit = cache.get("a");
+        ByteBuffer miss = cache.get("b");
+
+        // Then
+        assertThat(hit.isDirect()).isTrue();
+        assertThat(hit.isReadOnly()).isTrue();
+        assertThat(bytes(hit)).isEqualTo(content(1, 4));
+        assertThat(miss).isNull();
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.weightedSize()).isEqualTo(4);
+    }
+
+    @Test
+    void put_ShouldRejectColdCandidate_WhenMainZoneHoldsFrequentEntries() {
+        // Given - Fenêtre de 10 octets, zone principale de 20 octets remplie par deux entrées lues souvent
+        OffHeapLfuCache<String> cache = new OffHeapLfuCache<>(30, 10);
+        cache.put("hot1", content(1, 10), null);
+        cache.put("hot2", content(2, 10), null);
+        cache.put("cold", content(3, 10), null);
+        for (int i = 0; i < 3; i++) {
+            cache.get("hot1");
+            cache.get("hot2");
+        }
+
+        // When - "cold", jamais lu, sort de la fenêtre
+        cache.put("next", content(4, 10), null);
+
+        // Then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get("cold")).isNull();
+        assertThat(cache.get("hot1")).isNotNull();
+        assertThat(cache.get("hot2")).isNotNull();
+        assertThat(cache.get("next")).isNotNull();
+    }
+
+    @Test
+    void put_ShouldRefuseContentLargerThanMaxEntry() {
+        // Given
+        OffHeapLfuCache<String> cache = new OffHeapLfuCache<>(100, 10);
+
+        // When
+        boolean stored = cache.put("big", content(1, 11), null);
+
+        // Then
+        assertThat(stored).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void invalidate_ShouldRemoveEntryAndReleaseItsWeight() {
+        // Given
+        OffHeapLfuCache<String> cache = new OffHeapLfuCache<>(100, 10);
+        cache.put("a", content(1, 8), null);
+
+        // When
+        cache.invalidate("a");
+
+        // Then
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.weightedSize()).isZero();
+    }
+
+    @Test
+    void removeExpired_ShouldDropOnlyExpiredEntries() {
+        // Given
+        OffHeapLfuCache<String> cache = new OffHeapLfuCache<>(100, 10);
+        cache.put("expired", content(1, 4), Instant.now().minusSeconds(1));
+        cache.put("valid", content(2, 4), Instant.now().plusSeconds(3600));
+
+        // When
+        int removed = cache.removeExpired();
+
+        // Then
+        assertThat(removed).isEqualTo(1);
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.get("valid")).isNotNull();
+    }
+
+    private static byte[] content(int value, int length) {
+        byte[] content = new byte[length];
+        Arrays.fill(content, (byte) value);
+        return content;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,88 @@
+package com.openclassrooms.datashare.configuration.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitaires pour BulkheadFilter : une classe saturée ne bloque pas les autres.
+ */
+class BulkheadFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Une place par classe, pas de file d'attente
+        filter = new BulkheadFilter(meterRegistry, true, Duration.ofMillis(10), Duration.ofSeconds(2),
+                1, 0, 1, 0, 1, 0);
+    }
+
+    @Test
+    void doFilter_ShouldReject503_WhenUploadBulkheadIsFull() throws Exception {
+        // Given
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain slowUpload = (req, res) ->
+                filter.doFilter(request("POST", "/api/files"), nested, (r, s) -> { });
+
+        // When
+        filter.doFilter(request("POST", "/api/files"), new MockHttpServletResponse(), slowUpload);
+
+        // Then
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(meterRegistry.counter("datashare.bulkhead.rejected", "workload", "upload").count()).isEqualTo(1);
+        assertThat(filter.active(Workload.UPLOAD)).isZero();
+    }
+
+    @Test
+    void doFilter_ShouldAdmitApiCall_WhileUploadBulkheadIsFull() throws Exception {
+        // Given
+        MockHttpServletResponse listing = new MockHttpServletResponse();
+        AtomicReference<Workload> listingWorkload = new AtomicReference<>();
+        FilterChain slowUpload = (req, res) -> filter.doFilter(request("GET", "/api/files"), listing,
+                (r, s) -> listingWorkload.set(WorkloadContext.current()));
+
+        // When
+        filter.doFilter(request("POST", "/api/files"), new MockHttpServletResponse(), slowUpload);
+
+        // Then
+        assertThat(listing.getStatus()).isEqualTo(200);
+        assertThat(listingWorkload.get()).isEqualTo(Workload.API);
+    }
+
+    @Test
+    void doFilter_ShouldExposeWorkloadDuringRequestOnly() throws Exception {
+        // Given
+        AtomicReference<Workload> duringRequest = new AtomicReference<>();
+
+        // When
+        filter.doFilter(request("POST", "/api/download/abc123"), new MockHttpServletResponse(),
+                (r, s) -> duringRequest.set(WorkloadContext.current()));
+
+        // Then
+        assertThat(duringRequest.get()).isEqualTo(Workload.DOWNLOAD);
+        assertThat(WorkloadContext.current()).isEqualTo(Workload.API);
+    }
+
+    @Test
+    void workloadOf_ShouldClassifyBatchUploadAsUpload_AndDeletionAsApi() {
+        assertThat(Workload.of(request("POST", "/api/files/batch"))).isEqualTo(Workload.UPLOAD);
+        assertThat(Workload.of(request("DELETE", "/api/files/42"))).isEqualTo(Workload.API);
+        assertThat(Workload.of(request("GET", "/api/download/owner/abc123"))).isEqualTo(Workload.DOWNLOAD);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.datashare.configuration.download;
+
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitaires pour DownloadConcurrencyFilter : délestage en 503 au-delà de la limite.
+ */
+class DownloadConcurrencyFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DownloadConcurrencyLimiter limiter;
+    private DownloadConcurrencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new DownloadConcurrencyLimiter(meterRegistry, 1, 1, 1);
+        filter = new DownloadConcurrencyFilter(limiter, new TransferMetrics(meterRegistry), true, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void doFilter_ShouldReject503WithRetryAfter_WhenLimitIsReached() throws Exception {
+        // Given
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        AtomicBoolean reachedController = new AtomicBoolean();
+        FilterChain slowDownload = (req, res) ->
+                filter.doFilter(downloadRequest(), nested, (r, s) -> reachedController.set(true));
+
+        // When
+        filter.doFilter(downloadRequest(), new MockHttpServletResponse(), slowDownload);
+
+        // Then
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(nested.getContentAsString()).contains("Service Unavailable");
+        assertThat(reachedController).isFalse();
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(meterRegistry.counter("datashare.download.outcome", "outcome", "overloaded").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldReleasePlace_WhenDownloadFails() throws Exception {
+        // Given
+        FilterChain failing = (req, res) -> {
+            throw new IllegalStateException("boom");
+        };
+
+        // When / Then
+        assertThatThrownBy(() -> filter.doFilter(downloadRequest(), new MockHttpServletResponse(), failing))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void doFilter_ShouldIgnoreOtherEndpoints() throws Exception {
+        // Given
+        limiter.tryAcquire();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files");
+        AtomicBoolean reachedController = new AtomicBoolean();
+
+        // When
+        filter.doFilter(request, new MockHttpServletResponse(), (r, s) -> reachedController.set(true));
+
+        // Then
+        assertThat(reachedController).isTrue();
+    }
+
+    private static MockHttpServletRequest downloadRequest() {
+        return new MockHttpServletRequest("POST", "/api/download/abc123");
+    }
+}
@@ -0,0 +1,165 @@
+package com.openclassrooms.datashare.configuration.download;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitaires pour DownloadRateLimitFilter : 429 par adresse IP et par token
+ * (essais de mot de passe et échecs seulement).
+ */
+class DownloadRateLimitFilterTest {
+
+    private static final String PASSWORD = "{\"password\":\"guess\"}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger reachedController;
+    private FilterChain controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reachedController = new AtomicInteger();
+        controller = (req, res) -> reachedController.incrementAndGet();
+    }
+
+    @Test
+    void doFilter_ShouldReject429_WhenTokenIsGuessedFromManyAddresses() throws Exception {
+        // Given : 2 essais par token, 100 par adresse
+        DownloadRateLimitFilter filter = filter(100, 2);
+
+        // When
+        filter.doFilter(post("/api/download/abc123", "203.0.113.1", PASSWORD), new MockHttpServletResponse(), controller);
+        filter.doFilter(post("/api/download/abc123", "203.0.113.2", PASSWORD), new MockHttpServletResponse(), controller);
+        MockHttpServletResponse third = new MockHttpServletResponse();
+        filter.doFilter(post("/api/download/abc123", "203.0.113.3", PASSWORD), third, controller);
+
+        // Then
+        assertThat(reachedController.get()).isEqualTo(2);
+        assertThat(third.getStatus()).isEqualTo(429);
+        assertThat(third.getHeader("Retry-After")).isNotBlank();
+        assertThat(meterRegistry.counter("datashare.download.outcome", "outcome", "rate_limited").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldNotLimitSuccessfulDownloadsOfPopularLink() throws Exception {
+        // Given : 2 essais par token
+        DownloadRateLimitFilter filter = filter(100, 2);
+
+        // When : consultation puis téléchargement sans mot de passe, depuis 10 adresses
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(request("GET", "/api/download/abc123", "203.0.113." + i),
+                    new MockHttpServletResponse(), controller);
+            filter.doFilter(post("/api/download/abc123", "203.0.113." + i, "{}"),
+                    new MockHttpServletResponse(), controller);
+        }
+
+        // Then
+        assertThat(reachedController.get()).isEqualTo(20);
+    }
+
+    @Test
+    void doFilter_ShouldChargeFailedAttemptsOnToken() throws Exception {
+        // Given : 2 essais par token, le contrôleur répond 401 (mot de passe requis)
+        DownloadRateLimitFilter filter = filter(100, 2);
+        FilterChain failing = (req, res) -> {
+            reachedController.incrementAndGet();
+            ((HttpServletResponse) res).setStatus(401);
+        };
+
+        // When
+        filter.doFilter(post("/api/download/abc123", "203.0.113.1", "{}"), new MockHttpServletResponse(), failing);
+        filter.doFilter(post("/api/download/abc123", "203.0.113.2", "{}"), new MockHttpServletResponse(), failing);
+        MockHttpServletResponse guess = new MockHttpServletResponse();
+        filter.doFilter(post("/api/download/abc123", "203.0.113.3", PASSWORD), guess, controller);
+
+        // Then
+        assertThat(guess.getStatus()).isEqualTo(429);
+        assertThat(reachedController.get()).isEqualTo(2);
+    }
+
+    @Test
+    void doFilter_ShouldChargeArchivePerPasswordOnAddressAndTokens() throws Exception {
+        // Given : 3 requêtes par adresse, 1 essai par token
+        DownloadRateLimitFilter filter = filter(3, 1);
+        String archive = "{\"tokens\":[\"t1\",\"t2\",\"t3\"],"
+                + "\"passwords\":{\"t1\":\"a\",\"t2\":\"b\",\"t3\":\"c\"}}";
+
+        // When : 3 mots de passe vidant le seau de l'adresse, puis un essai depuis une autre adresse
+        MockHttpServletRequest first = post("/api/download/archive", "203.0.113.1", archive);
+        filter.doFilter(first, new MockHttpServletResponse(), (req, res) -> {
+            reachedController.incrementAndGet();
+            // Le corps lu par le filtre est relu par le contrôleur
+            assertThat(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(archive);
+        });
+        MockHttpServletResponse sameAddress = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/download/other", "203.0.113.1"), sameAddress, controller);
+        MockHttpServletResponse sameToken = new MockHttpServletResponse();
+        filter.doFilter(post("/api/download/t2", "203.0.113.2", PASSWORD), sameToken, controller);
+
+        // Then
+        assertThat(reachedController.get()).isEqualTo(1);
+        assertThat(sameAddress.getStatus()).isEqualTo(429);
+        assertThat(sameToken.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void doFilter_ShouldReject429_WhenAddressEnumeratesTokens() throws Exception {
+        // Given : 2 requêtes par adresse
+        DownloadRateLimitFilter filter = filter(2, 100);
+
+        // When
+        MockHttpServletResponse last = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/download/token-1", "203.0.113.1"), new MockHttpServletResponse(), controller);
+        filter.doFilter(request("GET", "/api/download/token-2", "203.0.113.1"), new MockHttpServletResponse(), controller);
+        filter.doFilter(request("GET", "/api/download/token-3", "203.0.113.1"), last, controller);
+
+        // Then
+        assertThat(last.getStatus()).isEqualTo(429);
+        assertThat(reachedController.get()).isEqualTo(2);
+    }
+
+    @Test
+    void doFilter_ShouldNotLimitOwnerDownloads() throws Exception {
+        // Given
+        DownloadRateLimitFilter filter = filter(1, 1);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            filter.doFilter(request("GET", "/api/download/owner/abc123", "203.0.113.1"),
+                    new MockHttpServletResponse(), controller);
+        }
+
+        // Then
+        assertThat(reachedController.get()).isEqualTo(5);
+    }
+
+    private DownloadRateLimitFilter filter(int perAddress, int perToken) {
+        return new DownloadRateLimitFilter(new TransferMetrics(meterRegistry), new ObjectMapper(), true,
+                perAddress, perAddress, perToken, perToken, 1000);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private static MockHttpServletRequest post(String uri, String address, String body) {
+        MockHttpServletRequest request = request("POST", uri, address);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
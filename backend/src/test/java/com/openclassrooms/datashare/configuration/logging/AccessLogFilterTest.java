@@ -0,0 +1,165 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.openclassrooms.datashare.entities.User;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests unitaires pour AccessLogFilter et AccessLogRingBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+class AccessLogFilterTest {
+
+    @Mock
+    private AccessLogWriter accessLogWriter;
+
+    private AccessLogFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AccessLogFilter();
+        ReflectionTestUtils.setField(filter, "accessLogWriter", accessLogWriter);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "successSampleRate", 1.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldRecordRequestWithoutQueryStringOrPayload() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/download/abcd1234efgh5678");
+        request.setQueryString("secret=1");
+        request.setContent("{\"password\":\"s3cret\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, (req, res) ->
+                res.getOutputStream().write("0123456789".getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        AccessLogEntry entry = captureEntry();
+        assertThat(entry.method()).isEqualTo("POST");
+        assertThat(entry.path()).isEqualTo("/api/download/abcd1234...");
+        assertThat(entry.status()).isEqualTo(200);
+        assertThat(entry.bytes()).isEqualTo(10);
+        assertThat(entry.userId()).isNull();
+        assertThat(entry.toString()).doesNotContain("s3cret").doesNotContain("secret=1").doesNotContain("efgh5678");
+    }
+
+    @Test
+    void maskToken_ShouldTruncateDownloadTokensOnly() {
+        assertThat(AccessLogFilter.maskToken("/api/download/owner/abcd1234efgh5678")).isEqualTo("/api/download/owner/abcd1234...");
+        assertThat(AccessLogFilter.maskToken("/api/download/archive")).isEqualTo("/api/download/archive");
+        assertThat(AccessLogFilter.maskToken("/api/download/owner/archive")).isEqualTo("/api/download/owner/archive");
+        assertThat(AccessLogFilter.maskToken("/api/files/abcd1234efgh5678")).isEqualTo("/api/files/abcd1234efgh5678");
+    }
+
+    @Test
+    void entryLog_ShouldEmitFieldsAsKeyValuePairs() {
+        // Given
+        Logger logger = (Logger) LoggerFactory.getLogger(AccessLogWriter.LOGGER_NAME);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+
+        // When
+        try {
+            new AccessLogEntry("GET", "/api/files", 200, 10, 3, null).log(logger);
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        // Then
+        assertThat(appender.list).singleElement().satisfies(event -> assertThat(event.getKeyValuePairs())
+                .extracting(pair -> pair.key + "=" + pair.value)
+                .containsExactly("method=GET", "path=/api/files", "status=200", "bytes=10", "duration_ms=3", "user=-"));
+    }
+
+    @Test
+    void doFilter_WithAuthenticatedUser_ShouldRecordUserId() throws Exception {
+        // Given
+        User user = new User();
+        user.setId(42L);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, (req, res) -> SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of())));
+
+        // Then
+        assertThat(captureEntry().userId()).isEqualTo(42L);
+    }
+
+    @Test
+    void doFilter_WithSampling_ShouldSkipSuccessButKeepErrors() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "successSampleRate", 0.0);
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/files"), new MockHttpServletResponse(),
+                (req, res) -> { });
+
+        // Then
+        verify(accessLogWriter, never()).write(any());
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/download/expired"), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(410));
+
+        // Then
+        assertThat(captureEntry().status()).isEqualTo(410);
+    }
+
+    @Test
+    void ringBuffer_WhenFull_ShouldRejectWithoutBlockingAndKeepOrder() {
+        // Given
+        AccessLogRingBuffer<Integer> buffer = new AccessLogRingBuffer<>(3);
+
+        // When
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        // Then
+        assertThat(buffer.capacity()).isEqualTo(4);
+        assertThat(buffer.offer(99)).isFalse();
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(List.of(buffer.poll(), buffer.poll(), buffer.poll(), buffer.poll())).containsExactly(1, 2, 3, 4);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    private AccessLogEntry captureEntry() {
+        ArgumentCaptor<AccessLogEntry> captor = ArgumentCaptor.forClass(AccessLogEntry.class);
+        verify(accessLogWriter).write(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,106 @@
+package com.openclassrooms.datashare.configuration.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitaires pour RateLimitedLogger et SampledLogger.
+ */
+class RateLimitedLoggerTest {
+
+    private Logger logger;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    void setUp() {
+        logger = (Logger) LoggerFactory.getLogger("test." + getClass().getSimpleName());
+        logger.setLevel(Level.INFO);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void log_WithinWindow_ShouldLogFirstEventAndCountOthers() {
+        // Given
+        RateLimitedLogger rateLimited = RateLimitedLogger.warn(logger, Duration.ofHours(1));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            rateLimited.log("Token invalide: {}", "token-" + i);
+        }
+
+        // Then
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getLevel()).isEqualTo(Level.WARN);
+        assertThat(appender.list.get(0).getFormattedMessage()).isEqualTo("Token invalide: token-0");
+        assertThat(rateLimited.getSuppressedCount()).isEqualTo(4);
+    }
+
+    @Test
+    void log_AfterWindow_ShouldReportSuppressedCount() throws InterruptedException {
+        // Given
+        RateLimitedLogger rateLimited = RateLimitedLogger.warn(logger, Duration.ofMillis(50));
+        rateLimited.log("Token invalide: {}", "a");
+        rateLimited.log("Token invalide: {}", "b");
+        rateLimited.log("Token invalide: {}", "c");
+
+        // When
+        Thread.sleep(60);
+        rateLimited.log("Token invalide: {}", "d");
+
+        // Then
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly(
+                "Token invalide: a",
+                "Token invalide: d",
+                "2 événement(s) similaire(s) supprimé(s) (limite : 1 message / 50ms)");
+        assertThat(rateLimited.getSuppressedCount()).isZero();
+    }
+
+    @Test
+    void sampledInfo_ShouldLogOneEventInRate() {
+        // Given
+        SampledLogger sampled = SampledLogger.oneIn(logger, 10);
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            sampled.info("Téléchargement réussi: {}", i);
+        }
+
+        // Then
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly(
+                "Téléchargement réussi: 0",
+                "Téléchargement réussi: 10",
+                "Téléchargement réussi: 20");
+    }
+
+    @Test
+    void sampledInfo_WithDebugEnabled_ShouldLogEveryEvent() {
+        // Given
+        logger.setLevel(Level.DEBUG);
+        SampledLogger sampled = SampledLogger.oneIn(logger, 10);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            sampled.info("Téléchargement réussi: {}", i);
+        }
+
+        // Then
+        assertThat(appender.list).hasSize(3);
+    }
+}
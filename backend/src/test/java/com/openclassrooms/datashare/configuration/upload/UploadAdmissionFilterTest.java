@@ -0,0 +1,195 @@
+package com.openclassrooms.datashare.configuration.upload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.datashare.entities.User;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
+import com.openclassrooms.datashare.repository.FileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour UploadAdmissionFilter : refus sur les seuls en-têtes, sans lecture du corps.
+ */
+@ExtendWith(MockitoExtension.class)
+class UploadAdmissionFilterTest {
+
+    private static final long MAX_FILE_SIZE = 1024;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UploadConcurrencyLimiter concurrencyLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("alice@example.com");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldReject413_WhenContentLengthExceedsMaxFileSize() throws Exception {
+        // Given
+        UploadAdmissionFilter filter = filter(64, 0);
+        MockHttpServletRequest request = uploadRequest(new byte[200 * 1024]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(response.getHeader("Connection")).isEqualTo("close");
+        assertThat(response.getContentAsString()).contains("Payload Too Large");
+        verify(filterChain, never()).doFilter(any(), any());
+        assertThat(meterRegistry.counter("datashare.upload.rejected", "reason", "too_large").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldReject415_WhenAnnouncedFilenameIsBlocked() throws Exception {
+        // Given
+        UploadAdmissionFilter filter = filter(64, 0);
+        MockHttpServletRequest request = uploadRequest(new byte[10]);
+        request.addHeader(UploadAdmissionFilter.FILE_NAME_HEADER, "rapport%20final.pdf,setup.EXE");
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(415);
+        assertThat(response.getContentAsString()).contains("setup.EXE");
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilter_ShouldReject503WithRetryAfter_WhenTooManyUploadsInProgress() throws Exception {
+        // Given
+        UploadAdmissionFilter filter = filter(1, 0);
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain slowUpload = (req, res) -> filter.doFilter(uploadRequest(new byte[10]), nested, filterChain);
+
+        // When
+        filter.doFilter(uploadRequest(new byte[10]), new MockHttpServletResponse(), slowUpload);
+
+        // Then
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader("Retry-After")).isEqualTo("5");
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+    }
+
+    @Test
+    void doFilter_ShouldReject503_WhenUserExceedsFairShare() throws Exception {
+        // Given
+        // Limite de 3 partagée entre deux utilisateurs : une place chacun, la dernière reste libre
+        UploadAdmissionFilter filter = filter(3, 0);
+        UploadConcurrencyLimiter.Permit otherUser = concurrencyLimiter.tryAcquire(2L);
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain slowUpload = (req, res) -> filter.doFilter(uploadRequest(new byte[10]), nested, filterChain);
+
+        // When
+        filter.doFilter(uploadRequest(new byte[10]), new MockHttpServletResponse(), slowUpload);
+        otherUser.close();
+
+        // Then
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+        assertThat(meterRegistry.counter("datashare.upload.rejected", "reason", "overloaded").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldReject413_WhenUserQuotaWouldBeExceeded() throws Exception {
+        // Given
+        UploadAdmissionFilter filter = filter(64, 1000);
+        when(fileRepository.sumNonExpiredFileSizeByUserId(eq(1L), any())).thenReturn(995L);
+        MockHttpServletRequest request = uploadRequest(new byte[10]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(response.getContentAsString()).contains("quota");
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilter_ShouldAdmitUpload_WhenHeadersAreValid() throws Exception {
+        // Given
+        UploadAdmissionFilter filter = filter(64, 0);
+        MockHttpServletRequest request = uploadRequest(new byte[10]);
+        request.addHeader(UploadAdmissionFilter.FILE_NAME_HEADER, "facture.pdf");
+        request.addHeader(UploadAdmissionFilter.FILE_TYPE_HEADER, "application/pdf");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+        verifyNoInteractions(fileRepository);
+    }
+
+    @Test
+    void doFilter_ShouldLetSpringSecurityReject_WhenNotAuthenticated() throws Exception {
+        // Given
+        SecurityContextHolder.clearContext();
+        UploadAdmissionFilter filter = filter(64, 0);
+        MockHttpServletRequest request = uploadRequest(new byte[200 * 1024]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+    }
+
+    private UploadAdmissionFilter filter(int maxConcurrent, long userQuota) {
+        concurrencyLimiter = new UploadConcurrencyLimiter(meterRegistry, maxConcurrent, maxConcurrent, maxConcurrent);
+        return new UploadAdmissionFilter(new ObjectMapper(), fileRepository, new TransferMetrics(meterRegistry),
+                concurrencyLimiter, true, MAX_FILE_SIZE, DataSize.ofGigabytes(1), DataSize.ofBytes(userQuota),
+                Duration.ofSeconds(5));
+    }
+
+    private static MockHttpServletRequest uploadRequest(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/files");
+        request.setContentType("multipart/form-data; boundary=----datashare");
+        request.setContent(body);
+        return request;
+    }
+}
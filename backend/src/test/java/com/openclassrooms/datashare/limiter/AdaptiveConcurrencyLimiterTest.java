@@ -0,0 +1,83 @@
+package com.openclassrooms.datashare.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void tryAcquire_ShouldRefuse_WhenLimitIsReached() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, 10);
+
+        // When
+        boolean first = limiter.tryAcquire();
+        boolean second = limiter.tryAcquire();
+        boolean third = limiter.tryAcquire();
+        limiter.release();
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void onSample_ShouldGrowLimit_WhenLatencyIsStableAndLimitIsUsed() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = saturated(new AdaptiveConcurrencyLimiter(1, 10, 100));
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(BASE_RTT);
+        }
+
+        // Then
+        assertThat(limiter.limit()).isGreaterThan(10);
+    }
+
+    @Test
+    void onSample_ShouldShrinkLimit_WhenLatencyRises() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = saturated(new AdaptiveConcurrencyLimiter(2, 50, 100));
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(BASE_RTT);
+        }
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(BASE_RTT * 20);
+        }
+
+        // Then
+        assertThat(limiter.limit()).isLessThan(10);
+    }
+
+    @Test
+    void onSample_ShouldKeepLimit_WhenLimitIsMostlyUnused() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 100);
+        limiter.tryAcquire();
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(BASE_RTT);
+        }
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(10);
+    }
+
+    private static AdaptiveConcurrencyLimiter saturated(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) {
+            // Occuper toutes les places
+        }
+        return limiter;
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.datashare.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedRateLimiterTest {
+
+    @Test
+    void tryAcquire_ShouldAcceptBurstThenReject() {
+        // Given
+        StripedRateLimiter limiter = new StripedRateLimiter(60, 3, 100, 4);
+
+        // When
+        long first = limiter.tryAcquire("203.0.113.7");
+        long second = limiter.tryAcquire("203.0.113.7");
+        long third = limiter.tryAcquire("203.0.113.7");
+        long fourth = limiter.tryAcquire("203.0.113.7");
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isZero();
+        // Un jeton par seconde : le suivant est disponible dans moins d'une seconde
+        assertThat(fourth).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void tryAcquire_WithPermits_ShouldChargeAllOrNothingAndCapAtBurst() {
+        // Given
+        StripedRateLimiter limiter = new StripedRateLimiter(60, 3, 100, 4);
+
+        // When
+        long twoPermits = limiter.tryAcquire("203.0.113.7", 2);
+        long twoMore = limiter.tryAcquire("203.0.113.7", 2);
+        long lastOne = limiter.tryAcquire("203.0.113.7");
+        // Plus de jetons que le seau n'en contient : coûte un seau plein
+        long oversized = limiter.tryAcquire("198.51.100.2", 100);
+
+        // Then
+        assertThat(twoPermits).isZero();
+        assertThat(twoMore).isPositive();
+        assertThat(lastOne).isZero();
+        assertThat(oversized).isZero();
+        assertThat(limiter.tryAcquire("198.51.100.2")).isPositive();
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepKeysIndependent() {
+        // Given
+        StripedRateLimiter limiter = new StripedRateLimiter(1, 1, 100, 4);
+        limiter.tryAcquire("203.0.113.7");
+
+        // When
+        long sameKey = limiter.tryAcquire("203.0.113.7");
+        long otherKey = limiter.tryAcquire("198.51.100.2");
+
+        // Then
+        assertThat(sameKey).isPositive();
+        assertThat(otherKey).isZero();
+    }
+
+    @Test
+    void tryAcquire_ShouldEvictLeastRecentlyUsedKeys_WhenMaxEntriesIsReached() {
+        // Given
+        StripedRateLimiter limiter = new StripedRateLimiter(1, 1, 8, 1);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+
+        // Then
+        assertThat(limiter.size()).isEqualTo(8);
+        // La clé évincée repart avec un seau plein
+        assertThat(limiter.tryAcquire("client-0")).isZero();
+    }
+}
@@ -0,0 +1,175 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.dto.ArchiveDownloadRequestDto;
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.exception.FileExpiredException;
+import com.openclassrooms.datashare.exception.FileNotFoundException;
+import com.openclassrooms.datashare.exception.InvalidArchiveRequestException;
+import com.openclassrooms.datashare.exception.InvalidPasswordException;
+import com.openclassrooms.datashare.repository.FileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour ArchiveService
+ * Téléchargement groupé en archive ZIP
+ */
+@ExtendWith(MockitoExtension.class)
+class ArchiveServiceTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @TempDir
+    Path tempDir;
+
+    private ArchiveService archiveService;
+
+    private File textFile;
+    private File imageFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archiveService = new ArchiveService(tempDir.toString());
+        ReflectionTestUtils.setField(archiveService, "fileRepository", fileRepository);
+        ReflectionTestUtils.setField(archiveService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(archiveService, "maxArchiveFiles", 2);
+
+        Files.writeString(tempDir.resolve("report.csv"), "id;name\n1;alice\n2;bob\n");
+        Files.write(tempDir.resolve("photo.png"), new byte[]{(byte) 0x89, 'P', 'N', 'G', 1, 2, 3});
+
+        textFile = createFile("token-csv", "report.csv", "text/csv");
+        imageFile = createFile("token-png", "photo.png", "image/png");
+    }
+
+    @Test
+    void writeArchive_ShouldStoreCompressedTypesAndDeflateOthers() throws IOException {
+        // When
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        archiveService.writeArchive(List.of(textFile, imageFile), output);
+
+        // Then
+        List<ZipEntry> entries = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry);
+                contents.add(new String(zip.readAllBytes()));
+            }
+        }
+
+        assertThat(entries).extracting(ZipEntry::getName).containsExactly("report.csv", "photo.png");
+        assertThat(entries.get(0).getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.get(1).getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(contents.get(0)).isEqualTo("id;name\n1;alice\n2;bob\n");
+    }
+
+    @Test
+    void writeArchive_WithDuplicateNames_ShouldSuffixEntries() throws IOException {
+        // Given
+        File duplicate = createFile("token-dup", "report.csv", "text/csv");
+
+        // When
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        archiveService.writeArchive(List.of(textFile, duplicate), output);
+
+        // Then
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertThat(names).containsExactly("report.csv", "report (1).csv");
+    }
+
+    @Test
+    void resolvePublicEntries_WithProtectedFileAndWrongPassword_ShouldThrow() {
+        // Given
+        imageFile.setPasswordHash("$2a$10$hashed_password");
+        when(fileRepository.findAllByDownloadTokenIn(anyCollection())).thenReturn(List.of(textFile, imageFile));
+        when(passwordEncoder.matches(eq("wrong"), eq("$2a$10$hashed_password"))).thenReturn(false);
+        ArchiveDownloadRequestDto request = new ArchiveDownloadRequestDto(
+                List.of("token-csv", "token-png"), Map.of("token-png", "wrong"));
+
+        // When/Then
+        assertThatThrownBy(() -> archiveService.resolvePublicEntries(request))
+                .isInstanceOf(InvalidPasswordException.class)
+                .hasMessage("Mot de passe incorrect");
+    }
+
+    @Test
+    void resolvePublicEntries_WithUnknownToken_ShouldThrowNotFound() {
+        // Given
+        when(fileRepository.findAllByDownloadTokenIn(anyCollection())).thenReturn(List.of(textFile));
+        ArchiveDownloadRequestDto request = new ArchiveDownloadRequestDto(List.of("token-csv", "unknown"), Map.of());
+
+        // When/Then
+        assertThatThrownBy(() -> archiveService.resolvePublicEntries(request))
+                .isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void resolvePublicEntries_WithTooManyTokens_ShouldThrow() {
+        // Given
+        ArchiveDownloadRequestDto request = new ArchiveDownloadRequestDto(List.of("a", "b", "c"), Map.of());
+
+        // When/Then
+        assertThatThrownBy(() -> archiveService.resolvePublicEntries(request))
+                .isInstanceOf(InvalidArchiveRequestException.class);
+    }
+
+    @Test
+    void resolveOwnerEntries_WithExpiredFile_ShouldThrow() {
+        // Given
+        imageFile.setExpirationDate(LocalDateTime.now().minusDays(1));
+        when(fileRepository.findAllByIdInAndUser_Id(anyCollection(), eq(1L))).thenReturn(List.of(imageFile));
+
+        // When/Then
+        assertThatThrownBy(() -> archiveService.resolveOwnerEntries(List.of(imageFile.getId()), 1L))
+                .isInstanceOf(FileExpiredException.class);
+    }
+
+    private File createFile(String token, String filename, String mimeType) {
+        File file = new File();
+        file.setId(UUID.randomUUID());
+        file.setOriginalFilename(filename);
+        file.setFilename(filename);
+        file.setFilepath(tempDir.resolve(filename).toString());
+        file.setFileSize(1L);
+        file.setMimeType(mimeType);
+        file.setDownloadToken(token);
+        file.setExpirationDate(LocalDateTime.now().plusDays(7));
+        return file;
+    }
+}
@@ -0,0 +1,164 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
+import com.openclassrooms.datashare.repository.FileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour CompressedVariantService
+ * Variantes gzip générées à la demande
+ */
+@ExtendWith(MockitoExtension.class)
+class CompressedVariantServiceTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private CompressedVariantService compressedVariantService;
+
+    private File csvFile;
+    private String csvContent;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        compressedVariantService = new CompressedVariantService(tempDir.toString(), 2, "0 0 * * * *");
+        ReflectionTestUtils.setField(compressedVariantService, "fileRepository", fileRepository);
+        ReflectionTestUtils.setField(compressedVariantService, "storageExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(compressedVariantService, "enabled", true);
+        ReflectionTestUtils.setField(compressedVariantService, "minSize", 1024L);
+        ReflectionTestUtils.setField(compressedVariantService, "level", 6);
+
+        csvContent = "id;name;value\n".repeat(200);
+        Files.writeString(tempDir.resolve("export.csv"), csvContent);
+
+        csvFile = new File();
+        csvFile.setId(UUID.randomUUID());
+        csvFile.setFilepath("export.csv");
+        csvFile.setMimeType("text/csv");
+        csvFile.setFileSize((long) csvContent.length());
+        csvFile.setExpirationDate(LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    void findGzipVariant_ShouldGenerateOnFirstRequestAndServeAfterwards() throws IOException {
+        // When
+        Optional<Path> first = compressedVariantService.findGzipVariant(csvFile);
+        Optional<Path> second = compressedVariantService.findGzipVariant(csvFile);
+
+        // Then
+        assertThat(first).isEmpty();
+        assertThat(second).contains(tempDir.resolve("export.csv.gz"));
+        assertThat(Files.size(second.get())).isLessThan(csvContent.length());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(second.get()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(csvContent);
+        }
+    }
+
+    @Test
+    void findGzipVariant_ShouldNotSubmit_WhenGenerationsAreAtLimit() throws IOException {
+        // Given - Exécuteur qui garde les tâches sans les exécuter, une seule génération autorisée
+        List<Runnable> submitted = new ArrayList<>();
+        compressedVariantService = new CompressedVariantService(tempDir.toString(), 1, "0 0 * * * *");
+        ReflectionTestUtils.setField(compressedVariantService, "storageExecutor", (Executor) submitted::add);
+        ReflectionTestUtils.setField(compressedVariantService, "enabled", true);
+        ReflectionTestUtils.setField(compressedVariantService, "minSize", 1024L);
+        ReflectionTestUtils.setField(compressedVariantService, "level", 6);
+        Files.writeString(tempDir.resolve("other.csv"), csvContent);
+        File otherFile = new File();
+        otherFile.setFilepath("other.csv");
+        otherFile.setMimeType("text/csv");
+        otherFile.setFileSize((long) csvContent.length());
+
+        // When
+        compressedVariantService.findGzipVariant(csvFile);
+        compressedVariantService.findGzipVariant(otherFile);
+
+        // Then - La seconde variante est différée sans attendre l'exécuteur
+        assertThat(submitted).hasSize(1);
+
+        // When - La première génération se termine et libère sa place
+        submitted.get(0).run();
+        compressedVariantService.findGzipVariant(otherFile);
+
+        // Then
+        assertThat(submitted).hasSize(2);
+        assertThat(tempDir.resolve("export.csv.gz")).exists();
+    }
+
+    @Test
+    void supportsGzip_ShouldRejectCompressedStorageSmallAndBinaryFiles() {
+        assertThat(compressedVariantService.supportsGzip(csvFile)).isTrue();
+
+        csvFile.setFileSize(100L);
+        assertThat(compressedVariantService.supportsGzip(csvFile)).isFalse();
+
+        csvFile.setFileSize(10_000L);
+        csvFile.setMimeType("image/png");
+        assertThat(compressedVariantService.supportsGzip(csvFile)).isFalse();
+
+        csvFile.setMimeType("text/csv");
+        csvFile.setStorageCodec(StorageCodec.GZIP);
+        assertThat(compressedVariantService.supportsGzip(csvFile)).isFalse();
+    }
+
+    @Test
+    void evictExpiredVariants_ShouldDeleteVariantsOfExpiredFiles() throws IOException {
+        // Given
+        compressedVariantService.findGzipVariant(csvFile);
+        Path variant = tempDir.resolve("export.csv.gz");
+        assertThat(variant).exists();
+        when(fileRepository.findFilepathsExpiredBetween(any(), any())).thenReturn(List.of("export.csv"));
+
+        // When
+        compressedVariantService.evictExpiredVariants();
+
+        // Then
+        assertThat(variant).doesNotExist();
+        assertThat(tempDir.resolve("export.csv")).exists();
+    }
+
+    @Test
+    void evictExpiredVariants_FirstSweep_ShouldStartOnePeriodBeforeStartup() {
+        // Given
+        LocalDateTime beforeStartup = LocalDateTime.now();
+        compressedVariantService = new CompressedVariantService(tempDir.toString(), 2, "0 0 * * * *");
+        ReflectionTestUtils.setField(compressedVariantService, "fileRepository", fileRepository);
+
+        // When
+        compressedVariantService.evictExpiredVariants();
+
+        // Then - Fenêtre d'une heure (cron horaire), pas depuis 1970
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(fileRepository).findFilepathsExpiredBetween(from.capture(), any());
+        assertThat(from.getValue()).isBetween(beforeStartup.minusHours(1).minusSeconds(1), beforeStartup.minusMinutes(59));
+    }
+}
@@ -3,11 +3,14 @@ package com.openclassrooms.datashare.service;
 import com.openclassrooms.datashare.dto.FileDownloadRequestDto;
 import com.openclassrooms.datashare.dto.FileInfoResponseDto;
 import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
 import com.openclassrooms.datashare.entities.User;
 import com.openclassrooms.datashare.exception.FileExpiredException;
 import com.openclassrooms.datashare.exception.FileNotFoundException;
 import com.openclassrooms.datashare.exception.InvalidPasswordException;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
 import com.openclassrooms.datashare.repository.FileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,13 +20,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.Resource;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -42,6 +50,11 @@ class DownloadServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private CompressedVariantService compressedVariantService;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private DownloadService downloadService;
 
     @TempDir
@@ -60,6 +73,11 @@ class DownloadServiceTest {
         downloadService = new DownloadService(tempDir.toString());
         ReflectionTestUtils.setField(downloadService, "fileRepository", fileRepository);
         ReflectionTestUtils.setField(downloadService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(downloadService, "compressedVariantService", compressedVariantService);
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(downloadService, "transferMetrics", new TransferMetrics(meterRegistry));
+        ReflectionTestUtils.setField(downloadService, "hotFileCache",
+                new HotFileCache(meterRegistry, false, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64)));
         
         // Créer un utilisateur de test
         testUser = new User();
@@ -251,6 +269,138 @@ class DownloadServiceTest {
                 .hasMessageContaining("Le fichier physique est introuvable ou illisible");
     }
 
+    // ==================== Tests openDownload() (stockage compressé) ====================
+
+    @Test
+    void openDownload_WithGzipStoredFileAndGzipAccepted_ShouldSendEncodedContent() throws IOException {
+        // Given
+        storeGzip("Test file content");
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, true);
+
+        // Then
+        assertThat(result.contentEncoding()).isEqualTo("gzip");
+        assertThat(result.contentLength()).isEqualTo(Files.size(testFilePath));
+        assertThat(result.file()).isSameAs(testFile);
+    }
+
+    @Test
+    void openDownload_WithGzipStoredFileAndGzipNotAccepted_ShouldDecodeContent() throws IOException {
+        // Given
+        storeGzip("Test file content");
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, false);
+
+        // Then
+        assertThat(result.contentEncoding()).isNull();
+        assertThat(result.contentLength()).isEqualTo(testFile.getFileSize());
+        try (InputStream in = result.resource().getInputStream()) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("Test file content");
+        }
+    }
+
+    @Test
+    void openDownload_WithRawFileAndGzipVariantAvailable_ShouldSendVariant() throws IOException {
+        // Given
+        Path variant = tempDir.resolve("test-file.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(variant))) {
+            out.write("Test file content".getBytes(StandardCharsets.UTF_8));
+        }
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+        when(compressedVariantService.supportsGzip(testFile)).thenReturn(true);
+        when(compressedVariantService.findGzipVariant(testFile)).thenReturn(Optional.of(variant));
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, true);
+
+        // Then
+        assertThat(result.contentEncoding()).isEqualTo("gzip");
+        assertThat(result.contentLength()).isEqualTo(Files.size(variant));
+        assertThat(result.varyByEncoding()).isTrue();
+    }
+
+    @Test
+    void openDownload_WithRawFileAndVariantNotReady_ShouldSendRawContent() {
+        // Given
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+        when(compressedVariantService.supportsGzip(testFile)).thenReturn(true);
+        when(compressedVariantService.findGzipVariant(testFile)).thenReturn(Optional.empty());
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, true);
+
+        // Then
+        assertThat(result.contentEncoding()).isNull();
+        assertThat(result.contentLength()).isEqualTo(testFile.getFileSize());
+        assertThat(result.varyByEncoding()).isTrue();
+    }
+
+    @Test
+    void openDownload_ShouldMeterOutcomeAndTransferredBytes() throws IOException {
+        // Given
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, false);
+        try (InputStream in = result.resource().getInputStream()) {
+            in.readAllBytes();
+        }
+
+        // Then
+        assertThat(meterRegistry.counter("datashare.download.outcome", "outcome", "ok").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("datashare.download.ttfb").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("datashare.download.bytes").summary().totalAmount())
+                .isEqualTo("Test file content".length());
+        assertThat(meterRegistry.get("datashare.transfers.active").tag("direction", "download").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void openDownload_WithExpiredFile_ShouldCountExpiredOutcome() {
+        // Given
+        testFile.setExpirationDate(LocalDateTime.now().minusDays(1));
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+
+        // When & Then
+        assertThatThrownBy(() -> downloadService.openDownload(validToken, null, false))
+                .isInstanceOf(FileExpiredException.class);
+        assertThat(meterRegistry.counter("datashare.download.outcome", "outcome", "expired").count()).isEqualTo(1);
+    }
+
+    @Test
+    void openDownload_WithHotFileCacheEnabled_ShouldServeRepeatedDownloadsFromMemory() throws IOException {
+        // Given - Chargé en cache au deuxième téléchargement
+        SimpleMeterRegistry cacheRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(downloadService, "hotFileCache",
+                new HotFileCache(cacheRegistry, true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64)));
+        when(fileRepository.findByDownloadToken(validToken)).thenReturn(Optional.of(testFile));
+        downloadService.openDownload(validToken, null, false);
+        downloadService.openDownload(validToken, null, false);
+        Files.delete(testFilePath);
+
+        // When
+        DownloadContent result = downloadService.openDownload(validToken, null, false);
+
+        // Then
+        try (InputStream in = result.resource().getInputStream()) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("Test file content");
+        }
+        assertThat(cacheRegistry.get("datashare.download.cache.requests").tag("result", "hit").functionCounter()
+                .count()).isEqualTo(1);
+    }
+
+    private void storeGzip(String content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(testFilePath))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        testFile.setStorageCodec(StorageCodec.GZIP);
+        testFile.setFileSize((long) content.length());
+    }
+
     // ==================== Tests getFileByToken() ====================
 
     @Test
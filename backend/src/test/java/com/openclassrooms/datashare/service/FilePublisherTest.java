@@ -0,0 +1,68 @@
+package com.openclassrooms.datashare.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitaires pour FilePublisher
+ * Arrêt du group commit avec des publications en attente
+ */
+class FilePublisherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stop_ShouldPublishPendingGroupCommit() throws Exception {
+        // Given - Fenêtre longue : les publications attendent encore le lot quand l'arrêt est demandé
+        FilePublisher publisher = new FilePublisher(StorageDurability.GROUP_COMMIT, Duration.ofMillis(300), 16);
+        List<CompletableFuture<Void>> publications = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path staged = Files.writeString(tempDir.resolve("staged-" + i), "content " + i);
+            Path target = tempDir.resolve("target-" + i);
+            publications.add(CompletableFuture.runAsync(() -> {
+                try {
+                    publisher.publish(staged, target);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        Thread.sleep(100);
+
+        // When
+        publisher.stop();
+
+        // Then
+        CompletableFuture.allOf(publications.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            assertThat(tempDir.resolve("target-" + i)).hasContent("content " + i);
+        }
+    }
+
+    @Test
+    void publish_AfterStop_ShouldFailInsteadOfWaiting() throws Exception {
+        // Given
+        FilePublisher publisher = new FilePublisher(StorageDurability.GROUP_COMMIT, Duration.ofMillis(1), 16);
+        publisher.stop();
+        Path staged = Files.writeString(tempDir.resolve("staged"), "content");
+
+        // When & Then
+        assertThatThrownBy(() -> publisher.publish(staged, tempDir.resolve("target")))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Storage is shutting down");
+        assertThat(staged).exists();
+    }
+}
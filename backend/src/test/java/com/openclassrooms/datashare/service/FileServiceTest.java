@@ -1,18 +1,26 @@
 package com.openclassrooms.datashare.service;
 
+import com.openclassrooms.datashare.configuration.upload.UploadConcurrencyLimiter;
+import com.openclassrooms.datashare.dto.FileBatchUploadResponseDto;
 import com.openclassrooms.datashare.dto.FileUploadRequestDto;
 import com.openclassrooms.datashare.dto.FileUploadResponseDto;
 import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.entities.StorageCodec;
 import com.openclassrooms.datashare.entities.User;
 import com.openclassrooms.datashare.mapper.FileMapper;
+import com.openclassrooms.datashare.monitoring.TransferMetrics;
 import com.openclassrooms.datashare.repository.FileRepository;
+import com.openclassrooms.datashare.service.FileStorageService.StoredFile;
 import com.openclassrooms.datashare.validation.MimeTypeValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -20,8 +28,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -58,6 +68,15 @@ class FileServiceTest {
     
     @Mock
     private MimeTypeValidator mimeTypeValidator;
+
+    @Mock
+    private UploadConcurrencyLimiter uploadConcurrencyLimiter;
+
+    @Mock
+    private HotFileCache hotFileCache;
+
+    @Spy
+    private TransferMetrics transferMetrics = new TransferMetrics(new SimpleMeterRegistry());
     
     @InjectMocks
     private FileService fileService;
@@ -71,6 +90,8 @@ class FileServiceTest {
         // Initialiser les @Value via ReflectionTestUtils
         ReflectionTestUtils.setField(fileService, "maxFileSize", 1073741824L); // 1 GB
         ReflectionTestUtils.setField(fileService, "downloadBaseUrl", "http://localhost:3000/api/files/download");
+        ReflectionTestUtils.setField(fileService, "maxBatchFiles", 3);
+        ReflectionTestUtils.setField(fileService, "storageExecutor", (Executor) Runnable::run);
 
         // Créer un utilisateur test
         testUser = new User();
@@ -101,7 +122,7 @@ class FileServiceTest {
         when(tokenGeneratorService.generateUniqueToken()).thenReturn(token);
         when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
         doNothing().when(mimeTypeValidator).validateOrThrow(testFile);
-        when(storageService.storeFile(testFile, testUser.getId())).thenReturn(filepath);
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
         when(fileRepository.save(any(File.class))).thenReturn(savedFile);
         when(fileMapper.toUploadResponse(savedFile)).thenReturn(expectedDto);
 
@@ -112,7 +133,23 @@ class FileServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getDownloadUrl()).isEqualTo("http://localhost:3000/api/files/download/test-token-123");
         verify(fileRepository).save(any(File.class));
-        verify(storageService).storeFile(testFile, testUser.getId());
+        verify(storageService).storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void uploadFile_DatabaseFailure_DeletesStoredFile() throws IOException {
+        // Given
+        String filepath = "1/2025/11/17/uuid_test.pdf";
+        when(tokenGeneratorService.generateUniqueToken()).thenReturn("test-token-123");
+        when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
+        when(fileRepository.save(any(File.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        // When/Then
+        assertThatThrownBy(() -> fileService.uploadFile(testFile, testRequest, testUser))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(storageService).deleteFile(filepath);
     }
 
     @Test
@@ -127,7 +164,7 @@ class FileServiceTest {
         when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
         doNothing().when(mimeTypeValidator).validateOrThrow(testFile);
         when(passwordEncoder.encode("mypassword")).thenReturn(hashedPassword);
-        when(storageService.storeFile(testFile, testUser.getId())).thenReturn(filepath);
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
         when(fileRepository.save(any(File.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(fileMapper.toUploadResponse(any(File.class))).thenReturn(new FileUploadResponseDto());
 
@@ -151,7 +188,7 @@ class FileServiceTest {
         when(tokenGeneratorService.generateUniqueToken()).thenReturn(token);
         when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
         doNothing().when(mimeTypeValidator).validateOrThrow(testFile);
-        when(storageService.storeFile(testFile, testUser.getId())).thenReturn(filepath);
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
         when(fileRepository.save(any(File.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(fileMapper.toUploadResponse(any(File.class))).thenReturn(new FileUploadResponseDto());
 
@@ -173,7 +210,7 @@ class FileServiceTest {
         when(tokenGeneratorService.generateUniqueToken()).thenReturn(token);
         when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
         doNothing().when(mimeTypeValidator).validateOrThrow(testFile);
-        when(storageService.storeFile(testFile, testUser.getId())).thenReturn(filepath);
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
         when(fileRepository.save(any(File.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(fileMapper.toUploadResponse(any(File.class))).thenReturn(new FileUploadResponseDto());
 
@@ -198,7 +235,7 @@ class FileServiceTest {
         when(tokenGeneratorService.generateUniqueToken()).thenReturn(token);
         when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
         doNothing().when(mimeTypeValidator).validateOrThrow(testFile);
-        when(storageService.storeFile(testFile, testUser.getId())).thenReturn(filepath);
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class))).thenReturn(stored(filepath));
         when(fileRepository.save(any(File.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(fileMapper.toUploadResponse(any(File.class))).thenReturn(new FileUploadResponseDto());
 
@@ -259,6 +296,97 @@ class FileServiceTest {
                 .hasMessageContaining("between 1 and 7");
     }
 
+    @Test
+    void uploadFiles_WithValidFiles_SavesAllInOneBatch() throws IOException {
+        // Given
+        testRequest.setPassword("mypassword");
+        MockMultipartFile secondFile = new MockMultipartFile("files", "notes.txt", "text/plain", "notes".getBytes());
+        List<MultipartFile> files = List.of(testFile, secondFile);
+
+        when(tokenGeneratorService.generateUniqueTokens(2)).thenReturn(List.of("token-1", "token-2"));
+        when(passwordEncoder.encode("mypassword")).thenReturn("$2a$10$hashedpassword");
+        when(storageService.detectMimeType(testFile)).thenReturn("application/pdf");
+        when(storageService.detectMimeType(secondFile)).thenReturn("text/plain");
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("application/pdf"), any(LocalDateTime.class)))
+                .thenReturn(stored("1/2025/11/17/uuid_test.pdf"));
+        when(storageService.storeFile(eq(secondFile), eq(testUser.getId()), eq("text/plain"), any(LocalDateTime.class)))
+                .thenReturn(new StoredFile("1/2025/11/17/uuid_notes.txt", StorageCodec.GZIP, 3L, "text/plain"));
+        when(fileRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(fileMapper.toUploadResponse(any(File.class))).thenAnswer(invocation -> new FileUploadResponseDto());
+
+        // When
+        FileBatchUploadResponseDto result = fileService.uploadFiles(files, testRequest, testUser);
+
+        // Then
+        assertThat(result.getCount()).isEqualTo(2);
+        assertThat(result.getTotalSize()).isEqualTo(testFile.getSize() + secondFile.getSize());
+        assertThat(result.getFiles())
+                .extracting(FileUploadResponseDto::getDownloadUrl)
+                .containsExactly(
+                        "http://localhost:3000/api/files/download/token-1",
+                        "http://localhost:3000/api/files/download/token-2");
+        verify(passwordEncoder, times(1)).encode("mypassword");
+        verify(tokenGeneratorService, never()).generateUniqueToken();
+        verify(fileRepository, never()).save(any(File.class));
+        verify(fileRepository).saveAllAndFlush(argThat(entities -> ((List<File>) entities).size() == 2
+                && ((List<File>) entities).get(1).getStorageCodec() == StorageCodec.GZIP));
+    }
+
+    @Test
+    void uploadFiles_TooManyFiles_ThrowsException() {
+        // Given
+        List<MultipartFile> files = List.of(testFile, testFile, testFile, testFile);
+
+        // When/Then
+        assertThatThrownBy(() -> fileService.uploadFiles(files, testRequest, testUser))
+                .isInstanceOf(FileService.BatchSizeExceededException.class)
+                .hasMessageContaining("maximum allowed is 3");
+        verifyNoInteractions(storageService, fileRepository);
+    }
+
+    @Test
+    void uploadFiles_StorageFailure_DeletesAlreadyStoredFiles() throws IOException {
+        // Given
+        MockMultipartFile failingFile = new MockMultipartFile("files", "broken.txt", "text/plain", "broken".getBytes());
+        List<MultipartFile> files = List.of(testFile, failingFile);
+
+        when(tokenGeneratorService.generateUniqueTokens(2)).thenReturn(List.of("token-1", "token-2"));
+        when(storageService.detectMimeType(any(MultipartFile.class))).thenReturn("text/plain");
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("text/plain"), any(LocalDateTime.class)))
+                .thenReturn(stored("1/2025/11/17/uuid_test.pdf"));
+        when(storageService.storeFile(eq(failingFile), eq(testUser.getId()), eq("text/plain"), any(LocalDateTime.class)))
+                .thenThrow(new FileStorageService.FileStorageException("Disk full"));
+
+        // When/Then
+        assertThatThrownBy(() -> fileService.uploadFiles(files, testRequest, testUser))
+                .isInstanceOf(FileStorageService.FileStorageException.class)
+                .hasMessageContaining("Disk full");
+        verify(storageService).deleteFile("1/2025/11/17/uuid_test.pdf");
+        verify(fileRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void uploadFiles_DatabaseFailureAtFlush_DeletesStoredFiles() throws IOException {
+        // Given
+        MockMultipartFile secondFile = new MockMultipartFile("files", "notes.txt", "text/plain", "notes".getBytes());
+        List<MultipartFile> files = List.of(testFile, secondFile);
+
+        when(tokenGeneratorService.generateUniqueTokens(2)).thenReturn(List.of("token-1", "token-2"));
+        when(storageService.detectMimeType(any(MultipartFile.class))).thenReturn("text/plain");
+        when(storageService.storeFile(eq(testFile), eq(testUser.getId()), eq("text/plain"), any(LocalDateTime.class)))
+                .thenReturn(stored("1/2025/11/17/uuid_test.pdf"));
+        when(storageService.storeFile(eq(secondFile), eq(testUser.getId()), eq("text/plain"), any(LocalDateTime.class)))
+                .thenReturn(stored("1/2025/11/17/uuid_notes.txt"));
+        when(fileRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        // When/Then
+        assertThatThrownBy(() -> fileService.uploadFiles(files, testRequest, testUser))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(storageService).deleteFile("1/2025/11/17/uuid_test.pdf");
+        verify(storageService).deleteFile("1/2025/11/17/uuid_notes.txt");
+    }
+
     @Test
     void calculateExpirationDate_WithDays_ReturnsCorrectDate() {
         // Given
@@ -292,6 +420,7 @@ class FileServiceTest {
         // Then
         verify(fileRepository).findByIdAndUser_Id(fileId, testUser.getId());
         verify(storageService).deleteFile(filepath);
+        verify(hotFileCache).invalidate(fileId);
         verify(fileRepository).delete(file);
     }
 
@@ -382,6 +511,10 @@ class FileServiceTest {
     }
 
     // Helper methods
+    private StoredFile stored(String filepath) {
+        return new StoredFile(filepath, StorageCodec.NONE, testFile.getSize(), "application/pdf");
+    }
+
     private File createMockFile(String token, String filepath, String passwordHash) {
         File file = new File();
         file.setId(UUID.randomUUID());
@@ -1,20 +1,36 @@
 package com.openclassrooms.datashare.service;
 
+import com.openclassrooms.datashare.entities.StorageCodec;
 import com.openclassrooms.datashare.service.FileStorageService.FileStorageException;
+import com.openclassrooms.datashare.service.FileStorageService.StoredFile;
+import com.openclassrooms.datashare.validation.MimeTypeValidator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.Resource;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -33,12 +49,12 @@ class FileStorageServiceTest {
     private Long testUserId;
 
     @BeforeEach
-    void setUp() throws FileStorageException {
+    void setUp() throws IOException {
         // Création du service avec le répertoire temporaire
         String storagePath = tempDir.toString();
         long maxFileSize = 1073741824L; // 1 GB
         
-        fileStorageService = new FileStorageService(storagePath, maxFileSize);
+        fileStorageService = new FileStorageService(storagePath, maxFileSize, new SegmentStore(storagePath));
         
         // Fichier de test standard
         testFile = new MockMultipartFile(
@@ -123,6 +139,108 @@ class FileStorageServiceTest {
         assertThat(filename).matches("^[a-f0-9\\-]{36}_.*");
     }
 
+    /**
+     * Test supplémentaire: en organisation hashed, le fichier est rangé sous le préfixe de son UUID
+     */
+    @Test
+    void storeFile_HashedLayout_AddsUuidPrefixDirectory() throws FileStorageException {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "layout", StorageLayout.HASHED);
+
+        // When
+        String filepath = fileStorageService.storeFile(testFile, testUserId);
+
+        // Then - {userId}/{yyyy}/{mm}/{dd}/{xx}/{UUID}_{filename}, xx = début de l'UUID
+        String[] parts = filepath.split("/");
+        assertThat(parts).hasSize(6);
+        assertThat(parts[5]).startsWith(parts[4]);
+        assertThat(tempDir.resolve(filepath)).exists();
+    }
+
+    /**
+     * Test supplémentaire: en organisation expiry, le fichier est rangé dans le bucket de l'heure qui suit son expiration
+     */
+    @Test
+    void storeFile_ExpiryLayout_StoresInExpirationHourBucket() throws FileStorageException {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "layout", StorageLayout.EXPIRY);
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 3, 14, 9, 26);
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(testFile, testUserId, "application/pdf", expiresAt);
+
+        // Then
+        assertThat(storedFile.filepath()).startsWith("expiry/2030/03/14/10/");
+        assertThat(tempDir.resolve(storedFile.filepath())).exists();
+        assertThat(StorageLayout.expiryBucket(LocalDateTime.of(2030, 3, 14, 10, 0))).isEqualTo("expiry/2030/03/14/10");
+    }
+
+    /**
+     * Test supplémentaire: le balayage supprime les buckets dont l'heure est passée, et eux seuls
+     */
+    @Test
+    void sweepExpiredBuckets_DeletesOnlyPastBuckets() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "layout", StorageLayout.EXPIRY);
+        LocalDateTime now = LocalDateTime.now();
+        String live = fileStorageService.storeFile(testFile, testUserId, "application/pdf", now.plusDays(1)).filepath();
+        String expired = fileStorageService.storeFile(testFile, testUserId, "application/pdf", now.minusHours(2)).filepath();
+        String dated = fileStorageService.storeFile(testFile, testUserId, "application/pdf", null).filepath();
+        Path foreign = Files.createDirectories(tempDir.resolve("expiry/2000/01/01/notes"));
+
+        // When
+        int deleted = fileStorageService.sweepExpiredBuckets();
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(tempDir.resolve(expired)).doesNotExist();
+        assertThat(tempDir.resolve(live)).exists();
+        assertThat(tempDir.resolve(dated)).exists();
+        assertThat(foreign).exists();
+    }
+
+    /**
+     * Test supplémentaire: un petit fichier est ajouté à un segment, que sa suppression ne touche pas
+     */
+    @Test
+    void storeFile_SmallFileWithPacking_AppendsToSegment() throws IOException {
+        // Given
+        SegmentStore segmentStore = new SegmentStore(tempDir.toString());
+        ReflectionTestUtils.setField(segmentStore, "enabled", true);
+        fileStorageService = new FileStorageService(tempDir.toString(), 1073741824L, segmentStore);
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(testFile, testUserId, "application/pdf");
+        fileStorageService.deleteFile(storedFile.filepath());
+
+        // Then
+        assertThat(storedFile.filepath()).startsWith(SegmentStore.SEGMENT_DIRECTORY + "/");
+        assertThat(storedFile.segmentOffset()).isZero();
+        assertThat(tempDir.resolve(storedFile.filepath())).exists().hasContent("Test file content");
+        assertThat(tempDir.resolve(String.valueOf(testUserId))).doesNotExist();
+        segmentStore.close();
+    }
+
+    /**
+     * Test supplémentaire: un répertoire connu du cache puis supprimé est recréé au prochain upload
+     */
+    @Test
+    void storeFile_RecreatesCachedDirectoryDeletedMeanwhile() throws IOException {
+        // Given - Un premier upload met le répertoire du jour en cache
+        String first = fileStorageService.storeFile(testFile, testUserId);
+        Path userDirectory = tempDir.resolve(String.valueOf(testUserId));
+        try (var paths = Files.walk(userDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        assertThat(tempDir.resolve(first)).doesNotExist();
+
+        // When
+        String second = fileStorageService.storeFile(testFile, testUserId);
+
+        // Then
+        assertThat(tempDir.resolve(second)).exists();
+    }
+
     /**
      * Test 3: loadFileAsResource charge un fichier existant avec succès
      */
@@ -237,6 +355,27 @@ class FileStorageServiceTest {
             .hasMessageContaining("File size exceeds maximum allowed size");
     }
 
+    /**
+     * Test supplémentaire: storeFile refuse un fichier que le volume ne peut pas contenir, avant toute écriture
+     */
+    @Test
+    void storeFile_InsufficientSpace_ThrowsBeforeWriting() throws IOException {
+        // Given - Marge libre supérieure à tout volume réel
+        ReflectionTestUtils.setField(fileStorageService, "minFreeSpace", DataSize.ofBytes(Long.MAX_VALUE / 2));
+
+        // When / Then
+        assertThatThrownBy(() -> fileStorageService.storeFile(testFile, testUserId))
+            .isInstanceOf(FileStorageService.InsufficientStorageException.class)
+            .hasMessageContaining("Insufficient storage space");
+        try (var staged = Files.list(tempDir.resolve(FileStorageService.STAGING_DIRECTORY))) {
+            assertThat(staged).isEmpty();
+        }
+
+        // La réservation est libérée : un upload ultérieur passe sans marge
+        ReflectionTestUtils.setField(fileStorageService, "minFreeSpace", DataSize.ofBytes(0));
+        assertThat(fileStorageService.storeFile(testFile, testUserId)).isNotBlank();
+    }
+
     /**
      * Test supplémentaire: storeFile rejette un fichier vide
      */
@@ -335,4 +474,196 @@ class FileStorageServiceTest {
         assertThat(filepath).isNotNull();
         assertThat(filepath).contains("unnamed");
     }
+
+    /**
+     * Test compression: un fichier textuel est stocké compressé et reste décodable
+     */
+    @Test
+    void storeFile_CompressibleTypeWithCompressionEnabled_StoresGzip() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(fileStorageService, "compressionMinSize", 1024L);
+        ReflectionTestUtils.setField(fileStorageService, "compressionLevel", 6);
+        String csv = "id;name;value\n".repeat(500);
+        MockMultipartFile csvFile = new MockMultipartFile(
+            "file", "export.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)
+        );
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(csvFile, testUserId, "text/csv");
+
+        // Then
+        assertThat(storedFile.codec()).isEqualTo(StorageCodec.GZIP);
+        assertThat(storedFile.storedSize()).isLessThan(csvFile.getSize());
+
+        Path fullPath = tempDir.resolve(storedFile.filepath());
+        assertThat(Files.size(fullPath)).isEqualTo(storedFile.storedSize());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(fullPath))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(csv);
+        }
+    }
+
+    /**
+     * Test compression: types déjà compressés, petits fichiers et compression désactivée restent bruts
+     */
+    @Test
+    void selectCodec_ReturnsNoneWhenCompressionIsNotWorthwhile() {
+        // Compression désactivée par défaut
+        assertThat(fileStorageService.selectCodec("text/csv", 1_000_000)).isEqualTo(StorageCodec.NONE);
+
+        ReflectionTestUtils.setField(fileStorageService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(fileStorageService, "compressionMinSize", 1024L);
+
+        assertThat(fileStorageService.selectCodec("text/csv", 1_000_000)).isEqualTo(StorageCodec.GZIP);
+        assertThat(fileStorageService.selectCodec("application/json; charset=utf-8", 4096)).isEqualTo(StorageCodec.GZIP);
+        assertThat(fileStorageService.selectCodec("text/csv", 512)).isEqualTo(StorageCodec.NONE);
+        assertThat(fileStorageService.selectCodec("application/pdf", 1_000_000)).isEqualTo(StorageCodec.NONE);
+        assertThat(fileStorageService.selectCodec("image/png", 1_000_000)).isEqualTo(StorageCodec.NONE);
+        assertThat(fileStorageService.selectCodec(null, 1_000_000)).isEqualTo(StorageCodec.NONE);
+    }
+
+    /**
+     * Test détection: le type réel est déduit des premiers octets du contenu
+     */
+    @Test
+    void storeFile_SniffsContentTypeFromMagicNumber() throws IOException {
+        // Given - PNG envoyé sans extension ni type précis
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+        MockMultipartFile image = new MockMultipartFile("file", "capture", "application/octet-stream", png);
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(image, testUserId, "application/octet-stream");
+
+        // Then
+        assertThat(storedFile.mimeType()).isEqualTo("image/png");
+        assertThat(Files.readAllBytes(tempDir.resolve(storedFile.filepath()))).isEqualTo(png);
+    }
+
+    /**
+     * Test détection: un conteneur ZIP garde le type déclaré s'il en est un format dérivé (DOCX)
+     */
+    @Test
+    void storeFile_KeepsDeclaredTypeForZipBasedDocuments() throws IOException {
+        // Given
+        String docxType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        MockMultipartFile docx = new MockMultipartFile(
+            "file", "rapport.docx", docxType, new byte[]{'P', 'K', 0x03, 0x04, 20, 0, 0, 0}
+        );
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(docx, testUserId, docxType);
+
+        // Then
+        assertThat(storedFile.mimeType()).isEqualTo(docxType);
+    }
+
+    /**
+     * Test détection: un exécutable renommé est refusé avant toute écriture
+     */
+    @Test
+    void storeFile_ExecutableDisguisedAsPdf_ThrowsAndWritesNothing() throws IOException {
+        // Given
+        MockMultipartFile disguised = new MockMultipartFile(
+            "file", "facture.pdf", "application/pdf", new byte[]{'M', 'Z', (byte) 0x90, 0, 3, 0}
+        );
+
+        // When / Then
+        assertThatThrownBy(() -> fileStorageService.storeFile(disguised, testUserId, "application/pdf"))
+            .isInstanceOf(MimeTypeValidator.InvalidMimeTypeException.class)
+            .hasMessageContaining("application/x-msdownload");
+        try (var files = Files.walk(tempDir)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    /**
+     * Test préparation: le fichier est publié par renommage, rien ne reste dans le répertoire de préparation
+     */
+    @Test
+    void storeFile_MovesStagedFileToFinalPath() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "durability", StorageDurability.FSYNC);
+        fileStorageService.initialize();
+
+        // When
+        StoredFile storedFile = fileStorageService.storeFile(testFile, testUserId, "application/pdf");
+
+        // Then
+        assertThat(tempDir.resolve(storedFile.filepath())).hasContent("Test file content");
+        try (var staged = Files.list(tempDir.resolve(FileStorageService.STAGING_DIRECTORY))) {
+            assertThat(staged).isEmpty();
+        }
+    }
+
+    /**
+     * Test reprise: seuls les fichiers de préparation abandonnés depuis le délai de grâce sont supprimés
+     */
+    @Test
+    void recoverStagingArea_DeletesOnlyStaleOrphans() throws IOException {
+        // Given
+        Path staging = tempDir.resolve(FileStorageService.STAGING_DIRECTORY);
+        Path stale = Files.writeString(staging.resolve("crashed.part"), "partial");
+        Files.setLastModifiedTime(stale, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        Path inProgress = Files.writeString(staging.resolve("uploading.part"), "partial");
+
+        // When
+        int deleted = fileStorageService.recoverStagingArea();
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(stale).doesNotExist();
+        assertThat(inProgress).exists();
+    }
+
+    /**
+     * Test reprise après redémarrage rapide: l'orphelin trop récent au démarrage est supprimé au passage suivant
+     */
+    @Test
+    void recoverStagingArea_DeletesOrphanSkippedAtStartup_OnceGraceHasElapsed() throws IOException {
+        // Given - Orphelin de quelques secondes au démarrage
+        Path orphan = Files.writeString(tempDir.resolve(FileStorageService.STAGING_DIRECTORY).resolve("crashed.part"), "partial");
+        fileStorageService.initialize();
+        assertThat(orphan).exists();
+        Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        // When - Passage planifié
+        int deleted = fileStorageService.recoverStagingArea();
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(orphan).doesNotExist();
+    }
+
+    /**
+     * Test group commit: les uploads simultanés sont publiés par lots, chacun attend la publication du sien
+     */
+    @Test
+    void storeFile_GroupCommit_PublishesConcurrentUploads() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(fileStorageService, "durability", StorageDurability.GROUP_COMMIT);
+        ReflectionTestUtils.setField(fileStorageService, "groupCommitWindow", Duration.ofMillis(20));
+        fileStorageService.initialize();
+        ExecutorService uploads = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<StoredFile>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                MockMultipartFile file = new MockMultipartFile(
+                    "file", "doc-" + i + ".txt", "text/plain", ("content " + i).getBytes());
+                futures.add(uploads.submit(() -> fileStorageService.storeFile(file, testUserId, "text/plain")));
+            }
+
+            // Then
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(tempDir.resolve(futures.get(i).get().filepath())).hasContent("content " + i);
+            }
+            try (var staged = Files.list(tempDir.resolve(FileStorageService.STAGING_DIRECTORY))) {
+                assertThat(staged).isEmpty();
+            }
+        } finally {
+            uploads.shutdownNow();
+            fileStorageService.stop();
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.repository.FileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour SegmentStore
+ * Regroupement des petits fichiers dans des segments en ajout seul
+ */
+@ExtendWith(MockitoExtension.class)
+class SegmentStoreTest {
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private SegmentStore segmentStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        segmentStore = new SegmentStore(tempDir.toString());
+        ReflectionTestUtils.setField(segmentStore, "fileRepository", fileRepository);
+        ReflectionTestUtils.setField(segmentStore, "enabled", true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        segmentStore.close();
+    }
+
+    @Test
+    void append_ShouldPackEntriesBackToBackAndReadThemAtTheirOffset() throws IOException {
+        // When
+        SegmentStore.Entry first = segmentStore.append(bytes("first entry"));
+        SegmentStore.Entry second = segmentStore.append(bytes("second"));
+
+        // Then
+        assertThat(second.filepath()).isEqualTo(first.filepath()).startsWith("segments/");
+        assertThat(first.offset()).isZero();
+        assertThat(second.offset()).isEqualTo(first.length());
+        assertThat(segmentStore.read(packed(second))).isEqualTo(bytes("second"));
+        try (InputStream in = segmentStore.open(packed(first)).getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(bytes("first entry"));
+        }
+    }
+
+    @Test
+    void append_ShouldOpenNewSegment_WhenActiveSegmentIsFull() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(segmentStore, "segmentSize", DataSize.ofBytes(16));
+
+        // When
+        SegmentStore.Entry first = segmentStore.append(bytes("0123456789"));
+        SegmentStore.Entry second = segmentStore.append(bytes("abcdefghij"));
+
+        // Then
+        assertThat(second.filepath()).isNotEqualTo(first.filepath());
+        assertThat(second.offset()).isZero();
+        assertThat(segmentStore.read(packed(first))).isEqualTo(bytes("0123456789"));
+    }
+
+    @Test
+    void compact_ShouldDeleteUnreferencedSegmentsAndRewriteMostlyDeadOnes() throws IOException {
+        // Given - Deux segments scellés : l'un sans entrée valide, l'autre valide à 10 %
+        ReflectionTestUtils.setField(segmentStore, "segmentSize", DataSize.ofBytes(100));
+        ReflectionTestUtils.setField(segmentStore, "compactionGrace", Duration.ZERO);
+        SegmentStore.Entry dead = segmentStore.append(new byte[100]);
+        SegmentStore.Entry live = segmentStore.append(bytes("live entry"));
+        segmentStore.append(new byte[90]);
+        segmentStore.append(new byte[1]); // ouvre le segment actif, ignoré par la compaction
+
+        File liveFile = packed(live);
+        when(fileRepository.findLiveSegmentEntries(eq(dead.filepath()), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        when(fileRepository.findLiveSegmentEntries(eq(live.filepath()), any(LocalDateTime.class)))
+                .thenReturn(List.of(liveFile));
+
+        // When
+        long reclaimed = segmentStore.compact();
+
+        // Then
+        assertThat(reclaimed).isEqualTo(100 + 90);
+        assertThat(tempDir.resolve(dead.filepath())).doesNotExist();
+        verify(fileRepository).moveSegmentEntry(eq(liveFile.getId()), any(String.class), eq(1L));
+    }
+
+    private static File packed(SegmentStore.Entry entry) {
+        File file = new File();
+        file.setId(UUID.randomUUID());
+        file.setFilepath(entry.filepath());
+        file.setSegmentOffset(entry.offset());
+        file.setSegmentLength(entry.length());
+        return file;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package com.openclassrooms.datashare.service;
+
+import com.openclassrooms.datashare.monitoring.jfr.InstrumentedPasswordEncoder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vérifie que les chemins bloquants exécutés en mode threads virtuels
+ * (spring.threads.virtual.enabled=true) n'épinglent pas leur thread porteur.
+ * <p>
+ * Un thread virtuel qui se bloque à l'intérieur d'un bloc synchronized reste attaché à son
+ * porteur (JDK 21) : l'événement JFR jdk.VirtualThreadPinned est alors émis.
+ * Les appels JDBC ne sont pas couverts ici (pas de base de données) : le driver PostgreSQL
+ * utilise des ReentrantLock depuis la version 42.6, à vérifier sous charge via l'enregistrement JFR continu.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int CONCURRENT_TASKS = 32;
+
+    @TempDir
+    Path tempDir;
+
+    private FileStorageService fileStorageService;
+    private PasswordEncoder passwordEncoder;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fileStorageService = new FileStorageService(tempDir.toString(), 1073741824L, new SegmentStore(tempDir.toString()));
+        ReflectionTestUtils.setField(fileStorageService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(fileStorageService, "compressionLevel", 6);
+
+        passwordEncoder = new InstrumentedPasswordEncoder(new BCryptPasswordEncoder(4));
+
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                "testSecretKeyForJwtTokenGenerationThatIsLongEnoughForHS256Algorithm");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+    }
+
+    @Test
+    void detector_ShouldReportBlockingInsideSynchronized() throws Exception {
+        // Given
+        Object monitor = new Object();
+
+        // When
+        List<RecordedEvent> pinned = recordPinnedEvents(() -> {
+            synchronized (monitor) {
+                Thread.sleep(20);
+            }
+            return null;
+        });
+
+        // Then
+        assertThat(pinned).isNotEmpty();
+    }
+
+    @Test
+    void storeAndReadFile_ShouldNotPinCarrierThreads() throws Exception {
+        // Given
+        byte[] content = "id;nom;montant\n1;Dupont;42\n".repeat(2000).getBytes(StandardCharsets.UTF_8);
+
+        // When
+        List<RecordedEvent> pinned = recordPinnedEvents(() -> {
+            MockMultipartFile file = new MockMultipartFile("file", "export.csv", "text/csv", content);
+            FileStorageService.StoredFile stored = fileStorageService.storeFile(file, 1L, "text/csv");
+            try (InputStream in = stored.codec().decode(Files.newInputStream(tempDir.resolve(stored.filepath())))) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            fileStorageService.deleteFile(stored.filepath());
+            return null;
+        });
+
+        // Then
+        assertThat(pinned).isEmpty();
+    }
+
+    @Test
+    void passwordHashing_ShouldNotPinCarrierThreads() throws Exception {
+        // Given
+        String hash = passwordEncoder.encode("motdepasse");
+
+        // When
+        List<RecordedEvent> pinned = recordPinnedEvents(() -> {
+            passwordEncoder.encode("motdepasse");
+            return passwordEncoder.matches("motdepasse", hash);
+        });
+
+        // Then
+        assertThat(pinned).isEmpty();
+    }
+
+    @Test
+    void jwtValidation_ShouldNotPinCarrierThreads() throws Exception {
+        // Given
+        UserDetails user = User.builder().username("alice@example.com").password("x").authorities(List.of()).build();
+        String token = jwtService.generateToken(user);
+
+        // When
+        List<RecordedEvent> pinned = recordPinnedEvents(() -> jwtService.isTokenValid(token, "alice@example.com"));
+
+        // Then
+        assertThat(pinned).isEmpty();
+    }
+
+    /**
+     * Exécute la tâche CONCURRENT_TASKS fois en parallèle dans des threads virtuels,
+     * et retourne les événements d'épinglage enregistrés.
+     */
+    private List<RecordedEvent> recordPinnedEvents(Callable<?> task) throws Exception {
+        Path dump = tempDir.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < CONCURRENT_TASKS; i++) {
+                    futures.add(executor.submit(task));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+
+            recording.stop();
+            recording.dump(dump);
+        }
+        return RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals(PINNED_EVENT))
+                .toList();
+    }
+}
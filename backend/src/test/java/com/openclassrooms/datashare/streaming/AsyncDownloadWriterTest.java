@@ -0,0 +1,241 @@
+package com.openclassrooms.datashare.streaming;
+
+import com.openclassrooms.datashare.entities.File;
+import com.openclassrooms.datashare.service.DownloadContent;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AsyncDownloadWriterTest {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private BandwidthScheduler bandwidthScheduler;
+    private AsyncDownloadWriter writer;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext asyncContext;
+    private SlowClientOutputStream out;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bandwidthScheduler = new BandwidthScheduler(DataSize.ofBytes(0), DataSize.ofBytes(0), DataSize.ofBytes(0));
+        writer = new AsyncDownloadWriter(true, BUFFER_SIZE, 4, Duration.ofMinutes(1), bandwidthScheduler);
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        asyncContext = mock(AsyncContext.class);
+        out = new SlowClientOutputStream(3);
+
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void supports_ShouldExcludeRangeRequests() {
+        // Given
+        when(request.getHeader(HttpHeaders.RANGE)).thenReturn("bytes=0-99");
+
+        // When / Then
+        assertThat(writer.supports(request)).isFalse();
+    }
+
+    @Test
+    void write_ShouldSendWholeContent_WhenClientReadsSlowly() throws Exception {
+        // Given
+        byte[] content = new byte[10 * BUFFER_SIZE + 17];
+        new Random(42).nextBytes(content);
+
+        // When
+        writer.write(request, response, download(new ByteArrayResource(content)));
+        int callbacks = 0;
+        while (writer.activeTransfers() > 0) {
+            out.drain();
+            callbacks++;
+        }
+
+        // Then
+        assertThat(out.written()).isEqualTo(content);
+        assertThat(callbacks).isGreaterThan(1);
+        verify(asyncContext).setTimeout(0);
+        verify(asyncContext).complete();
+        assertThat(writer.availableBuffers()).isEqualTo(1);
+    }
+
+    @Test
+    void abortStalledTransfers_ShouldReleaseResources_WhenClientStopsReading() throws Exception {
+        // Given
+        writer.stop();
+        writer = new AsyncDownloadWriter(true, BUFFER_SIZE, 4, Duration.ZERO, bandwidthScheduler);
+        TrackingInputStream in = new TrackingInputStream(new byte[100 * BUFFER_SIZE]);
+        writer.write(request, response, download(new InputStreamResource(in)));
+        out.drain();
+
+        // When
+        writer.abortStalledTransfers();
+
+        // Then
+        assertThat(writer.activeTransfers()).isZero();
+        assertThat(in.closed.get()).isTrue();
+        assertThat(writer.availableBuffers()).isEqualTo(1);
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    void onError_ShouldReleaseResources_WhenClientDisconnects() throws Exception {
+        // Given
+        TrackingInputStream in = new TrackingInputStream(new byte[100 * BUFFER_SIZE]);
+        writer.write(request, response, download(new InputStreamResource(in)));
+
+        // When
+        out.listener.onError(new IOException("Broken pipe"));
+
+        // Then
+        assertThat(writer.activeTransfers()).isZero();
+        assertThat(in.closed.get()).isTrue();
+        assertThat(bandwidthScheduler.snapshot(10).global().transfers()).isZero();
+        verify(asyncContext).addListener(any(AsyncListener.class));
+    }
+
+    @Test
+    void pump_ShouldReleaseResources_WhenWriteFailsWithIllegalState() throws Exception {
+        // Given - Requête terminée par le conteneur : le flux de réponse refuse les écritures
+        TrackingInputStream in = new TrackingInputStream(new byte[100 * BUFFER_SIZE]);
+        writer.write(request, response, download(new InputStreamResource(in)));
+        out.failWrites = true;
+
+        // When
+        out.drain();
+
+        // Then
+        assertThat(writer.activeTransfers()).isZero();
+        assertThat(in.closed.get()).isTrue();
+        assertThat(writer.availableBuffers()).isEqualTo(1);
+        assertThat(bandwidthScheduler.snapshot(10).global().transfers()).isZero();
+        verify(asyncContext).complete();
+    }
+
+    @Test
+    void write_ShouldCloseContent_WhenAsyncCannotStart() throws Exception {
+        // Given
+        TrackingInputStream in = new TrackingInputStream(new byte[BUFFER_SIZE]);
+        when(request.startAsync(request, response)).thenThrow(new IllegalStateException("Response already committed"));
+
+        // When / Then
+        assertThatThrownBy(() -> writer.write(request, response, download(new InputStreamResource(in))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(in.closed.get()).isTrue();
+        assertThat(writer.activeTransfers()).isZero();
+    }
+
+    private static DownloadContent download(Resource resource) {
+        File file = new File();
+        file.setDownloadToken("token-async-writer");
+        return new DownloadContent(file, resource, 0, null, false);
+    }
+
+    /**
+     * Flux de réponse non bloquant simulant un client lent :
+     * la socket accepte writesPerDrain écritures, puis n'est plus prête jusqu'au prochain drain().
+     */
+    private static final class SlowClientOutputStream extends ServletOutputStream {
+
+        private final int writesPerDrain;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private WriteListener listener;
+        private int remainingWrites;
+        private boolean failWrites;
+
+        private SlowClientOutputStream(int writesPerDrain) {
+            this.writesPerDrain = writesPerDrain;
+        }
+
+        void drain() throws IOException {
+            remainingWrites = writesPerDrain;
+            listener.onWritePossible();
+        }
+
+        byte[] written() {
+            return received.toByteArray();
+        }
+
+        @Override
+        public boolean isReady() {
+            return remainingWrites > 0;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            received.write(b);
+            remainingWrites--;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (failWrites) {
+                throw new IllegalStateException("Response already completed");
+            }
+            received.write(b, off, len);
+            remainingWrites--;
+        }
+    }
+
+    private static final class TrackingInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private TrackingInputStream(byte[] content) {
+            this.delegate = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
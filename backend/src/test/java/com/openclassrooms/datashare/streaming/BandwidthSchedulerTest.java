@@ -0,0 +1,132 @@
+package com.openclassrooms.datashare.streaming;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BandwidthSchedulerTest {
+
+    private static final int CHUNK = 64 * 1024;
+
+    @Test
+    void acquire_ShouldGrantImmediately_WhenUnlimited() {
+        // Given
+        BandwidthScheduler scheduler = scheduler(0, 0, 0);
+        BandwidthScheduler.Flow flow = scheduler.open("token-unlimited", 1L);
+
+        // When
+        int first = flow.acquire(CHUNK, granted -> { });
+        int second = flow.acquire(CHUNK, granted -> { });
+
+        // Then
+        assertThat(first).isEqualTo(CHUNK);
+        assertThat(second).isEqualTo(CHUNK);
+        assertThat(scheduler.snapshot(10).waiting()).isZero();
+    }
+
+    @Test
+    void sampleRates_ShouldMeasureUnlimitedBuckets() {
+        // Given
+        BandwidthScheduler scheduler = scheduler(0, 0, 0);
+        BandwidthScheduler.Flow flow = scheduler.open("token-unlimited", 1L);
+        flow.acquire(CHUNK, granted -> { });
+        flow.acquire(CHUNK, granted -> { });
+        flow.refund(CHUNK);
+
+        // When
+        scheduler.sampleRates(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        // Then
+        BandwidthScheduler.Snapshot snapshot = scheduler.snapshot(10);
+        assertThat(snapshot.global().bytesPerSecond()).isPositive().isLessThanOrEqualTo(CHUNK);
+        assertThat(snapshot.links()).singleElement()
+                .satisfies(usage -> assertThat(usage.bytesPerSecond()).isPositive());
+    }
+
+    @Test
+    void acquire_ShouldQueueOnlyThrottledLink_WhenLinkBucketIsEmpty() {
+        // Given
+        BandwidthScheduler scheduler = scheduler(0, 0, CHUNK);
+        BandwidthScheduler.Flow viral = scheduler.open("token-viral", 1L);
+        BandwidthScheduler.Flow other = scheduler.open("token-other", 1L);
+
+        // When
+        int first = viral.acquire(CHUNK, granted -> { });
+        int second = viral.acquire(CHUNK, granted -> { });
+        int otherLink = other.acquire(CHUNK, granted -> { });
+
+        // Then
+        assertThat(first).isEqualTo(CHUNK);
+        assertThat(second).isZero();
+        assertThat(otherLink).isEqualTo(CHUNK);
+        assertThat(scheduler.snapshot(10).waiting()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatchRound_ShouldResumeWaitingFlows_WhenTokensAreRefilled() {
+        // Given
+        BandwidthScheduler scheduler = scheduler(CHUNK, 0, 0);
+        BandwidthScheduler.Flow first = scheduler.open("token-a", 1L);
+        BandwidthScheduler.Flow second = scheduler.open("token-b", 2L);
+        AtomicInteger resumed = new AtomicInteger();
+        first.acquire(CHUNK, granted -> { });
+        second.acquire(CHUNK, resumed::addAndGet);
+
+        // When
+        scheduler.dispatchRound(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        // Then
+        assertThat(resumed.get()).isEqualTo(CHUNK);
+        assertThat(scheduler.snapshot(10).waiting()).isZero();
+    }
+
+    @Test
+    void close_ShouldReleaseBucketsAndLeaveQueue() {
+        // Given
+        BandwidthScheduler scheduler = scheduler(0, 0, CHUNK);
+        BandwidthScheduler.Flow flow = scheduler.open("token-closed", 1L);
+        flow.acquire(CHUNK, granted -> { });
+        flow.acquire(CHUNK, granted -> { });
+
+        // When
+        flow.close();
+
+        // Then
+        BandwidthScheduler.Snapshot snapshot = scheduler.snapshot(10);
+        assertThat(snapshot.waiting()).isZero();
+        assertThat(snapshot.global().transfers()).isZero();
+        assertThat(snapshot.links()).isEmpty();
+        assertThat(snapshot.owners()).isEmpty();
+    }
+
+    @Test
+    void fairQueue_ShouldAlternateBetweenOwners_BeforeLinksOfSameOwner() {
+        // Given
+        HierarchicalFairQueue<String> queue = new HierarchicalFairQueue<>();
+        queue.add(1L, "viral", "a1");
+        queue.add(1L, "viral", "a2");
+        queue.add(1L, "other", "a3");
+        queue.add(2L, "single", "b1");
+
+        // When
+        List<String> order = new ArrayList<>();
+        String item;
+        while ((item = queue.poll()) != null) {
+            order.add(item);
+        }
+
+        // Then
+        assertThat(order).containsExactly("a1", "b1", "a3", "a2");
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    private static BandwidthScheduler scheduler(long global, long perOwner, long perLink) {
+        return new BandwidthScheduler(DataSize.ofBytes(global), DataSize.ofBytes(perOwner), DataSize.ofBytes(perLink));
+    }
+}
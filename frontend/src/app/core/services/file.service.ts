@@ -1,5 +1,5 @@
 import { Injectable, inject } from '@angular/core';
-import { HttpClient, HttpEvent, HttpEventType, HttpParams } from '@angular/common/http';
+import { HttpClient, HttpEvent, HttpEventType, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable, map } from 'rxjs';
 import { environment } from '../../../environments/environment';
 import { FileListResponse, FileListParams } from '../models/file.model';
@@ -60,7 +60,14 @@ export class FileService {
       formData.append('password', request.password);
     }
 
+    // Nom et type annoncés : le backend peut refuser l'upload avant d'en recevoir le contenu
+    const headers = new HttpHeaders({
+      'X-File-Name': encodeURIComponent(request.file.name),
+      'X-File-Type': request.file.type || 'application/octet-stream'
+    });
+
     return this.http.post<FileUploadResponse>(this.apiUrl, formData, {
+      headers,
       reportProgress: true,
       observe: 'events'
     }).pipe(
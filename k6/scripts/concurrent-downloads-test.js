@@ -0,0 +1,114 @@
+/**
+ * K6 Load Test - Téléchargements simultanés (threads plateforme vs threads virtuels)
+ *
+ * Monte progressivement jusqu'à MAX_VUS téléchargements simultanés de POST /api/download/{token}
+ * pour mesurer le nombre de transferts concurrents que le backend tient avant de saturer.
+ * Exécuté deux fois par `mise test:perf:concurrency` : VIRTUAL_THREADS_ENABLED=false puis true.
+ *
+ * Métriques mesurées :
+ * - Taux d'erreur (timeouts, refus de connexion, 5xx) par palier de concurrence
+ * - Temps de réponse (P95, P99) et temps d'attente avant le premier octet
+ * - Débit agrégé (octets reçus)
+ */
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { Rate, Trend } from 'k6/metrics';
+
+// ========================================
+// Métriques Personnalisées
+// ========================================
+const downloadErrors = new Rate('download_errors');
+const timeToFirstByte = new Trend('download_ttfb', true);
+
+// ========================================
+// Configuration Environnement
+// ========================================
+const BASE_URL = __ENV.BASE_URL || 'https://www.datashare.projet3.oc';
+// Un fichier volumineux (plusieurs Mo) rend l'occupation des threads visible
+const TOKEN = __ENV.LARGE_DOWNLOAD_TOKEN || __ENV.VALID_DOWNLOAD_TOKEN || 'REPLACE_WITH_VALID_TOKEN';
+const THREAD_MODE = __ENV.THREAD_MODE || 'platform';
+const MAX_VUS = parseInt(__ENV.MAX_VUS || '1000', 10);
+const RESULTS_DIR = __ENV.RESULTS_DIR || 'k6/results';
+
+// ========================================
+// Configuration du Test de Charge
+// ========================================
+export const options = {
+  scenarios: {
+    concurrent_downloads: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: Math.round(MAX_VUS * 0.1) },
+        { duration: '1m', target: Math.round(MAX_VUS * 0.25) },   // Au-delà des 200 threads Tomcat par défaut
+        { duration: '1m', target: Math.round(MAX_VUS * 0.5) },
+        { duration: '1m', target: MAX_VUS },
+        { duration: '1m', target: MAX_VUS },                      // Plateau à concurrence maximale
+        { duration: '30s', target: 0 },
+      ],
+      gracefulRampDown: '30s',
+    },
+  },
+
+  // Seuils indicatifs : la comparaison entre les deux modes se fait sur le résumé exporté
+  thresholds: {
+    'download_errors': ['rate<0.05'],
+    'http_req_duration{expected_response:true}': ['p(95)<10000'],
+  },
+
+  // Corps des réponses ignoré : mémoire k6 constante quel que soit le nombre de VUs
+  discardResponseBodies: true,
+  userAgent: 'K6ConcurrencyTest/1.0',
+  tags: { thread_mode: THREAD_MODE },
+};
+
+// ========================================
+// Fonction de Test Principal
+// ========================================
+export default function () {
+  const response = http.post(`${BASE_URL}/api/download/${TOKEN}`, null, {
+    headers: { 'Accept': 'application/octet-stream' },
+    timeout: '60s',
+  });
+
+  const ok = check(response, {
+    'Status 200 OK': (r) => r.status === 200,
+  });
+
+  downloadErrors.add(!ok);
+  timeToFirstByte.add(response.timings.waiting);
+}
+
+// ========================================
+// Setup / Résumé
+// ========================================
+export function setup() {
+  console.log('=== K6 Concurrency Test Setup ===');
+  console.log(`Base URL: ${BASE_URL}`);
+  console.log(`Thread mode: ${THREAD_MODE}`);
+  console.log(`Max VUs: ${MAX_VUS}`);
+  console.log('=================================');
+
+  const healthCheck = http.get(`${BASE_URL}/actuator/health`);
+  if (healthCheck.status !== 200) {
+    throw new Error(`API not ready - Status: ${healthCheck.status}`);
+  }
+}
+
+export function handleSummary(data) {
+  const summary = {
+    thread_mode: THREAD_MODE,
+    max_vus: data.metrics.vus_max.values.max,
+    requests: data.metrics.http_reqs.values.count,
+    requests_per_second: data.metrics.http_reqs.values.rate,
+    error_rate: data.metrics.download_errors.values.rate,
+    duration_p95_ms: data.metrics.http_req_duration.values['p(95)'],
+    ttfb_p95_ms: data.metrics.download_ttfb.values['p(95)'],
+    bytes_received: data.metrics.data_received.values.count,
+  };
+  return {
+    stdout: JSON.stringify(summary, null, 2) + '\n',
+    [`${RESULTS_DIR}/concurrency-${THREAD_MODE}.json`]: JSON.stringify(summary, null, 2),
+  };
+}
@@ -21,6 +21,7 @@ import { Rate, Trend, Counter } from 'k6/metrics';
 const downloadErrors = new Rate('download_errors');
 const downloadDuration = new Trend('download_duration');
 const bytesDownloaded = new Counter('bytes_downloaded');
+const downloadShed = new Rate('download_shed');  // 503 du délestage (DownloadConcurrencyFilter)
 
 // ========================================
 // Configuration du Test de Charge
@@ -41,6 +42,7 @@ export const options = {
     'http_req_duration': ['p(95)<2000', 'p(99)<5000'], // 95% < 2s, 99% < 5s
     'http_req_failed': ['rate<0.15'],                  // Taux erreur < 15% (inclut 404/410 intentionnels)
     'download_errors': ['rate<0.05'],                  // Erreurs download réels < 5%
+    'download_shed': ['rate<0.10'],                    // Requêtes délestées (503) < 10%
     'http_reqs': ['rate>10'],                          // Minimum 10 req/s
   },
 
@@ -103,7 +105,13 @@ export default function () {
     'Temps réponse < 5s': (r) => r.timings.duration < 5000,
   });
 
-  // Métriques custom
+  // Métriques custom (un 503 avec Retry-After est un délestage volontaire, pas une erreur)
+  const shed = response.status === 503;
+  downloadShed.add(shed);
+  if (shed) {
+    sleep(Number(response.headers['Retry-After'] || 1));
+    return;
+  }
   downloadErrors.add(!checksOk);
   downloadDuration.add(duration);
   bytesDownloaded.add(response.body ? response.body.length : 0);